@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
+import org.talend.mdm.commmon.metadata.ContainedTypeFieldMetadata;
+import org.talend.mdm.commmon.metadata.FieldMetadata;
+import org.talend.mdm.commmon.metadata.MetadataRepository;
+import org.talend.mdm.commmon.metadata.generator.DataModelGenerator;
+
+/**
+ * <p>
+ * Synthetic data models for benchmarks (generated with {@link DataModelGenerator}). Shape of data model is controlled
+ * by:
+ * <ul>
+ * <li>entity count: number of entity types.</li>
+ * <li>fan out: number of foreign keys declared in each entity type.</li>
+ * <li>reuse depth: number of nested reusable types used by each entity type. 0 means entities don't use reusable
+ * types.</li>
+ * <li>inheritance depth: maximum length of entity inheritance chains. 0 means no inheritance.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * All benchmarks use the same seed: same parameters always give the same data model.
+ * </p>
+ */
+final class BenchmarkDataModels {
+
+    private static final long SEED = 20140101L;
+
+    // Fixed (instead of depending on entity count) so data models with one more entity only differ by this entity.
+    private static final int REUSABLE_TYPE_COUNT = 5;
+
+    private BenchmarkDataModels() {
+    }
+
+    /**
+     * @return A data model (XML schema) with the requested shape.
+     */
+    static byte[] generate(int entityCount, int fanOut, int reuseDepth, int inheritanceDepth) {
+        DataModelGenerator generator = new DataModelGenerator(SEED, entityCount);
+        generator.setFanOut(fanOut);
+        generator.setReuseDepth(reuseDepth);
+        generator.setInheritanceDepth(inheritanceDepth);
+        generator.setReusableTypeCount(REUSABLE_TYPE_COUNT);
+        return generator.generate();
+    }
+
+    /**
+     * @return A new (frozen) repository for <code>dataModel</code>.
+     */
+    static MetadataRepository load(byte[] dataModel) {
+        MetadataRepository repository = new MetadataRepository();
+        repository.load(new ByteArrayInputStream(dataModel));
+        return repository;
+    }
+
+    /**
+     * @return All fields and contained types of the user types in <code>repository</code> (in a stable order: two
+     * repositories for the same data model return equal metadata at same index).
+     */
+    static List<Object> getFieldsAndContainedTypes(MetadataRepository repository) {
+        List<Object> metadata = new ArrayList<Object>();
+        for (ComplexTypeMetadata type : repository.getUserComplexTypes()) {
+            addFieldsAndContainedTypes(type, metadata);
+        }
+        return metadata;
+    }
+
+    private static void addFieldsAndContainedTypes(ComplexTypeMetadata type, List<Object> metadata) {
+        for (FieldMetadata field : type.getFields()) {
+            metadata.add(field);
+            if (field instanceof ContainedTypeFieldMetadata) {
+                ComplexTypeMetadata containedType = ((ContainedTypeFieldMetadata) field).getContainedType();
+                metadata.add(containedType);
+                addFieldsAndContainedTypes(containedType, metadata);
+            }
+        }
+    }
+
+    static String getEntityName(int index) {
+        return DataModelGenerator.getEntityName(index);
+    }
+
+    /**
+     * @return Path of a field declared in entity type (not in a reusable type).
+     */
+    static String getFlatFieldPath() {
+        return DataModelGenerator.NAME_FIELD;
+    }
+
+    /**
+     * @return Path of a field in the most nested reusable type (or {@link #getFlatFieldPath()} if data model has no
+     * reusable type).
+     */
+    static String getHierarchicalFieldPath(int reuseDepth) {
+        if (reuseDepth <= 0) {
+            return getFlatFieldPath();
+        }
+        return DataModelGenerator.getNestedFieldPath(reuseDepth - 1);
+    }
+}
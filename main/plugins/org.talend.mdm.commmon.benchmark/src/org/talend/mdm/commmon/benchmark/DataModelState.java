@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Shape of the synthetic data model used by benchmarks (see {@link BenchmarkDataModels}).
+ */
+@State(Scope.Benchmark)
+public class DataModelState {
+
+    @Param({ "10", "100", "1000" })
+    public int entityCount;
+
+    @Param({ "0", "4" })
+    public int fanOut;
+
+    @Param({ "0", "3" })
+    public int reuseDepth;
+
+    @Param({ "0", "3" })
+    public int inheritanceDepth;
+
+    byte[] dataModel;
+
+    @Setup(Level.Trial)
+    public void generateDataModel() {
+        dataModel = BenchmarkDataModels.generate(entityCount, fanOut, reuseDepth, inheritanceDepth);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Heap measurements for benchmarks that compare memory usage (JMH only reports time, and <code>-prof gc</code> only
+ * reports allocation rates). Figures are approximations: run with a fixed heap size (e.g. <code>-Xms2g -Xmx2g</code>)
+ * and a single thread for stable results.
+ */
+public final class HeapUsage {
+
+    private static final int GC_COUNT = 5;
+
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private HeapUsage() {
+    }
+
+    /**
+     * Creates objects measured by {@link HeapUsage}.
+     */
+    public interface Allocation {
+
+        Object allocate();
+    }
+
+    /**
+     * @return Number of bytes allocated by the current thread during <code>allocation</code> (average of
+     * <code>count</code> runs), or -1 if JVM can not measure allocations.
+     */
+    public static long getAllocatedBytes(Allocation allocation, int count) {
+        if (!(THREADS instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+        long threadId = Thread.currentThread().getId();
+        allocation.allocate(); // Warm up (class loading, static initializations).
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < count; i++) {
+            allocation.allocate();
+        }
+        return (threads.getThreadAllocatedBytes(threadId) - before) / count;
+    }
+
+    /**
+     * @return Number of bytes still in use once <code>allocation</code> returns (average of <code>count</code>
+     * objects, all kept in memory during measure).
+     */
+    public static long getRetainedBytes(Allocation allocation, int count) {
+        allocation.allocate(); // Warm up (class loading, static initializations).
+        getUsedHeap(); // First measure after start up includes objects collected by later GCs.
+        Object[] objects = new Object[count];
+        long before = getUsedHeap();
+        for (int i = 0; i < count; i++) {
+            objects[i] = allocation.allocate();
+        }
+        long after = getUsedHeap();
+        if (objects[count - 1] == null) { // Keeps objects reachable until heap is measured.
+            throw new IllegalStateException("Allocation returned null.");
+        }
+        return (after - before) / count;
+    }
+
+    private static long getUsedHeap() {
+        for (int i = 0; i < GC_COUNT; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * @return <code>bytes</code> as a human readable size.
+     */
+    public static String format(long bytes) {
+        if (bytes < 0) {
+            return "n/a"; //$NON-NLS-1$
+        }
+        return String.format("%,d KB", bytes / 1024); //$NON-NLS-1$
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.talend.mdm.commmon.metadata.MetadataRepository;
+
+/**
+ * <p>
+ * Measures {@link MetadataRepository#load(java.io.InputStream)} (parsing, freeze and validation of a data model).
+ * </p>
+ * <p>
+ * {@link #main(String[])} compares heap usage of EMF and streaming loads (see
+ * {@link MetadataRepository#setStreamingLoad(boolean)}): bytes allocated during load and bytes retained by the
+ * loaded repository.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Benchmark
+    public MetadataRepository load(DataModelState state) {
+        return BenchmarkDataModels.load(state.dataModel);
+    }
+
+    @Benchmark
+    public MetadataRepository loadStreaming(DataModelState state) {
+        return loadStreaming(state.dataModel);
+    }
+
+    private static MetadataRepository loadStreaming(byte[] dataModel) {
+        MetadataRepository repository = new MetadataRepository();
+        repository.setStreamingLoad(true);
+        repository.load(new ByteArrayInputStream(dataModel));
+        return repository;
+    }
+
+    /**
+     * Prints heap usage of EMF and streaming loads for data models of increasing size. To run:
+     * <code>java -Xms2g -Xmx2g -cp target/benchmarks.jar org.talend.mdm.commmon.benchmark.LoadBenchmark</code>
+     */
+    public static void main(String[] args) {
+        System.out.println("Entities\tParser\tAllocated\tRetained"); //$NON-NLS-1$
+        for (int entityCount : new int[] { 10, 100, 1000 }) {
+            final byte[] dataModel = BenchmarkDataModels.generate(entityCount, 4, 3, 3);
+            int count = Math.max(1, 1000 / entityCount);
+            HeapUsage.Allocation emfLoad = new HeapUsage.Allocation() {
+
+                @Override
+                public Object allocate() {
+                    return BenchmarkDataModels.load(dataModel);
+                }
+            };
+            HeapUsage.Allocation streamingLoad = new HeapUsage.Allocation() {
+
+                @Override
+                public Object allocate() {
+                    return loadStreaming(dataModel);
+                }
+            };
+            print(entityCount, "EMF", emfLoad, count); //$NON-NLS-1$
+            print(entityCount, "Streaming", streamingLoad, count); //$NON-NLS-1$
+        }
+    }
+
+    private static void print(int entityCount, String parser, HeapUsage.Allocation load, int count) {
+        System.out.println(entityCount + "\t" + parser + '\t' + HeapUsage.format(HeapUsage.getAllocatedBytes(load, count)) //$NON-NLS-1$
+                + '\t' + HeapUsage.format(HeapUsage.getRetainedBytes(load, count)));
+    }
+}
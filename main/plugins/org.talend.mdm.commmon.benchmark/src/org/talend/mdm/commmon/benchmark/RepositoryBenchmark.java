@@ -0,0 +1,209 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
+import org.talend.mdm.commmon.metadata.FieldMetadata;
+import org.talend.mdm.commmon.metadata.InboundReferences;
+import org.talend.mdm.commmon.metadata.MetadataFingerprints;
+import org.talend.mdm.commmon.metadata.MetadataRepository;
+import org.talend.mdm.commmon.metadata.MetadataUtils;
+import org.talend.mdm.commmon.metadata.ReferenceFieldMetadata;
+import org.talend.mdm.commmon.metadata.compare.Compare;
+
+/**
+ * <p>
+ * Measures queries on a loaded {@link MetadataRepository}.
+ * </p>
+ * <p>
+ * Some operations are cached by frozen repositories (type sort, entity rank, references): benchmarks suffixed with
+ * <code>NoIndex</code> run the same operation on a copy of the repository, i.e. a repository without cached
+ * information.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RepositoryBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class RepositoryState {
+
+        int entityCount;
+
+        MetadataRepository repository;
+
+        // Same data model as repository but loaded in an other instance.
+        MetadataRepository sameRepository;
+
+        // Data model with one more entity type than repository.
+        MetadataRepository modifiedRepository;
+
+        // A copy of repository: copies are not frozen, so they don't have an index.
+        MetadataRepository noIndexRepository;
+
+        ComplexTypeMetadata[] types;
+
+        ComplexTypeMetadata[] noIndexTypes;
+
+        String[] typeNames;
+
+        String flatFieldPath;
+
+        String hierarchicalFieldPath;
+
+        // Fields and contained types of repository (see lookupMetadata()).
+        Set<Object> metadata;
+
+        // Fields and contained types of sameRepository (equal to metadata but other instances).
+        Object[] sameMetadata;
+
+        Set<Object> noIndexMetadata;
+
+        Object[] sameNoIndexMetadata;
+
+        @Setup(Level.Trial)
+        public void loadRepositories(DataModelState model) {
+            entityCount = model.entityCount;
+            repository = BenchmarkDataModels.load(model.dataModel);
+            sameRepository = BenchmarkDataModels.load(model.dataModel);
+            modifiedRepository = BenchmarkDataModels.load(BenchmarkDataModels.generate(entityCount + 1,
+                    model.fanOut, model.reuseDepth, model.inheritanceDepth));
+            noIndexRepository = repository.copy();
+            types = new ComplexTypeMetadata[entityCount];
+            noIndexTypes = new ComplexTypeMetadata[entityCount];
+            typeNames = new String[entityCount];
+            for (int i = 0; i < entityCount; i++) {
+                typeNames[i] = BenchmarkDataModels.getEntityName(i);
+                types[i] = repository.getComplexType(typeNames[i]);
+                noIndexTypes[i] = noIndexRepository.getComplexType(typeNames[i]);
+            }
+            flatFieldPath = BenchmarkDataModels.getFlatFieldPath();
+            hierarchicalFieldPath = BenchmarkDataModels.getHierarchicalFieldPath(model.reuseDepth);
+            metadata = new HashSet<Object>(BenchmarkDataModels.getFieldsAndContainedTypes(repository));
+            sameMetadata = BenchmarkDataModels.getFieldsAndContainedTypes(sameRepository).toArray();
+            noIndexMetadata = new HashSet<Object>(BenchmarkDataModels.getFieldsAndContainedTypes(noIndexRepository));
+            sameNoIndexMetadata = BenchmarkDataModels.getFieldsAndContainedTypes(repository.copy()).toArray();
+        }
+    }
+
+    /**
+     * Benchmarks pick a different type at each invocation.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int position;
+
+        int next(int size) {
+            position = (position + 1) % size;
+            return position;
+        }
+    }
+
+    @Benchmark
+    public ComplexTypeMetadata getComplexType(RepositoryState state, Cursor cursor) {
+        return state.repository.getComplexType(state.typeNames[cursor.next(state.entityCount)]);
+    }
+
+    @Benchmark
+    public FieldMetadata getFieldFlat(RepositoryState state, Cursor cursor) {
+        return state.types[cursor.next(state.entityCount)].getField(state.flatFieldPath);
+    }
+
+    @Benchmark
+    public FieldMetadata getFieldHierarchical(RepositoryState state, Cursor cursor) {
+        return state.types[cursor.next(state.entityCount)].getField(state.hierarchicalFieldPath);
+    }
+
+    @Benchmark
+    public List<ComplexTypeMetadata> sortTypes(RepositoryState state) {
+        return MetadataUtils.sortTypes(state.repository);
+    }
+
+    @Benchmark
+    public List<ComplexTypeMetadata> sortTypesNoIndex(RepositoryState state) {
+        return MetadataUtils.sortTypes(state.noIndexRepository, new ArrayList<ComplexTypeMetadata>(
+                state.noIndexRepository.getUserComplexTypes()));
+    }
+
+    @Benchmark
+    public Map<ComplexTypeMetadata, Long> computeEntityRank(RepositoryState state) {
+        return MetadataUtils.computeEntityRank(state.repository);
+    }
+
+    @Benchmark
+    public Map<ComplexTypeMetadata, Long> computeEntityRankNoIndex(RepositoryState state) {
+        return MetadataUtils.computeEntityRank(state.noIndexRepository);
+    }
+
+    @Benchmark
+    public Set<ReferenceFieldMetadata> inboundReferences(RepositoryState state, Cursor cursor) {
+        return state.repository.accept(new InboundReferences(state.types[cursor.next(state.entityCount)]));
+    }
+
+    @Benchmark
+    public Set<ReferenceFieldMetadata> inboundReferencesNoIndex(RepositoryState state, Cursor cursor) {
+        return state.noIndexRepository.accept(new InboundReferences(state.noIndexTypes[cursor.next(state.entityCount)]));
+    }
+
+    /**
+     * Hash set lookup of fields and contained types (hash codes of frozen fields are cached).
+     */
+    @Benchmark
+    public boolean lookupMetadata(RepositoryState state, Cursor cursor) {
+        return state.metadata.contains(state.sameMetadata[cursor.next(state.sameMetadata.length)]);
+    }
+
+    @Benchmark
+    public boolean lookupMetadataNoIndex(RepositoryState state, Cursor cursor) {
+        return state.noIndexMetadata.contains(state.sameNoIndexMetadata[cursor.next(state.sameNoIndexMetadata.length)]);
+    }
+
+    /**
+     * Structural fingerprint of an entity type (computed, not the value cached by the repository).
+     */
+    @Benchmark
+    public long fingerprint(RepositoryState state, Cursor cursor) {
+        return MetadataFingerprints.fingerprint(state.types[cursor.next(state.entityCount)]);
+    }
+
+    @Benchmark
+    public Compare.DiffResults compareSame(RepositoryState state) {
+        return Compare.compare(state.repository, state.sameRepository);
+    }
+
+    @Benchmark
+    public Compare.DiffResults compareModified(RepositoryState state) {
+        return Compare.compare(state.repository, state.modifiedRepository);
+    }
+}
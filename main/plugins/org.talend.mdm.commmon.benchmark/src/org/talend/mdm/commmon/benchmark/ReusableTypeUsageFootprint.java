@@ -0,0 +1,57 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.benchmark;
+
+import org.talend.mdm.commmon.metadata.MetadataRepository;
+
+/**
+ * <p>
+ * Measures heap retained by the per-usage copies of reusable types: each usage of a reusable type gets its own copy of
+ * the type during {@link MetadataRepository#load(java.io.InputStream)}. Data models are loaded with and without
+ * reusable types (see {@link BenchmarkDataModels}), the difference is the heap used by usages of reusable types.
+ * </p>
+ * <p>
+ * To run: <code>java -Xms2g -Xmx2g -cp target/benchmarks.jar org.talend.mdm.commmon.benchmark.ReusableTypeUsageFootprint
+ * [entity count...]</code>
+ * </p>
+ */
+public class ReusableTypeUsageFootprint {
+
+    private static final int REUSE_DEPTH = 3;
+
+    public static void main(String[] args) {
+        int[] entityCounts = { 100, 500, 1000 };
+        if (args.length > 0) {
+            entityCounts = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                entityCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+        System.out.println("Entities\tWithout reusable types\tWith reusable types\tPer entity"); //$NON-NLS-1$
+        for (int entityCount : entityCounts) {
+            long withoutReuse = getRetainedBytes(BenchmarkDataModels.generate(entityCount, 0, 0, 0));
+            long withReuse = getRetainedBytes(BenchmarkDataModels.generate(entityCount, 0, REUSE_DEPTH, 0));
+            System.out.println(entityCount + "\t" + HeapUsage.format(withoutReuse) + '\t' + HeapUsage.format(withReuse) //$NON-NLS-1$
+                    + '\t' + ((withReuse - withoutReuse) / entityCount) + " bytes"); //$NON-NLS-1$
+        }
+    }
+
+    private static long getRetainedBytes(final byte[] dataModel) {
+        return HeapUsage.getRetainedBytes(new HeapUsage.Allocation() {
+
+            @Override
+            public Object allocate() {
+                return BenchmarkDataModels.load(dataModel);
+            }
+        }, 1);
+    }
+}
@@ -18,6 +18,8 @@ import org.talend.mdm.commmon.metadata.validation.ValidationFactory;
 import org.talend.mdm.commmon.metadata.validation.ValidationRule;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Default implementation for a MDM entity type (i.e. "complex" type).
@@ -26,6 +28,11 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     private static final Logger LOGGER = Logger.getLogger(ComplexTypeMetadataImpl.class);
 
+    /**
+     * Maximum number of compiled paths kept by a type (see {@link #getFieldPath(String)}).
+     */
+    public static final int MAX_COMPILED_PATHS = 256;
+
     private final String nameSpace;
 
     private final List<String> allowWrite;
@@ -48,7 +55,8 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     private final Collection<ComplexTypeMetadata> subTypes = new HashSet<ComplexTypeMetadata>();
 
-    private final Map<Locale, String> localeToLabel = new HashMap<Locale, String>();
+    // registerName() replaces the map instead of modifying it, so copies can share labels with this type.
+    private Map<Locale, String> localeToLabel = Collections.emptyMap();
 
     private List<FieldMetadata> lookupFields;
 
@@ -64,7 +72,11 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     private FieldMetadata containingField;
 
-    private final Set<ComplexTypeMetadata> usages = new HashSet<ComplexTypeMetadata>();
+    // Copies share the usages declared so far with this type (see TypeUsages).
+    private TypeUsages usages = new TypeUsages();
+
+    // Compiled paths (only used once type is frozen), see getFieldPath(String).
+    private volatile ConcurrentMap<String, FieldPath> compiledPaths;
 
     public ComplexTypeMetadataImpl(String nameSpace, String name, boolean instantiable) {
         this(nameSpace,
@@ -140,59 +152,46 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
         if (fieldName.indexOf('/') < 0) {
             return fieldMetadata.get(fieldName); // Shortcut for direct look up for a field (no hierarchy involved).
         } else {
-            StringTokenizer tokenizer = new StringTokenizer(fieldName, "/"); //$NON-NLS-1$
-            // think about reusable type, e.g: Employee/Address[@xsi:type="CNAddressType"]/Province
-            ComplexTypeMetadata currentType = this;
-            FieldMetadata currentField = null;
-            while (tokenizer.hasMoreTokens()) {
-                String nextToken = tokenizer.nextToken();
-                String currentFieldName = StringUtils.substringBefore(nextToken, "["); //$NON-NLS-1$
-                // Handle xsi:type in XPath query
-                if (nextToken.contains("xsi:type")) { //$NON-NLS-1$
-                    String reusableTypeName = StringUtils.substringAfter(nextToken, "@xsi:type").replace('=', ' ').replace(']', ' ').trim(); //$NON-NLS-1$
-                    if (reusableTypeName.isEmpty()) {
-                        throw new IllegalArgumentException("Reusable type could not be null for fieldName '" + fieldName + "'"); //$NON-NLS-1$ //$NON-NLS-2$
-                    }
-                    if (!currentType.getName().equals(reusableTypeName)) { // Look real type in sub types
-                        boolean foundRealType = false;
-                        for (TypeMetadata subType : currentType.getSubTypes()) {
-                            if (subType instanceof ComplexTypeMetadata && subType.getName().equals(reusableTypeName)) {
-                                currentType = (ComplexTypeMetadata) subType;
-                                foundRealType = true;
-                                break;
-                            }
-                        }
-                        // xsi:type not found, assume type is default field type.
-                        if (!foundRealType) {
-                            LOGGER.error("Type '" + reusableTypeName + "' does not exist. Assuming '" + currentType.getName()
-                                    + "' has field type.");
-                        }
-                    }
-                }
-                // Find field in current type (or sub types, since query might refer to a field not declared in type)
-                if (!currentType.hasField(currentFieldName)) {
-                    boolean foundInSubTypes = false;
-                    for (ComplexTypeMetadata subType : currentType.getSubTypes()) {
-                        if (subType.hasField(currentFieldName)) {
-                            currentField = subType.getField(currentFieldName);
-                            foundInSubTypes = true;
-                            break;
-                        }
-                    }
-                    if (!foundInSubTypes) {
-                        throw new IllegalArgumentException("Type '" + getName() + "' does not own field '" + fieldName
-                                + "' (could not find '" + currentFieldName + "').");
-                    }
-                } else {
-                    currentField = currentType.getField(currentFieldName);
-                }
-                // Move to the next type (if any element to process).
-                if (tokenizer.hasMoreTokens()) {
-                    currentType = (ComplexTypeMetadata) currentField.getType();
+            return getFieldPath(fieldName).getField();
+        }
+    }
+
+    /**
+     * Returns the compiled version of <code>path</code> (see {@link FieldPath}). Once type is frozen, compiled paths
+     * are kept (up to {@link #MAX_COMPILED_PATHS} paths) so a path is parsed only once. When cache is full, one
+     * compiled path is evicted for each new path (other compiled paths stay in cache).
+     *
+     * @param path A path to a field (e.g. <code>Employee/Address[@xsi:type="CNAddressType"]/Province</code>).
+     * @return The compiled path.
+     * @throws IllegalArgumentException If path can not be resolved from this type.
+     */
+    public FieldPath getFieldPath(String path) {
+        if (!isFrozen) {
+            return FieldPath.compile(this, path);
+        }
+        ConcurrentMap<String, FieldPath> paths = compiledPaths;
+        if (paths == null) {
+            paths = new ConcurrentHashMap<String, FieldPath>();
+            compiledPaths = paths;
+        } else {
+            FieldPath compiledPath = paths.get(path);
+            if (compiledPath != null) {
+                return compiledPath;
+            }
+        }
+        FieldPath compiledPath = FieldPath.compile(this, path);
+        if (compiledPath.isStable()) {
+            if (paths.size() >= MAX_COMPILED_PATHS) {
+                // Evict one (arbitrary) path.
+                Iterator<String> iterator = paths.keySet().iterator();
+                if (iterator.hasNext()) {
+                    iterator.next();
+                    iterator.remove();
                 }
             }
-            return currentField;
+            paths.put(path, compiledPath);
         }
+        return compiledPath;
     }
 
     public boolean isInstantiable() {
@@ -234,6 +233,10 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
         return localizedName;
     }
 
+    Map<Locale, String> getLocalizedNames() {
+        return Collections.unmodifiableMap(localeToLabel);
+    }
+
     @Override
     public ComplexTypeMetadata getEntity() {
         if (getContainer() == null) {
@@ -314,6 +317,22 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
     }
 
     public ComplexTypeMetadata copy() {
+        return copy(true);
+    }
+
+    /**
+     * Copies this type for one of its usages (see {@link ContainedComplexTypeMetadata#finalizeUsage()}). Unlike
+     * {@link #copy()}, sub types may be copied by caller.
+     *
+     * @param copySubTypes <code>true</code> to also copy sub types of this type, <code>false</code> if caller copies
+     *                     sub types (copy is created without sub types).
+     * @return A copy of this type.
+     */
+    ComplexTypeMetadataImpl copyForUsage(boolean copySubTypes) {
+        return copy(copySubTypes);
+    }
+
+    private ComplexTypeMetadataImpl copy(boolean copySubTypes) {
         ComplexTypeMetadataImpl copy = new ComplexTypeMetadataImpl(getNamespace(),
                 getName(),
                 allowWrite,
@@ -338,8 +357,10 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
                 ((ComplexTypeMetadata) superType).registerSubType(copy);
             }
         }
-        for (ComplexTypeMetadata subType : subTypes) {
-            copy.subTypes.add((ComplexTypeMetadata) subType.copy());
+        if (copySubTypes) {
+            for (ComplexTypeMetadata subType : subTypes) {
+                copy.subTypes.add((ComplexTypeMetadata) subType.copy());
+            }
         }
         Collection<FieldMetadata> typeKeyFields = getKeyFields();
         for (FieldMetadata typeKeyField : typeKeyFields) {
@@ -348,11 +369,9 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
             copy.registerKey(fieldCopy);
         }
         copy.isFrozen = false;
-        copy.localeToLabel.putAll(localeToLabel);
-        if (dataMap != null) {
-            copy.dataMap = new HashMap<String, Object>(dataMap);
-        }
-        copy.usages.addAll(usages);
+        copy.localeToLabel = localeToLabel;
+        shareData(copy);
+        copy.usages = usages; // Snapshot of usages declared so far (does not copy them).
         return copy;
     }
 
@@ -367,7 +386,7 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
                 schematron,
                 primaryKeyInfo,
                 Collections.<FieldMetadata>emptyList(), isInstantiable, workflowAccessRights);
-        copy.localeToLabel.putAll(localeToLabel);
+        copy.localeToLabel = localeToLabel;
         return copy;
     }
 
@@ -414,7 +433,7 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     @Override
     public void declareUsage(ComplexTypeMetadata usage) {
-        usages.add(usage);
+        usages = usages.with(usage);
     }
 
     @Override
@@ -430,7 +449,9 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     @Override
     public void registerName(Locale locale, String label) {
-        localeToLabel.put(locale, label);
+        Map<Locale, String> labels = new HashMap<Locale, String>(localeToLabel);
+        labels.put(locale, label);
+        localeToLabel = labels;
     }
 
     public boolean hasField(String fieldName) {
@@ -475,6 +496,7 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
 
     public void registerSubType(ComplexTypeMetadata type) {
         subTypes.add(type);
+        compiledPaths = null; // Paths might resolve differently with a new sub type.
     }
 
     public TypeMetadata freeze() {
@@ -502,7 +524,9 @@ public class ComplexTypeMetadataImpl extends MetadataExtensions implements Compl
                     superType = superType.freeze();
                     if (superType instanceof ComplexTypeMetadata) {
                         ((ComplexTypeMetadata) superType).registerSubType(this);
-                        usages.addAll(((ComplexTypeMetadata) superType).getUsages());
+                        for (ComplexTypeMetadata usage : ((ComplexTypeMetadata) superType).getUsages()) {
+                            usages = usages.with(usage);
+                        }
                     }
                     superTypes.add(superType);
                 } else {
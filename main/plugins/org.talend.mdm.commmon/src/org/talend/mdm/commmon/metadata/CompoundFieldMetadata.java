@@ -181,7 +181,9 @@ public class CompoundFieldMetadata extends MetadataExtensions implements FieldMe
             return cachedHashCode;
         }
         int result = fields != null ? Arrays.hashCode(fields) : 0;
-        cachedHashCode = result;
+        if (isFrozen) {
+            cachedHashCode = result; // Field no longer changes once frozen.
+        }
         return result;
     }
 
@@ -25,6 +25,8 @@ public class ContainedComplexTypeMetadata implements ComplexTypeMetadata {
 
     private boolean hasFrozenUsages;
 
+    private int cachedHashCode;
+
     private ContainedComplexTypeMetadata(ComplexTypeMetadata containedType, FieldMetadata container) {
         this.containedType = containedType;
         this.container = container;
@@ -41,15 +43,28 @@ public class ContainedComplexTypeMetadata implements ComplexTypeMetadata {
     void finalizeUsage() {
         if (!hasFrozenUsages) {
             hasFrozenUsages = true;
-            containedType = (ComplexTypeMetadata) containedType.freeze().copy();
+            ComplexTypeMetadata frozenType = (ComplexTypeMetadata) containedType.freeze();
+            Collection<ComplexTypeMetadata> frozenSubTypes = frozenType.getSubTypes();
+            if (frozenType instanceof ComplexTypeMetadataImpl) {
+                // Sub types are copied below (with this usage's container): no need to copy them twice.
+                containedType = ((ComplexTypeMetadataImpl) frozenType).copyForUsage(false);
+            } else {
+                containedType = (ComplexTypeMetadata) frozenType.copy();
+                frozenSubTypes = containedType.getSubTypes();
+            }
             containedType.setContainer(container);
             setContainedTypeData(containedType);
             for (FieldMetadata field : containedType.getFields()) {
                 field.setContainingType(this);
             }
             List<ComplexTypeMetadata> subTypes = new LinkedList<ComplexTypeMetadata>();
-            for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
-                ComplexTypeMetadata subTypeCopy = (ComplexTypeMetadata) subType.copy();
+            for (ComplexTypeMetadata subType : frozenSubTypes) {
+                ComplexTypeMetadata subTypeCopy;
+                if (subType instanceof ComplexTypeMetadataImpl) {
+                    subTypeCopy = ((ComplexTypeMetadataImpl) subType).copyForUsage(true);
+                } else {
+                    subTypeCopy = (ComplexTypeMetadata) subType.copy();
+                }
                 ComplexTypeMetadata containedCopy = ContainedComplexTypeMetadata.contain(subTypeCopy, container);
                 for (FieldMetadata subTypeField : subTypeCopy.getFields()) {
                     subTypeField.setContainingType(containedCopy);
@@ -85,6 +100,7 @@ public class ContainedComplexTypeMetadata implements ComplexTypeMetadata {
     @Override
     public void setContainer(FieldMetadata field) {
         container = field;
+        cachedHashCode = 0;
     }
 
     @Override
@@ -297,10 +313,18 @@ public class ContainedComplexTypeMetadata implements ComplexTypeMetadata {
 
     @Override
     public int hashCode() {
+        if (cachedHashCode != 0) {
+            return cachedHashCode;
+        }
+        // Name of containing type (and not its hash code): hash code of a contained type would go up the whole
+        // containment chain. Equal containing types have equal names, so this stays consistent with equals().
         int result = containedType.getName().hashCode();
-        result = 31 * result + container.getContainingType().hashCode();
+        result = 31 * result + container.getContainingType().getName().hashCode();
         result = 31 * result + container.getName().hashCode();
         result = 31 * result + container.getEntityTypeName().hashCode();
+        if (hasFrozenUsages) {
+            cachedHashCode = result; // Names no longer change once usage is finalized.
+        }
         return result;
     }
 
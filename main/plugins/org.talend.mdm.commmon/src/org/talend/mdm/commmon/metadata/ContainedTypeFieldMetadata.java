@@ -34,7 +34,7 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
 
     private final boolean isMandatory;
 
-    private final Map<Locale, String> localeToLabel = new HashMap<Locale, String>();
+    private Map<Locale, String> localeToLabel = Collections.emptyMap();
 
     private TypeMetadata declaringType;
 
@@ -86,6 +86,7 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
 
     public void setContainingType(ComplexTypeMetadata typeMetadata) {
         this.containingType = typeMetadata;
+        cachedHashCode = 0; // Containing type may change after freeze (see ContainedComplexTypeMetadata).
     }
 
     public FieldMetadata freeze() {
@@ -134,7 +135,9 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
 
     @Override
     public void registerName(Locale locale, String name) {
-        localeToLabel.put(locale, name);
+        Map<Locale, String> labels = new HashMap<Locale, String>(localeToLabel);
+        labels.put(locale, name);
+        localeToLabel = labels;
     }
 
     @Override
@@ -146,6 +149,10 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
         return localizedName;
     }
 
+    Map<Locale, String> getLocalizedNames() {
+        return Collections.unmodifiableMap(localeToLabel);
+    }
+
     public TypeMetadata getDeclaringType() {
         return declaringType;
     }
@@ -165,10 +172,8 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
                 allowWriteUsers,
                 hideUsers,
                 workflowAccessRights);
-        copy.localeToLabel.putAll(localeToLabel);
-        if (dataMap != null) {
-            copy.dataMap = new HashMap<String, Object>(dataMap);
-        }
+        copy.localeToLabel = localeToLabel;
+        shareData(copy);
         copy.declaringType = this.declaringType;
         return copy;
     }
@@ -248,12 +253,14 @@ public class ContainedTypeFieldMetadata extends MetadataExtensions implements Fi
         result = 31 * result + (name != null ? name.hashCode() : 0);
         result = 31 * result + (allowWriteUsers != null ? allowWriteUsers.hashCode() : 0);
         result = 31 * result + (hideUsers != null ? hideUsers.hashCode() : 0);
-        result = 31 * result + (declaringType != null ? declaringType.hashCode() : 0);
-        result = 31 * result + (containingType != null ? containingType.hashCode() : 0);
-        result = 31 * result + (fieldType != null ? fieldType.hashCode() : 0);
+        result = 31 * result + (declaringType != null ? declaringType.getName().hashCode() : 0);
+        result = 31 * result + (containingType != null ? containingType.getName().hashCode() : 0);
+        result = 31 * result + (fieldType != null ? fieldType.getName().hashCode() : 0);
         result = 31 * result + (isMandatory ? 1 : 0);
         result = 31 * result + (workflowAccessRights != null ? workflowAccessRights.hashCode() : 0);
-        cachedHashCode = result;
+        if (isFrozen) {
+            cachedHashCode = result; // Field no longer changes once frozen.
+        }
         return result;
     }
 }
@@ -0,0 +1,28 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+/**
+ * A {@link MetadataLoadListener} that does nothing: extend this class to only implement some callbacks.
+ */
+public class DefaultMetadataLoadListener implements MetadataLoadListener {
+
+    @Override
+    public void phaseCompleted(MetadataRepository repository, Phase phase, LoadMetrics metrics) {
+        // Nothing to do.
+    }
+
+    @Override
+    public void typeValidated(TypeMetadata type, LoadMetrics metrics) {
+        // Nothing to do.
+    }
+}
@@ -14,6 +14,7 @@ package org.talend.mdm.commmon.metadata;
 import org.talend.mdm.commmon.metadata.validation.ValidationFactory;
 import org.talend.mdm.commmon.metadata.validation.ValidationRule;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -40,7 +41,7 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
 
     private final boolean isMandatory;
 
-    private final Map<Locale, String> localeToLabel = new HashMap<Locale, String>();
+    private Map<Locale, String> localeToLabel = Collections.emptyMap();
 
     private ComplexTypeMetadata containingType;
 
@@ -87,6 +88,7 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
 
     public void setContainingType(ComplexTypeMetadata typeMetadata) {
         this.containingType = typeMetadata;
+        cachedHashCode = 0; // Containing type may change after freeze (see ContainedComplexTypeMetadata).
     }
 
     public FieldMetadata freeze() {
@@ -129,7 +131,9 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
 
     @Override
     public void registerName(Locale locale, String name) {
-        localeToLabel.put(locale, name);
+        Map<Locale, String> labels = new HashMap<Locale, String>(localeToLabel);
+        labels.put(locale, name);
+        localeToLabel = labels;
     }
 
     @Override
@@ -141,6 +145,10 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
         return localizedName;
     }
 
+    Map<Locale, String> getLocalizedNames() {
+        return Collections.unmodifiableMap(localeToLabel);
+    }
+
     public TypeMetadata getDeclaringType() {
         return declaringType;
     }
@@ -160,10 +168,8 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
                 allowWriteUsers,
                 hideUsers,
                 workflowAccessRights);
-        copy.localeToLabel.putAll(localeToLabel);
-        if (dataMap != null) {
-            copy.dataMap = new HashMap<String, Object>(dataMap);
-        }
+        copy.localeToLabel = localeToLabel;
+        shareData(copy);
         return copy;
     }
 
@@ -240,13 +246,15 @@ public class EnumerationFieldMetadata extends MetadataExtensions implements Fiel
         result = 31 * result + (fieldType != null ? fieldType.hashCode() : 0);
         result = 31 * result + (allowWriteUsers != null ? allowWriteUsers.hashCode() : 0);
         result = 31 * result + (hideUsers != null ? hideUsers.hashCode() : 0);
-        result = 31 * result + (declaringType != null ? declaringType.hashCode() : 0);
+        result = 31 * result + (declaringType != null ? declaringType.getName().hashCode() : 0);
         result = 31 * result + (isMany ? 1 : 0);
         result = 31 * result + (isMandatory ? 1 : 0);
-        result = 31 * result + (containingType != null ? containingType.hashCode() : 0);
+        result = 31 * result + (containingType != null ? containingType.getName().hashCode() : 0);
         result = 31 * result + (name != null ? name.hashCode() : 0);
         result = 31 * result + (workflowAccessRights != null ? workflowAccessRights.hashCode() : 0);
-        cachedHashCode = result;
+        if (isFrozen) {
+            cachedHashCode = result; // Field no longer changes once frozen.
+        }
         return result;
     }
 }
@@ -0,0 +1,501 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.xml.XMLConstants;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * Compiled (immutable) form of the facets of a {@link SimpleTypeMetadata} and of all its base types: patterns are
+ * compiled, numeric bounds parsed and enumerations hashed once, so values can be checked without the XML schema.
+ * </p>
+ * <p>
+ * Validator only checks facets (length, minLength, maxLength, pattern, enumeration, min/max inclusive/exclusive,
+ * totalDigits and fractionDigits) after white space normalization. Lexical space of the XML schema primitive types
+ * is only checked through the facets the XML schema types declare (e.g. pattern of xsd:integer). Bounds of types
+ * derived from xsd:double or xsd:float are compared as floating point numbers (exponents, INF and -INF are accepted,
+ * NaN is outside of any bound), bounds of other types as decimal numbers.
+ * </p>
+ *
+ * @see SimpleTypeMetadata#validate(String)
+ */
+final class FacetValidator {
+
+    private static final Logger LOGGER = Logger.getLogger(FacetValidator.class);
+
+    static final String LENGTH = "length"; //$NON-NLS-1$
+
+    static final String MIN_LENGTH = "minLength"; //$NON-NLS-1$
+
+    static final String MAX_LENGTH = "maxLength"; //$NON-NLS-1$
+
+    static final String PATTERN = "pattern"; //$NON-NLS-1$
+
+    static final String ENUMERATION = "enumeration"; //$NON-NLS-1$
+
+    static final String WHITE_SPACE = "whiteSpace"; //$NON-NLS-1$
+
+    static final String MIN_INCLUSIVE = "minInclusive"; //$NON-NLS-1$
+
+    static final String MAX_INCLUSIVE = "maxInclusive"; //$NON-NLS-1$
+
+    static final String MIN_EXCLUSIVE = "minExclusive"; //$NON-NLS-1$
+
+    static final String MAX_EXCLUSIVE = "maxExclusive"; //$NON-NLS-1$
+
+    static final String TOTAL_DIGITS = "totalDigits"; //$NON-NLS-1$
+
+    static final String FRACTION_DIGITS = "fractionDigits"; //$NON-NLS-1$
+
+    private static final String REPLACE = "replace"; //$NON-NLS-1$
+
+    private static final String DOUBLE = "double"; //$NON-NLS-1$
+
+    private static final String FLOAT = "float"; //$NON-NLS-1$
+
+    private static final String INF = "INF"; //$NON-NLS-1$
+
+    private static final String NEGATIVE_INF = "-INF"; //$NON-NLS-1$
+
+    private static final String NAN = "NaN"; //$NON-NLS-1$
+
+    private static final Pattern FLOATING_POINT = Pattern.compile("[+-]?(\\d+(\\.\\d*)?|\\.\\d+)([eE][+-]?\\d+)?"); //$NON-NLS-1$
+
+    private static final String COLLAPSE = "collapse"; //$NON-NLS-1$
+
+    /**
+     * Validator for types without any facet (accepts all values).
+     */
+    static final FacetValidator EMPTY = new FacetValidator(null, new Check[0]);
+
+    // Most derived white space facet (null means "preserve").
+    private final String whiteSpace;
+
+    private final Check[] checks;
+
+    private FacetValidator(String whiteSpace, Check[] checks) {
+        this.whiteSpace = whiteSpace;
+        this.checks = checks;
+    }
+
+    /**
+     * @param type A simple type (base types are expected to be frozen).
+     * @return A validator for the facets of <code>type</code> and the facets of its base types.
+     */
+    static FacetValidator compile(SimpleTypeMetadata type) {
+        String primitiveType = getPrimitiveTypeName(type);
+        boolean isFloatingPoint = DOUBLE.equals(primitiveType) || FLOAT.equals(primitiveType);
+        String whiteSpace = null;
+        List<Check> checks = new ArrayList<Check>();
+        Map<SimpleTypeMetadata, Boolean> visitedTypes = new IdentityHashMap<SimpleTypeMetadata, Boolean>();
+        List<SimpleTypeMetadata> types = new LinkedList<SimpleTypeMetadata>();
+        types.add(type);
+        while (!types.isEmpty()) {
+            SimpleTypeMetadata current = types.remove(0);
+            if (visitedTypes.put(current, Boolean.TRUE) != null) {
+                continue; // Invalid (cyclic) inheritance is reported by validation.
+            }
+            String currentWhiteSpace = compile(current, checks, isFloatingPoint);
+            if (whiteSpace == null) {
+                whiteSpace = currentWhiteSpace; // Derived types can only make white space processing stricter.
+            }
+            for (TypeMetadata superType : current.getSuperTypes()) {
+                if (superType instanceof SimpleTypeMetadata) {
+                    types.add((SimpleTypeMetadata) superType);
+                }
+            }
+        }
+        if (whiteSpace == null && checks.isEmpty()) {
+            return EMPTY;
+        }
+        return new FacetValidator(whiteSpace, checks.toArray(new Check[checks.size()]));
+    }
+
+    // Returns name of the XML schema type type derives from (null if none).
+    private static String getPrimitiveTypeName(SimpleTypeMetadata type) {
+        Map<TypeMetadata, Boolean> visitedTypes = new IdentityHashMap<TypeMetadata, Boolean>();
+        List<TypeMetadata> types = new LinkedList<TypeMetadata>();
+        types.add(type);
+        while (!types.isEmpty()) {
+            TypeMetadata current = types.remove(0);
+            if (visitedTypes.put(current, Boolean.TRUE) != null) {
+                continue;
+            }
+            if (XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(current.getNamespace())
+                    && (DOUBLE.equals(current.getName()) || FLOAT.equals(current.getName()))) {
+                return current.getName();
+            }
+            types.addAll(current.getSuperTypes());
+        }
+        return null;
+    }
+
+    // Adds checks for the facets declared by type and returns its white space facet (if any).
+    private static String compile(SimpleTypeMetadata type, List<Check> checks, boolean isFloatingPoint) {
+        String whiteSpace = null;
+        List<Pattern> patterns = new ArrayList<Pattern>();
+        Set<String> enumeration = new HashSet<String>();
+        for (String[] facet : type.getFacets()) {
+            String name = facet[0];
+            String value = facet[1];
+            try {
+                if (WHITE_SPACE.equals(name)) {
+                    whiteSpace = value.trim();
+                } else if (PATTERN.equals(name)) {
+                    patterns.add(Pattern.compile(toJavaPattern(value)));
+                } else if (ENUMERATION.equals(name)) {
+                    enumeration.add(value);
+                } else if (LENGTH.equals(name)) {
+                    checks.add(new LengthCheck(Integer.parseInt(value.trim()), Integer.parseInt(value.trim())));
+                } else if (MIN_LENGTH.equals(name)) {
+                    checks.add(new LengthCheck(Integer.parseInt(value.trim()), Integer.MAX_VALUE));
+                } else if (MAX_LENGTH.equals(name)) {
+                    checks.add(new LengthCheck(0, Integer.parseInt(value.trim())));
+                } else if (MIN_INCLUSIVE.equals(name)) {
+                    checks.add(createBoundCheck(value, isFloatingPoint, true, true));
+                } else if (MAX_INCLUSIVE.equals(name)) {
+                    checks.add(createBoundCheck(value, isFloatingPoint, false, true));
+                } else if (MIN_EXCLUSIVE.equals(name)) {
+                    checks.add(createBoundCheck(value, isFloatingPoint, true, false));
+                } else if (MAX_EXCLUSIVE.equals(name)) {
+                    checks.add(createBoundCheck(value, isFloatingPoint, false, false));
+                } else if (TOTAL_DIGITS.equals(name)) {
+                    checks.add(new DigitsCheck(Integer.parseInt(value.trim()), Integer.MAX_VALUE));
+                } else if (FRACTION_DIGITS.equals(name)) {
+                    checks.add(new DigitsCheck(Integer.MAX_VALUE, Integer.parseInt(value.trim())));
+                } else if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Ignore unknown facet '" + name + "' on type '" + type.getName() + "'.");
+                }
+            } catch (NumberFormatException e) {
+                // Non numeric bounds (e.g. dates): facet is not checked.
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Ignore facet '" + name + "' on type '" + type.getName() + "' (value: '" + value + "').");
+                }
+            } catch (PatternSyntaxException e) {
+                LOGGER.warn("Ignore pattern '" + value + "' on type '" + type.getName() + "' (not supported).");
+            }
+        }
+        // Patterns declared in the same restriction are alternatives, enumeration values too.
+        if (!patterns.isEmpty()) {
+            checks.add(new PatternCheck(patterns.toArray(new Pattern[patterns.size()])));
+        }
+        if (!enumeration.isEmpty()) {
+            checks.add(new EnumerationCheck(enumeration));
+        }
+        return whiteSpace;
+    }
+
+    /**
+     * @param value A value (not normalized).
+     * @return <code>true</code> if value satisfies all facets.
+     */
+    boolean validate(String value) {
+        String normalizedValue = normalize(value);
+        for (Check check : checks) {
+            if (!check.check(normalizedValue)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String normalize(String value) {
+        boolean isCollapse = COLLAPSE.equals(whiteSpace);
+        if (!isCollapse && !REPLACE.equals(whiteSpace)) {
+            return value; // "preserve"
+        }
+        if (!needsNormalization(value, isCollapse)) {
+            return value;
+        }
+        StringBuilder builder = new StringBuilder(value.length());
+        boolean hasPendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isWhiteSpace(c)) {
+                if (isCollapse) {
+                    hasPendingSpace = builder.length() > 0; // Leading spaces are removed.
+                } else {
+                    builder.append(' ');
+                }
+            } else {
+                if (hasPendingSpace) {
+                    builder.append(' ');
+                    hasPendingSpace = false;
+                }
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static boolean needsNormalization(String value, boolean isCollapse) {
+        int length = value.length();
+        if (isCollapse && length > 0 && (value.charAt(0) == ' ' || value.charAt(length - 1) == ' ')) {
+            return true;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '\t' || c == '\n' || c == '\r' || (isCollapse && c == ' ' && i > 0 && value.charAt(i - 1) == ' ')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isWhiteSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r';
+    }
+
+    // Translates the XML schema regular expression constructs java.util.regex does not support (anchoring is done by
+    // Matcher#matches()).
+    static String toJavaPattern(String pattern) {
+        StringBuilder builder = new StringBuilder(pattern.length() + 16);
+        int classDepth = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\' && i + 1 < pattern.length()) {
+                char escaped = pattern.charAt(++i);
+                switch (escaped) {
+                case 'i':
+                    builder.append(classDepth > 0 ? "_:\\p{L}" : "[_:\\p{L}]"); //$NON-NLS-1$ //$NON-NLS-2$
+                    break;
+                case 'I':
+                    builder.append("[^_:\\p{L}]"); //$NON-NLS-1$
+                    break;
+                case 'c':
+                    builder.append(classDepth > 0 ? "\\-._:\\p{L}\\p{N}\\p{M}" : "[\\-._:\\p{L}\\p{N}\\p{M}]"); //$NON-NLS-1$ //$NON-NLS-2$
+                    break;
+                case 'C':
+                    builder.append("[^\\-._:\\p{L}\\p{N}\\p{M}]"); //$NON-NLS-1$
+                    break;
+                case 'p':
+                case 'P':
+                    builder.append('\\').append(escaped);
+                    if (pattern.startsWith("{Is", i + 1)) { //$NON-NLS-1$
+                        builder.append("{In"); // Unicode blocks //$NON-NLS-1$
+                        i += 3;
+                    }
+                    break;
+                default:
+                    builder.append('\\').append(escaped);
+                }
+            } else if (c == '[') {
+                classDepth++;
+                builder.append(c);
+            } else if (c == '-' && classDepth > 0 && i + 1 < pattern.length() && pattern.charAt(i + 1) == '[') {
+                // Character class subtraction: [a-z-[aeiou]] is [a-z&&[^aeiou]], [a-z-[^aeiou]] is [a-z&&[aeiou]]
+                if (i + 2 < pattern.length() && pattern.charAt(i + 2) == '^') {
+                    builder.append("&&["); //$NON-NLS-1$
+                    i += 2;
+                } else {
+                    builder.append("&&[^"); //$NON-NLS-1$
+                    i++;
+                }
+                classDepth++;
+            } else if (c == ']') {
+                classDepth = Math.max(0, classDepth - 1);
+                builder.append(c);
+            } else if ((c == '^' && !(classDepth > 0 && pattern.charAt(i - 1) == '[')) || c == '$') {
+                builder.append('\\').append(c); // Not anchors in XML schema.
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Check createBoundCheck(String value, boolean isFloatingPoint, boolean isMin, boolean isInclusive) {
+        if (isFloatingPoint) {
+            Double bound = parseFloatingPoint(value.trim());
+            if (bound == null) {
+                throw new NumberFormatException(value);
+            }
+            return new FloatingPointBoundCheck(bound, isMin, isInclusive);
+        }
+        return new BoundCheck(new BigDecimal(value.trim()), isMin, isInclusive);
+    }
+
+    private static interface Check {
+
+        boolean check(String value);
+    }
+
+    private static class LengthCheck implements Check {
+
+        private final int minLength;
+
+        private final int maxLength;
+
+        LengthCheck(int minLength, int maxLength) {
+            this.minLength = minLength;
+            this.maxLength = maxLength;
+        }
+
+        @Override
+        public boolean check(String value) {
+            int length = value.codePointCount(0, value.length());
+            return length >= minLength && length <= maxLength;
+        }
+    }
+
+    private static class PatternCheck implements Check {
+
+        private final Pattern[] patterns;
+
+        PatternCheck(Pattern[] patterns) {
+            this.patterns = patterns;
+        }
+
+        @Override
+        public boolean check(String value) {
+            for (Pattern pattern : patterns) {
+                if (pattern.matcher(value).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class EnumerationCheck implements Check {
+
+        private final Set<String> values;
+
+        EnumerationCheck(Set<String> values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean check(String value) {
+            return values.contains(value);
+        }
+    }
+
+    private static class BoundCheck implements Check {
+
+        private final BigDecimal bound;
+
+        private final boolean isMin;
+
+        private final boolean isInclusive;
+
+        BoundCheck(BigDecimal bound, boolean isMin, boolean isInclusive) {
+            this.bound = bound;
+            this.isMin = isMin;
+            this.isInclusive = isInclusive;
+        }
+
+        @Override
+        public boolean check(String value) {
+            BigDecimal number = parse(value);
+            if (number == null) {
+                return false;
+            }
+            int comparison = isMin ? number.compareTo(bound) : bound.compareTo(number);
+            return comparison > 0 || (isInclusive && comparison == 0);
+        }
+    }
+
+    // Bounds of xsd:double and xsd:float (and derived types): values may have an exponent or be INF, -INF or NaN.
+    private static class FloatingPointBoundCheck implements Check {
+
+        private final double bound;
+
+        private final boolean isMin;
+
+        private final boolean isInclusive;
+
+        FloatingPointBoundCheck(double bound, boolean isMin, boolean isInclusive) {
+            this.bound = bound;
+            this.isMin = isMin;
+            this.isInclusive = isInclusive;
+        }
+
+        @Override
+        public boolean check(String value) {
+            Double number = parseFloatingPoint(value);
+            if (number == null || number.isNaN()) {
+                return false; // NaN is not comparable with any bound.
+            }
+            double n = number;
+            if (isMin) {
+                return n > bound || (isInclusive && n == bound);
+            } else {
+                return n < bound || (isInclusive && n == bound);
+            }
+        }
+    }
+
+    private static class DigitsCheck implements Check {
+
+        private final int totalDigits;
+
+        private final int fractionDigits;
+
+        DigitsCheck(int totalDigits, int fractionDigits) {
+            this.totalDigits = totalDigits;
+            this.fractionDigits = fractionDigits;
+        }
+
+        @Override
+        public boolean check(String value) {
+            BigDecimal number = parse(value);
+            if (number == null) {
+                return false;
+            }
+            // Trailing zeros of the fraction part are not significant (but zeros of the integer part are).
+            number = number.stripTrailingZeros();
+            if (number.scale() < 0) {
+                number = number.setScale(0);
+            }
+            return number.precision() <= totalDigits && number.scale() <= fractionDigits;
+        }
+    }
+
+    // Parses a value of the xsd:double (or xsd:float) lexical space.
+    private static Double parseFloatingPoint(String value) {
+        if (INF.equals(value)) {
+            return Double.POSITIVE_INFINITY;
+        } else if (NEGATIVE_INF.equals(value)) {
+            return Double.NEGATIVE_INFINITY;
+        } else if (NAN.equals(value)) {
+            return Double.NaN;
+        } else if (!FLOATING_POINT.matcher(value).matches()) {
+            return null; // Double#parseDouble() also accepts "Infinity", hexadecimal numbers, "1d"...
+        }
+        return Double.valueOf(value);
+    }
+
+    private static BigDecimal parse(String value) {
+        if (value.isEmpty() || value.indexOf('e') >= 0 || value.indexOf('E') >= 0) {
+            return null; // No exponent in decimal lexical space.
+        }
+        try {
+            return new BigDecimal(value.charAt(0) == '+' ? value.substring(1) : value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A "compiled" field path (e.g. <code>Employee/Address[@xsi:type="CNAddressType"]/Province</code>): path is parsed
+ * once and resolved into a list of steps. Each step is the {@link FieldMetadata} of a path element and the type the
+ * element was cast to (with a <code>xsi:type</code>) if any.
+ * </p>
+ * <p>
+ * Instances are immutable. {@link ComplexTypeMetadataImpl#getField(String)} keeps the compiled paths of frozen types
+ * so the same path is not parsed more than once.
+ * </p>
+ */
+public final class FieldPath {
+
+    private static final Logger LOGGER = Logger.getLogger(FieldPath.class);
+
+    private final String path;
+
+    private final FieldMetadata[] fields;
+
+    private final ComplexTypeMetadata[] castTypes;
+
+    // false if path resolution depends on type information that may change (e.g. a sub type not yet registered).
+    private final boolean isStable;
+
+    private FieldPath(String path, FieldMetadata[] fields, ComplexTypeMetadata[] castTypes, boolean isStable) {
+        this.path = path;
+        this.fields = fields;
+        this.castTypes = castTypes;
+        this.isStable = isStable;
+    }
+
+    /**
+     * Compiles <code>path</code> starting from <code>type</code>.
+     *
+     * @param type The type where path starts.
+     * @param path A '/' separated path, each path element might include a <code>[@xsi:type=...]</code> cast.
+     * @return The compiled path.
+     * @throws IllegalArgumentException If one element of the path can not be found.
+     */
+    public static FieldPath compile(ComplexTypeMetadata type, String path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Field name can not be null nor empty.");
+        }
+        StringTokenizer tokenizer = new StringTokenizer(path, "/"); //$NON-NLS-1$
+        List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+        List<ComplexTypeMetadata> castTypes = new ArrayList<ComplexTypeMetadata>();
+        boolean isStable = true;
+        // think about reusable type, e.g: Employee/Address[@xsi:type="CNAddressType"]/Province
+        ComplexTypeMetadata currentType = type;
+        FieldMetadata currentField = null;
+        while (tokenizer.hasMoreTokens()) {
+            String nextToken = tokenizer.nextToken();
+            String currentFieldName = StringUtils.substringBefore(nextToken, "["); //$NON-NLS-1$
+            ComplexTypeMetadata castType = null;
+            // Handle xsi:type in XPath query
+            if (nextToken.contains("xsi:type")) { //$NON-NLS-1$
+                String reusableTypeName = StringUtils.substringAfter(nextToken, "@xsi:type").replace('=', ' ').replace(']', ' ').trim(); //$NON-NLS-1$
+                if (reusableTypeName.isEmpty()) {
+                    throw new IllegalArgumentException("Reusable type could not be null for fieldName '" + path + "'"); //$NON-NLS-1$ //$NON-NLS-2$
+                }
+                if (!currentType.getName().equals(reusableTypeName)) { // Look real type in sub types
+                    boolean foundRealType = false;
+                    for (TypeMetadata subType : currentType.getSubTypes()) {
+                        if (subType instanceof ComplexTypeMetadata && subType.getName().equals(reusableTypeName)) {
+                            currentType = (ComplexTypeMetadata) subType;
+                            castType = currentType;
+                            foundRealType = true;
+                            break;
+                        }
+                    }
+                    // xsi:type not found, assume type is default field type.
+                    if (!foundRealType) {
+                        LOGGER.error("Type '" + reusableTypeName + "' does not exist. Assuming '" + currentType.getName()
+                                + "' has field type.");
+                        isStable = false;
+                    }
+                } else {
+                    castType = currentType;
+                }
+            }
+            // Find field in current type (or sub types, since query might refer to a field not declared in type)
+            if (!currentType.hasField(currentFieldName)) {
+                boolean foundInSubTypes = false;
+                for (ComplexTypeMetadata subType : currentType.getSubTypes()) {
+                    if (subType.hasField(currentFieldName)) {
+                        currentField = subType.getField(currentFieldName);
+                        foundInSubTypes = true;
+                        break;
+                    }
+                }
+                if (!foundInSubTypes) {
+                    throw new IllegalArgumentException("Type '" + type.getName() + "' does not own field '" + path
+                            + "' (could not find '" + currentFieldName + "').");
+                }
+            } else {
+                currentField = currentType.getField(currentFieldName);
+            }
+            fields.add(currentField);
+            castTypes.add(castType);
+            // Move to the next type (if any element to process).
+            if (tokenizer.hasMoreTokens()) {
+                currentType = (ComplexTypeMetadata) currentField.getType();
+            }
+        }
+        return new FieldPath(path,
+                fields.toArray(new FieldMetadata[fields.size()]),
+                castTypes.toArray(new ComplexTypeMetadata[castTypes.size()]),
+                isStable);
+    }
+
+    /**
+     * @return The path this instance was compiled from.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * @return Number of steps (elements) in path.
+     */
+    public int size() {
+        return fields.length;
+    }
+
+    /**
+     * @param step A step index (0 for first element of path).
+     * @return The field for the path element at <code>step</code>.
+     */
+    public FieldMetadata getField(int step) {
+        return fields[step];
+    }
+
+    /**
+     * @param step A step index (0 for first element of path).
+     * @return The type path element was cast to (with <code>xsi:type</code>) or <code>null</code> if there's no cast
+     * for this element.
+     */
+    public ComplexTypeMetadata getCastType(int step) {
+        return castTypes[step];
+    }
+
+    /**
+     * @return The field at the end of path (or <code>null</code> if path has no element, e.g. "/").
+     */
+    public FieldMetadata getField() {
+        return fields.length == 0 ? null : fields[fields.length - 1];
+    }
+
+    boolean isStable() {
+        return isStable;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldPath{" + path + '}'; //$NON-NLS-1$
+    }
+}
@@ -68,6 +68,11 @@ public class InboundReferences extends DefaultMetadataVisitor<Set<ReferenceField
 
     @Override
     public Set<ReferenceFieldMetadata> visit(MetadataRepository repository) {
+        ReferenceIndex index = repository.getReferenceIndex();
+        if (index != null) {
+            fieldToCheck.addAll(index.getInboundReferences(type));
+            return fieldToCheck;
+        }
         Collection<TypeMetadata> types = repository.getTypes();
         for (TypeMetadata type : types) {
             type.accept(this);
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>
+ * Metrics for a step of a data model load (see {@link MetadataLoadListener}): wall time, bytes allocated by the thread
+ * that executed the step, number of types and fields.
+ * </p>
+ * <p>
+ * Allocated bytes rely on HotSpot thread allocation counters: {@link #getAllocatedBytes()} returns -1 on JVMs that do
+ * not support them.
+ * </p>
+ */
+public final class LoadMetrics {
+
+    private static final boolean IS_ALLOCATION_SUPPORTED = isAllocationSupported();
+
+    private final long startTime;
+
+    private final long startAllocatedBytes;
+
+    private long wallTime;
+
+    private long allocatedBytes = -1;
+
+    private int typeCount;
+
+    private int fieldCount;
+
+    private LoadMetrics() {
+        startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * @return A new {@link LoadMetrics} that measures from now until {@link #stop()} is called (by the same thread).
+     */
+    static LoadMetrics start() {
+        return new LoadMetrics();
+    }
+
+    LoadMetrics stop() {
+        wallTime = System.nanoTime() - startTime;
+        if (startAllocatedBytes >= 0) {
+            allocatedBytes = getCurrentThreadAllocatedBytes() - startAllocatedBytes;
+        }
+        return this;
+    }
+
+    // Counts are set after stop() so counting isn't part of the measure.
+    LoadMetrics setCounts(int typeCount, int fieldCount) {
+        this.typeCount = typeCount;
+        this.fieldCount = fieldCount;
+        return this;
+    }
+
+    /**
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    /**
+     * @param unit A time unit.
+     * @return Elapsed time in <code>unit</code>.
+     */
+    public long getWallTime(TimeUnit unit) {
+        return unit.convert(wallTime, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return Bytes allocated by the thread during the step or -1 if JVM can not measure thread allocations.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return Number of types (entity and reusable types).
+     */
+    public int getTypeCount() {
+        return typeCount;
+    }
+
+    /**
+     * @return Number of fields declared in types.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadMetrics{" + //$NON-NLS-1$
+                "wallTime=" + TimeUnit.NANOSECONDS.toMillis(wallTime) + "ms" + //$NON-NLS-1$ //$NON-NLS-2$
+                ", allocatedBytes=" + allocatedBytes + //$NON-NLS-1$
+                ", types=" + typeCount + //$NON-NLS-1$
+                ", fields=" + fieldCount + //$NON-NLS-1$
+                '}';
+    }
+
+    private static long getCurrentThreadAllocatedBytes() {
+        if (!IS_ALLOCATION_SUPPORTED) {
+            return -1;
+        }
+        return ThreadAllocation.getAllocatedBytes();
+    }
+
+    private static boolean isAllocationSupported() {
+        try {
+            return ThreadAllocation.isSupported();
+        } catch (LinkageError e) {
+            return false; // Not a HotSpot JVM (com.sun.management not available).
+        }
+    }
+
+    // Only loaded if com.sun.management classes are available.
+    private static class ThreadAllocation {
+
+        private static final com.sun.management.ThreadMXBean THREAD_BEAN;
+
+        static {
+            java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+            if (threadBean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()
+                    && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemoryEnabled()) {
+                THREAD_BEAN = (com.sun.management.ThreadMXBean) threadBean;
+            } else {
+                THREAD_BEAN = null;
+            }
+        }
+
+        private static boolean isSupported() {
+            return THREAD_BEAN != null;
+        }
+
+        private static long getAllocatedBytes() {
+            return THREAD_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
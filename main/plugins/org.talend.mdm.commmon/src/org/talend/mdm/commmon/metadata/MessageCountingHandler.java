@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.w3c.dom.Element;
+
+/**
+ * A {@link ValidationHandler} that forwards all messages to another handler and counts them (fatal errors, errors and
+ * warnings).
+ *
+ * @see MetadataRepository#setTrustedModelStore(TrustedModelStore)
+ */
+class MessageCountingHandler implements ValidationHandler {
+
+    private final ValidationHandler delegate;
+
+    private final AtomicInteger messageCount = new AtomicInteger();
+
+    MessageCountingHandler(ValidationHandler delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate handler can not be null.");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return Number of messages (of any severity) received so far.
+     */
+    int getMessageCount() {
+        return messageCount.get();
+    }
+
+    @Override
+    public void fatal(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.fatal(field, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void error(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.error(field, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void warning(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.warning(field, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void fatal(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.fatal(type, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void error(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.error(type, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void warning(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        messageCount.incrementAndGet();
+        delegate.warning(type, message, element, lineNumber, columnNumber, error);
+    }
+
+    @Override
+    public void end() {
+        delegate.end();
+    }
+
+    @Override
+    public int getErrorCount() {
+        return delegate.getErrorCount();
+    }
+}
@@ -11,35 +11,201 @@
 
 package org.talend.mdm.commmon.metadata;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
+/**
+ * <p>
+ * Data storage for {@link MetadataExtensible} metadata elements. Data is kept in an immutable instance
+ * replaced (compare and set) on each {@link #setData(String, Object)}: reads never lock and always see a consistent
+ * state, even while another thread sets data.
+ * </p>
+ * <p>
+ * Keys set on almost all elements ({@link MetadataRepository#XSD_LINE_NUMBER},
+ * {@link MetadataRepository#XSD_COLUMN_NUMBER}, {@link MetadataRepository#DATA_MAX_LENGTH} and
+ * {@link MetadataRepository#VALIDATION_MARKER}) have a dedicated slot, other keys are stored in a small open
+ * addressing table.
+ * </p>
+ * <p>
+ * Data is no longer kept in a <code>protected Map&lt;String, Object&gt; dataMap</code> field: sub classes that read this
+ * field must use {@link #getDataMap()} (read only) and {@link #setData(String, Object)} instead.
+ * </p>
+ */
 public class MetadataExtensions implements MetadataExtensible {
 
-    protected Map<String, Object> dataMap;
+    private static final AtomicReferenceFieldUpdater<MetadataExtensions, Data> DATA_UPDATER = AtomicReferenceFieldUpdater
+            .newUpdater(MetadataExtensions.class, Data.class, "data"); //$NON-NLS-1$
 
-    public synchronized void setData(String key, Object data) {
-        if (dataMap == null) {
-            dataMap = new HashMap<String, Object>() {
-                private static final int THRESHOLD = 10;
+    private static final Data EMPTY = new Data();
 
-                @Override
-                public Object put(String s, Object o) {
-                    if (size() > THRESHOLD) {
-                        throw new IllegalStateException("Map is not aimed to contain more than " + THRESHOLD + " elements.");
-                    }
-                    return super.put(s, o);
-                }
-            };
+    private volatile Data data = EMPTY;
+
+    public void setData(String key, Object value) {
+        if (key == null) {
+            throw new IllegalArgumentException("Key cannot be null.");
+        }
+        while (true) {
+            Data current = data;
+            if (DATA_UPDATER.compareAndSet(this, current, current.with(key, value))) {
+                return;
+            }
         }
-        dataMap.put(key, data);
     }
 
     public <X> X getData(String key) {
-        if (dataMap == null) {
+        return (X) data.get(key);
+    }
+
+    /**
+     * @return A read only snapshot of the data of this element (changes made after this call are not visible).
+     * @deprecated Replaces the former <code>dataMap</code> field, use {@link #getData(String)}.
+     */
+    @Deprecated
+    protected Map<String, Object> getDataMap() {
+        return Collections.unmodifiableMap(data.toMap());
+    }
+
+    /**
+     * Makes <code>copy</code> use the same data as this instance. Data is immutable, so both instances share it until
+     * one of them calls {@link #setData(String, Object)}: copies of reusable types (one per usage) don't need their
+     * own data unless they get usage specific data.
+     *
+     * @param copy A copy of this instance.
+     */
+    protected void shareData(MetadataExtensions copy) {
+        copy.data = data;
+    }
+
+    private static final class Data {
+
+        // Smallest table for other keys (always a power of 2).
+        private static final int INITIAL_CAPACITY = 4;
+
+        private Object lineNumber;
+
+        private Object columnNumber;
+
+        private Object maxLength;
+
+        private Object validated;
+
+        // Other keys (null if none), table is never more than half full so probing always finds a null key.
+        private String[] keys;
+
+        private Object[] values;
+
+        private int size;
+
+        Object get(String key) {
+            // Fast path for callers that use the MetadataRepository constants (compile time constants are always the
+            // same String instance), equals() below handles any other String instance with same value.
+            if (key == MetadataRepository.XSD_LINE_NUMBER) {
+                return lineNumber;
+            } else if (key == MetadataRepository.XSD_COLUMN_NUMBER) {
+                return columnNumber;
+            } else if (key == MetadataRepository.DATA_MAX_LENGTH) {
+                return maxLength;
+            } else if (key == MetadataRepository.VALIDATION_MARKER) {
+                return validated;
+            }
+            if (keys != null) {
+                int index = indexOf(keys, key);
+                if (keys[index] != null) {
+                    return values[index];
+                }
+            }
+            if (key.equals(MetadataRepository.XSD_LINE_NUMBER)) {
+                return lineNumber;
+            } else if (key.equals(MetadataRepository.XSD_COLUMN_NUMBER)) {
+                return columnNumber;
+            } else if (key.equals(MetadataRepository.DATA_MAX_LENGTH)) {
+                return maxLength;
+            } else if (key.equals(MetadataRepository.VALIDATION_MARKER)) {
+                return validated;
+            }
             return null;
         }
-        return (X) dataMap.get(key);
-    }
 
+        Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<String, Object>();
+            putIfSet(map, MetadataRepository.XSD_LINE_NUMBER, lineNumber);
+            putIfSet(map, MetadataRepository.XSD_COLUMN_NUMBER, columnNumber);
+            putIfSet(map, MetadataRepository.DATA_MAX_LENGTH, maxLength);
+            putIfSet(map, MetadataRepository.VALIDATION_MARKER, validated);
+            if (keys != null) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != null) {
+                        map.put(keys[i], values[i]);
+                    }
+                }
+            }
+            return map;
+        }
+
+        private static void putIfSet(Map<String, Object> map, String key, Object value) {
+            if (value != null) {
+                map.put(key, value);
+            }
+        }
+
+        // Returns a copy of this instance with value for key.
+        Data with(String key, Object value) {
+            Data copy = new Data();
+            copy.lineNumber = lineNumber;
+            copy.columnNumber = columnNumber;
+            copy.maxLength = maxLength;
+            copy.validated = validated;
+            if (key.equals(MetadataRepository.XSD_LINE_NUMBER)) {
+                copy.lineNumber = value;
+            } else if (key.equals(MetadataRepository.XSD_COLUMN_NUMBER)) {
+                copy.columnNumber = value;
+            } else if (key.equals(MetadataRepository.DATA_MAX_LENGTH)) {
+                copy.maxLength = value;
+            } else if (key.equals(MetadataRepository.VALIDATION_MARKER)) {
+                copy.validated = value;
+            } else {
+                copy.put(keys, values, size, key, value);
+                return copy;
+            }
+            copy.keys = keys; // Tables are never modified once built.
+            copy.values = values;
+            copy.size = size;
+            return copy;
+        }
+
+        private void put(String[] previousKeys, Object[] previousValues, int previousSize, String key, Object value) {
+            int previousCapacity = previousKeys == null ? 0 : previousKeys.length;
+            int capacity = Math.max(INITIAL_CAPACITY, previousCapacity);
+            if ((previousSize + 1) * 2 > capacity) {
+                capacity *= 2;
+            }
+            keys = new String[capacity];
+            values = new Object[capacity];
+            size = 0;
+            for (int i = 0; i < previousCapacity; i++) {
+                if (previousKeys[i] != null && !previousKeys[i].equals(key)) {
+                    int index = indexOf(keys, previousKeys[i]);
+                    keys[index] = previousKeys[i];
+                    values[index] = previousValues[i];
+                    size++;
+                }
+            }
+            int index = indexOf(keys, key);
+            keys[index] = key;
+            values[index] = value;
+            size++;
+        }
+
+        // Returns index of key in table or index of the null slot where key should be inserted.
+        private static int indexOf(String[] keys, String key) {
+            int mask = keys.length - 1;
+            int index = key.hashCode() & mask;
+            while (keys[index] != null && !keys[index].equals(key)) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+    }
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * 64 bits structural fingerprints of the complex types of a frozen {@link MetadataRepository} and of the repository
+ * itself. Fingerprint of a type covers its fields (recursively in contained types), field types, cardinality, keys,
+ * foreign key targets, field access rights and usage count of the reusable types it contains.
+ * </p>
+ * <p>
+ * Fingerprints only depend on data model content (not on object identities nor on load order): two repositories loaded
+ * from equivalent data models have the same fingerprints, so a different fingerprint means a type (or repository)
+ * changed and the repository fingerprint can be used as a cache key for the data model.
+ * </p>
+ *
+ * @see MetadataRepository#getFingerprints()
+ */
+public final class MetadataFingerprints {
+
+    private static final Comparator<ComplexTypeMetadata> NAME_COMPARATOR = new Comparator<ComplexTypeMetadata>() {
+
+        @Override
+        public int compare(ComplexTypeMetadata type1, ComplexTypeMetadata type2) {
+            return type1.getName().compareTo(type2.getName());
+        }
+    };
+
+    private final long fingerprint;
+
+    // Identity map: equals() of types only compares names.
+    private final Map<ComplexTypeMetadata, Long> typeFingerprints;
+
+    private MetadataFingerprints(long fingerprint, Map<ComplexTypeMetadata, Long> typeFingerprints) {
+        this.fingerprint = fingerprint;
+        this.typeFingerprints = typeFingerprints;
+    }
+
+    /**
+     * @param entityTypes User entity types (all types are expected to be frozen).
+     * @param reusableTypes User reusable types (all types are expected to be frozen).
+     * @return Fingerprints of the types and of the repository.
+     */
+    static MetadataFingerprints build(List<ComplexTypeMetadata> entityTypes, List<ComplexTypeMetadata> reusableTypes) {
+        Map<ComplexTypeMetadata, Long> typeFingerprints = new IdentityHashMap<ComplexTypeMetadata, Long>();
+        for (ComplexTypeMetadata type : entityTypes) {
+            typeFingerprints.put(type, fingerprint(type));
+        }
+        for (ComplexTypeMetadata type : reusableTypes) {
+            typeFingerprints.put(type, fingerprint(type));
+        }
+        Fingerprint repositoryFingerprint = new Fingerprint();
+        add(repositoryFingerprint, entityTypes, typeFingerprints);
+        add(repositoryFingerprint, reusableTypes, typeFingerprints);
+        return new MetadataFingerprints(repositoryFingerprint.value, typeFingerprints);
+    }
+
+    /**
+     * @return The fingerprint of the repository (all user entity and reusable types).
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @param type A complex type.
+     * @return The fingerprint of the type: cached value for user types of the repository, computed value for other
+     * types.
+     * @see #fingerprint(ComplexTypeMetadata)
+     */
+    public long getFingerprint(ComplexTypeMetadata type) {
+        Long typeFingerprint = typeFingerprints.get(type);
+        return typeFingerprint == null ? fingerprint(type) : typeFingerprint;
+    }
+
+    /**
+     * Computes the fingerprint of a type (no caching, prefer {@link #getFingerprint(ComplexTypeMetadata)} for types of
+     * a frozen repository).
+     *
+     * @param type A complex type.
+     * @return The fingerprint of the type.
+     */
+    public static long fingerprint(ComplexTypeMetadata type) {
+        Fingerprint typeFingerprint = new Fingerprint();
+        add(typeFingerprint, type, new IdentityHashMap<ComplexTypeMetadata, Boolean>());
+        return typeFingerprint.value;
+    }
+
+    private static void add(Fingerprint fingerprint, List<ComplexTypeMetadata> types,
+            Map<ComplexTypeMetadata, Long> typeFingerprints) {
+        // Repository type lists are in hash map order: sort types so fingerprint does not depend on load order.
+        List<ComplexTypeMetadata> sortedTypes = new ArrayList<ComplexTypeMetadata>(types);
+        Collections.sort(sortedTypes, NAME_COMPARATOR);
+        fingerprint.add(sortedTypes.size());
+        for (ComplexTypeMetadata type : sortedTypes) {
+            fingerprint.add(type.getName());
+            fingerprint.add(typeFingerprints.get(type));
+        }
+    }
+
+    private static void add(Fingerprint fingerprint, ComplexTypeMetadata type, Map<ComplexTypeMetadata, Boolean> visiting) {
+        fingerprint.add(type.getName());
+        fingerprint.add(type.getNamespace());
+        fingerprint.add(type.isInstantiable());
+        Collection<TypeMetadata> superTypes = type.getSuperTypes();
+        fingerprint.add(superTypes.size());
+        for (TypeMetadata superType : superTypes) {
+            fingerprint.add(superType.getName());
+        }
+        Collection<FieldMetadata> keyFields = type.getKeyFields();
+        fingerprint.add(keyFields.size());
+        for (FieldMetadata keyField : keyFields) {
+            fingerprint.add(keyField.getPath());
+        }
+        if (type instanceof ContainedComplexTypeMetadata) {
+            ComplexTypeMetadata containedType = ((ContainedComplexTypeMetadata) type).getContainedType();
+            fingerprint.add(containedType.getName());
+            // Storage mapping of a reusable type depends on the number of entities that use it.
+            fingerprint.add(containedType.isInstantiable() ? 0 : MetadataUtils.countEntityUsageCount(containedType));
+            Collection<ComplexTypeMetadata> subTypes = type.getSubTypes();
+            fingerprint.add(subTypes.size());
+            for (ComplexTypeMetadata subType : subTypes) {
+                fingerprint.add(subType.getName());
+            }
+        }
+        Collection<FieldMetadata> fields = type.getFields();
+        fingerprint.add(fields.size());
+        for (FieldMetadata field : fields) {
+            add(fingerprint, field, visiting);
+        }
+    }
+
+    private static void add(Fingerprint fingerprint, FieldMetadata field, Map<ComplexTypeMetadata, Boolean> visiting) {
+        fingerprint.add(field.getClass().getName());
+        if (field instanceof CompoundFieldMetadata) {
+            FieldMetadata[] fields = ((CompoundFieldMetadata) field).getFields();
+            fingerprint.add(fields.length);
+            for (FieldMetadata compoundField : fields) {
+                add(fingerprint, compoundField, visiting);
+            }
+            return;
+        }
+        fingerprint.add(field.getName());
+        fingerprint.add(field.isKey());
+        fingerprint.add(field.isMany());
+        fingerprint.add(field.isMandatory());
+        add(fingerprint, field.getType());
+        add(fingerprint, field.getContainingType());
+        add(fingerprint, field.getDeclaringType());
+        fingerprint.add(field.getHideUsers());
+        fingerprint.add(field.getWriteUsers());
+        fingerprint.add(field.getWorkflowAccessRights());
+        if (field instanceof ReferenceFieldMetadata) {
+            ReferenceFieldMetadata referenceField = (ReferenceFieldMetadata) field;
+            add(fingerprint, referenceField.getReferencedType());
+            FieldMetadata referencedField = referenceField.getReferencedField();
+            fingerprint.add(referencedField == null ? null : referencedField.getPath());
+            fingerprint.add(referenceField.isFKIntegrity());
+            fingerprint.add(referenceField.allowFKIntegrityOverride());
+            List<FieldMetadata> foreignKeyInfoFields = referenceField.getForeignKeyInfoFields();
+            fingerprint.add(foreignKeyInfoFields.size());
+            for (FieldMetadata foreignKeyInfoField : foreignKeyInfoFields) {
+                fingerprint.add(foreignKeyInfoField.getPath());
+            }
+        } else if (field instanceof ContainedTypeFieldMetadata) {
+            ComplexTypeMetadata containedType = ((ContainedTypeFieldMetadata) field).getContainedType();
+            if (visiting.containsKey(containedType)) {
+                // Recursive data model: only add the name of the type being visited.
+                fingerprint.add(containedType.getName());
+            } else {
+                visiting.put(containedType, Boolean.TRUE);
+                add(fingerprint, containedType, visiting);
+                visiting.remove(containedType);
+            }
+        }
+    }
+
+    private static void add(Fingerprint fingerprint, TypeMetadata type) {
+        if (type == null) {
+            fingerprint.add((String) null);
+        } else {
+            fingerprint.add(type.getName());
+            fingerprint.add(type.getNamespace());
+        }
+    }
+
+    // 64 bits FNV-1a hash (stable across JVMs, unlike String#hashCode() based combinations of 32 bits hash codes).
+    private static class Fingerprint {
+
+        private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+        private static final long PRIME = 0x100000001b3L;
+
+        private long value = OFFSET_BASIS;
+
+        void add(long data) {
+            for (int i = 0; i < 8; i++) {
+                value = (value ^ (data & 0xFF)) * PRIME;
+                data >>>= 8;
+            }
+        }
+
+        void add(boolean data) {
+            add(data ? 1 : 0);
+        }
+
+        void add(String data) {
+            if (data == null) {
+                add(-1);
+                return;
+            }
+            // Length first: ("ab", "c") and ("a", "bc") give different fingerprints.
+            add(data.length());
+            for (int i = 0; i < data.length(); i++) {
+                char c = data.charAt(i);
+                value = (value ^ (c & 0xFF)) * PRIME;
+                value = (value ^ (c >>> 8)) * PRIME;
+            }
+        }
+
+        void add(List<String> data) {
+            if (data == null) {
+                add(-1);
+                return;
+            }
+            add(data.size());
+            for (String item : data) {
+                add(item);
+            }
+        }
+    }
+}
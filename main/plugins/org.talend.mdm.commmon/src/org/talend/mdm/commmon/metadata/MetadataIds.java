@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Dense integer ids for the complex types and fields of a frozen {@link MetadataRepository}: ids go from 0 to
+ * {@link #getTypeCount()} - 1 for types and from 0 to {@link #getFieldCount()} - 1 for fields, so algorithms and
+ * caches can use arrays or {@link java.util.BitSet} instead of maps keyed by metadata objects.
+ * </p>
+ * <p>
+ * Ids cover user entity types, user reusable types and all contained types (one per usage of a reusable type or per
+ * anonymous type) as well as all their fields. Ids are assigned in a deterministic order (types in name order, then
+ * their fields in declaration order, then their contained types): the same data model always gets the same ids.
+ * </p>
+ * <p>
+ * Ids are only valid for the repository they were computed for: a new instance is computed each time repository is
+ * frozen and instance is dropped when repository is modified.
+ * </p>
+ *
+ * @see MetadataRepository#getIds()
+ */
+public final class MetadataIds {
+
+    /**
+     * Returned by {@link #getId(ComplexTypeMetadata)} and {@link #getId(FieldMetadata)} for metadata not in repository.
+     */
+    public static final int NO_ID = -1;
+
+    private final ComplexTypeMetadata[] types;
+
+    private final FieldMetadata[] fields;
+
+    // Id of the type that declares each field (field id -> type id).
+    private final int[] fieldTypes;
+
+    // Identity maps: equals() of types and fields compares names (and containers for contained types).
+    private final Map<ComplexTypeMetadata, Integer> typeIds;
+
+    private final Map<FieldMetadata, Integer> fieldIds;
+
+    private MetadataIds(List<ComplexTypeMetadata> types, List<FieldMetadata> fields, List<Integer> fieldTypes,
+            Map<ComplexTypeMetadata, Integer> typeIds, Map<FieldMetadata, Integer> fieldIds) {
+        this.types = types.toArray(new ComplexTypeMetadata[types.size()]);
+        this.fields = fields.toArray(new FieldMetadata[fields.size()]);
+        this.fieldTypes = new int[fieldTypes.size()];
+        for (int i = 0; i < this.fieldTypes.length; i++) {
+            this.fieldTypes[i] = fieldTypes.get(i);
+        }
+        this.typeIds = typeIds;
+        this.fieldIds = fieldIds;
+    }
+
+    /**
+     * @param entityTypes User entity types (all types are expected to be frozen).
+     * @param reusableTypes User reusable types (all types are expected to be frozen).
+     * @return Ids for the types, their fields and their contained types.
+     */
+    static MetadataIds build(List<ComplexTypeMetadata> entityTypes, List<ComplexTypeMetadata> reusableTypes) {
+        Builder builder = new Builder();
+        for (ComplexTypeMetadata type : entityTypes) {
+            builder.add(type);
+        }
+        for (ComplexTypeMetadata type : reusableTypes) {
+            builder.add(type);
+        }
+        return new MetadataIds(builder.types, builder.fields, builder.fieldTypes, builder.typeIds, builder.fieldIds);
+    }
+
+    public int getTypeCount() {
+        return types.length;
+    }
+
+    public int getFieldCount() {
+        return fields.length;
+    }
+
+    /**
+     * @param id A type id (between 0 and {@link #getTypeCount()} - 1).
+     * @return The type with this id.
+     */
+    public ComplexTypeMetadata getType(int id) {
+        return types[id];
+    }
+
+    /**
+     * @param id A field id (between 0 and {@link #getFieldCount()} - 1).
+     * @return The field with this id.
+     */
+    public FieldMetadata getField(int id) {
+        return fields[id];
+    }
+
+    /**
+     * @param fieldId A field id (between 0 and {@link #getFieldCount()} - 1).
+     * @return Id of the type that contains the field (the type that returned field in its
+     * {@link ComplexTypeMetadata#getFields()}).
+     */
+    public int getTypeId(int fieldId) {
+        return fieldTypes[fieldId];
+    }
+
+    /**
+     * @param type A type.
+     * @return Id of the type or {@link #NO_ID} if type is not a complex type of the repository (types are compared
+     * by identity).
+     */
+    public int getId(ComplexTypeMetadata type) {
+        Integer id = typeIds.get(type);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * @param field A field.
+     * @return Id of the field or {@link #NO_ID} if field is not a field of the repository types (fields are compared
+     * by identity).
+     */
+    public int getId(FieldMetadata field) {
+        Integer id = fieldIds.get(field);
+        return id == null ? NO_ID : id;
+    }
+
+    private static class Builder {
+
+        private final List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>();
+
+        private final List<FieldMetadata> fields = new ArrayList<FieldMetadata>();
+
+        private final List<Integer> fieldTypes = new ArrayList<Integer>();
+
+        private final Map<ComplexTypeMetadata, Integer> typeIds = new IdentityHashMap<ComplexTypeMetadata, Integer>();
+
+        private final Map<FieldMetadata, Integer> fieldIds = new IdentityHashMap<FieldMetadata, Integer>();
+
+        void add(ComplexTypeMetadata type) {
+            if (typeIds.containsKey(type)) {
+                return;
+            }
+            int typeId = types.size();
+            types.add(type);
+            typeIds.put(type, typeId);
+            List<ComplexTypeMetadata> containedTypes = new ArrayList<ComplexTypeMetadata>();
+            for (FieldMetadata field : type.getFields()) {
+                if (!fieldIds.containsKey(field)) {
+                    fieldIds.put(field, fields.size());
+                    fields.add(field);
+                    fieldTypes.add(typeId);
+                }
+                if (field instanceof ContainedTypeFieldMetadata) {
+                    containedTypes.add(((ContainedTypeFieldMetadata) field).getContainedType());
+                }
+            }
+            for (ComplexTypeMetadata containedType : containedTypes) {
+                add(containedType);
+                if (containedType instanceof ContainedComplexTypeMetadata) {
+                    for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
+                        add(subType);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+/**
+ * <p>
+ * Receives metrics about the phases of a data model load (see {@link MetadataRepository#load(java.io.InputStream)}).
+ * Use {@link MetadataRepository#setLoadListener(MetadataLoadListener)} to register a listener: a repository without
+ * listener does not collect any metric.
+ * </p>
+ * <p>
+ * Listener is notified by the thread that loads the data model, except for
+ * {@link #typeValidated(TypeMetadata, LoadMetrics)} that is called by validation threads when
+ * {@link MetadataRepository#setParallelValidation(boolean) parallel validation} is enabled (implementations must be
+ * thread safe in this case).
+ * </p>
+ *
+ * @see DefaultMetadataLoadListener
+ */
+public interface MetadataLoadListener {
+
+    /**
+     * Phases of a data model load (in execution order).
+     */
+    enum Phase {
+        /**
+         * Parsing of the XML schema with EMF.
+         */
+        XSD_PARSE,
+        /**
+         * XML schema validation by EMF (<code>XSDSchema#validate()</code>) and report of EMF diagnostics.
+         */
+        XSD_VALIDATION,
+        /**
+         * Creation of types and fields from XML schema (<code>XmlSchemaWalker</code>).
+         */
+        SCHEMA_WALK,
+        /**
+         * Resolution of inheritance between entity types.
+         */
+        SUPER_TYPE_RESOLUTION,
+        /**
+         * Freeze of reusable (non instantiable) types.
+         */
+        REUSABLE_TYPE_FREEZE,
+        /**
+         * Freeze of reusable types usages (copy of reusable types in entities).
+         */
+        USAGE_FREEZE,
+        /**
+         * Freeze of entity types.
+         */
+        ENTITY_TYPE_FREEZE,
+        /**
+         * Build of the repository {@link ReferenceIndex}.
+         */
+        REFERENCE_INDEX,
+        /**
+         * Validation rules of all types (each type validation is also reported with
+         * {@link MetadataLoadListener#typeValidated(TypeMetadata, LoadMetrics)}).
+         */
+        TYPE_VALIDATION,
+        /**
+         * Data model scoped validation (circular dependencies between types).
+         */
+        CIRCULAR_DEPENDENCY_VALIDATION
+    }
+
+    /**
+     * Called once a load phase is completed.
+     *
+     * @param repository The repository being loaded.
+     * @param phase The completed phase.
+     * @param metrics Metrics for the phase (type and field counts are the counts of the repository at the end of the
+     * phase).
+     */
+    void phaseCompleted(MetadataRepository repository, Phase phase, LoadMetrics metrics);
+
+    /**
+     * Called once validation rules of a type are performed.
+     *
+     * @param type The validated type.
+     * @param metrics Metrics for the validation of <code>type</code> (type count is 1).
+     */
+    void typeValidated(TypeMetadata type, LoadMetrics metrics);
+}
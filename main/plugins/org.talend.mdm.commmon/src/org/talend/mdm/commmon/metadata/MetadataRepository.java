@@ -10,19 +10,29 @@
 
 package org.talend.mdm.commmon.metadata;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.Stack;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.XMLConstants;
 
@@ -59,6 +69,7 @@ import org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessor;
 import org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessorState;
 import org.talend.mdm.commmon.metadata.validation.ValidationFactory;
 import org.talend.mdm.commmon.metadata.xsd.XSDVisitor;
+import org.talend.mdm.commmon.metadata.xsd.XmlSchemaAttributes;
 import org.talend.mdm.commmon.metadata.xsd.XmlSchemaWalker;
 import org.talend.mdm.commmon.util.core.ICoreConstants;
 import org.w3c.dom.Element;
@@ -82,6 +93,24 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
 
     public static final String XSD_DOM_ELEMENT = "metadata.xsd.dom.element"; //$NON-NLS-1$
 
+    /**
+     * Key of the &lt;xsd:attribute&gt; declarations (a list of DOM elements) in the definition of a type (only set if
+     * XML schema was validated and type declares attributes).
+     */
+    public static final String XSD_ATTRIBUTES = "metadata.xsd.attributes"; //$NON-NLS-1$
+
+    /**
+     * Key of the data set on metadata elements already validated (see
+     * {@link org.talend.mdm.commmon.metadata.validation.ValidationFactory}).
+     */
+    public static final String VALIDATION_MARKER = "validation.validated"; //$NON-NLS-1$
+
+    /**
+     * System property that disables {@link TrustedModelStore} for all repositories when set to <code>true</code>
+     * (data models are then always fully validated).
+     */
+    public static final String FORCE_FULL_VALIDATION = "mdm.metadata.validation.force"; //$NON-NLS-1$
+
     public static final String ANONYMOUS_PREFIX = "X_ANONYMOUS"; //$NON-NLS-1$
 
     private static final Logger LOGGER = Logger.getLogger(MetadataRepository.class);
@@ -99,7 +128,7 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         }
     };
 
-    private final static List<XmlSchemaAnnotationProcessor> XML_ANNOTATIONS_PROCESSORS = Arrays.asList(new ForeignKeyProcessor(),
+    final static List<XmlSchemaAnnotationProcessor> XML_ANNOTATIONS_PROCESSORS = Arrays.asList(new ForeignKeyProcessor(),
             new UserAccessProcessor(), new SchematronProcessor(), new PrimaryKeyInfoProcessor(), new LookupFieldProcessor(),
             new LabelAnnotationProcessor());
 
@@ -112,12 +141,47 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
 
     private final Map<String, Map<String, TypeMetadata>> nonInstantiableTypes = new HashMap<String, Map<String, TypeMetadata>>();
 
+    // All declared entity types (including the ones with no key) in declaration order, used to freeze usages.
+    private final List<ComplexTypeMetadata> entityTypeDeclarations = new LinkedList<ComplexTypeMetadata>();
+
     private final Stack<ComplexTypeMetadata> currentTypeStack = new Stack<ComplexTypeMetadata>();
 
+    // Attributes declared in the data model being parsed (only set during the schema walk).
+    private transient XmlSchemaAttributes schemaAttributes;
+
     private String targetNamespace;
 
     private int anonymousCounter = 0;
 
+    private volatile boolean isShared;
+
+    private boolean isParallelValidation;
+
+    // Optional listener for load metrics (null: load phases are not measured).
+    private MetadataLoadListener loadListener;
+
+    private TrustedModelStore trustedModelStore;
+
+    private boolean isStreamingLoad;
+
+    private boolean isForceFullValidation;
+
+    // Namespace maps of the shared repository this repository was copied from (see copyOnWrite()): such maps are
+    // copied before any modification.
+    private final Set<Map<String, TypeMetadata>> sharedNamespaces = Collections
+            .newSetFromMap(new IdentityHashMap<Map<String, TypeMetadata>, Boolean>());
+
+    private boolean isCopyOnWrite;
+
+    // Index of foreign keys, built when repository is frozen (null if repository was modified since last freeze).
+    private volatile ReferenceIndex referenceIndex;
+
+    // Sort and entity rank results, created when repository is frozen (null if repository was modified since).
+    private volatile TypeOrderCache typeOrderCache;
+
+    // Immutable copy of type maps, published when repository is frozen (null if repository was modified since).
+    private volatile TypeSnapshot typeSnapshot;
+
     static {
         NoOpValidationHandler noOpValidationHandler = new NoOpValidationHandler();
         // Load XML Schema types
@@ -156,6 +220,32 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         }
     }
 
+    // Copy on write constructor (see copyOnWrite()): source is shared, so its namespace maps no longer change.
+    private MetadataRepository(MetadataRepository source) {
+        for (Map.Entry<String, Map<String, TypeMetadata>> entry : source.nonInstantiableTypes.entrySet()) {
+            nonInstantiableTypes.put(entry.getKey(), entry.getValue());
+            if (entry.getValue() != null) {
+                sharedNamespaces.add(entry.getValue());
+            }
+        }
+        for (Map.Entry<String, Map<String, TypeMetadata>> entry : source.entityTypes.entrySet()) {
+            entityTypes.put(entry.getKey(), entry.getValue());
+            if (entry.getValue() != null) {
+                sharedNamespaces.add(entry.getValue());
+            }
+        }
+        targetNamespace = source.targetNamespace;
+        referenceIndex = source.referenceIndex;
+        typeOrderCache = source.typeOrderCache;
+        typeSnapshot = source.typeSnapshot;
+        isParallelValidation = source.isParallelValidation;
+        loadListener = source.loadListener;
+        isStreamingLoad = source.isStreamingLoad;
+        trustedModelStore = source.trustedModelStore;
+        isForceFullValidation = source.isForceFullValidation;
+        isCopyOnWrite = true;
+    }
+
     public TypeMetadata getType(String name) {
         return getType(USER_NAMESPACE, name);
     }
@@ -179,6 +269,10 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         if (nameSpace == null) {
             nameSpace = StringUtils.EMPTY;
         }
+        TypeSnapshot snapshot = typeSnapshot;
+        if (snapshot != null) {
+            return snapshot.getType(nameSpace, name);
+        }
         Map<String, TypeMetadata> nameSpaceTypes = entityTypes.get(nameSpace);
         if (nameSpaceTypes == null) {
             return null;
@@ -188,10 +282,15 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
 
     /**
      * @return Returns only {@link ComplexTypeMetadata} types defined in the data model by the MDM user (no types
-     * potentially defined in other name spaces such as the XML schema's one).
+     * potentially defined in other name spaces such as the XML schema's one). Returned collection can not be modified
+     * (it is a {@link java.util.RandomAccess} {@link List}).
      */
     public Collection<ComplexTypeMetadata> getUserComplexTypes() {
-        List<ComplexTypeMetadata> complexTypes = new LinkedList<ComplexTypeMetadata>();
+        TypeSnapshot snapshot = typeSnapshot;
+        if (snapshot != null) {
+            return snapshot.getUserComplexTypes();
+        }
+        List<ComplexTypeMetadata> complexTypes = new ArrayList<ComplexTypeMetadata>();
         // User types are all located in the default (empty) name space.
         Map<String, TypeMetadata> userNamespace = entityTypes.get(USER_NAMESPACE);
         if (userNamespace == null) {
@@ -203,11 +302,19 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
                 complexTypes.add((ComplexTypeMetadata) namespaceType);
             }
         }
-        return complexTypes;
+        return Collections.unmodifiableList(complexTypes);
     }
 
+    /**
+     * @return All types of the repository (in all name spaces). Returned collection can not be modified (it is a
+     * {@link java.util.RandomAccess} {@link List}).
+     */
     public Collection<TypeMetadata> getTypes() {
-        List<TypeMetadata> allTypes = new LinkedList<TypeMetadata>();
+        TypeSnapshot snapshot = typeSnapshot;
+        if (snapshot != null) {
+            return snapshot.getTypes();
+        }
+        List<TypeMetadata> allTypes = new ArrayList<TypeMetadata>();
         Collection<Map<String, TypeMetadata>> nameSpaces = entityTypes.values();
         for (Map<String, TypeMetadata> nameSpace : nameSpaces) {
             allTypes.addAll(nameSpace.values());
@@ -216,13 +323,17 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         for (Map<String, TypeMetadata> nameSpace : nameSpaces) {
             allTypes.addAll(nameSpace.values());
         }
-        return allTypes;
+        return Collections.unmodifiableList(allTypes);
     }
 
     public TypeMetadata getNonInstantiableType(String namespace, String typeName) {
         if (namespace == null) {
             namespace = StringUtils.EMPTY;
         }
+        TypeSnapshot snapshot = typeSnapshot;
+        if (snapshot != null) {
+            return snapshot.getNonInstantiableType(namespace, typeName);
+        }
         Map<String, TypeMetadata> map = nonInstantiableTypes.get(namespace);
         if (map != null) {
             return map.get(typeName.trim());
@@ -230,9 +341,17 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         return null;
     }
 
+    /**
+     * @return Returns only non instantiable {@link ComplexTypeMetadata} types (reusable types) defined in the data
+     * model by the MDM user. Returned list can not be modified.
+     */
     public List<ComplexTypeMetadata> getNonInstantiableTypes() {
+        TypeSnapshot snapshot = typeSnapshot;
+        if (snapshot != null) {
+            return snapshot.getUserNonInstantiableTypes();
+        }
         Map<String, TypeMetadata> map = nonInstantiableTypes.get(USER_NAMESPACE);
-        List<ComplexTypeMetadata> nonInstantiableTypes = new LinkedList<ComplexTypeMetadata>();
+        List<ComplexTypeMetadata> nonInstantiableTypes = new ArrayList<ComplexTypeMetadata>();
         if (map != null) {
             for (TypeMetadata typeMetadata : map.values()) {
                 if (typeMetadata instanceof ComplexTypeMetadata) {
@@ -240,7 +359,7 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
                 }
             }
         }
-        return nonInstantiableTypes;
+        return Collections.unmodifiableList(nonInstantiableTypes);
     }
 
     public void load(InputStream inputStream) {
@@ -248,73 +367,445 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
     }
 
     public void load(InputStream inputStream, ValidationHandler handler) {
+        if (trustedModelStore == null || isForceFullValidation()) {
+            parse(inputStream, handler, true);
+            validate(handler);
+            return;
+        }
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Input stream can not be null.");
+        }
+        byte[] content = MetadataRepositoryCache.read(inputStream);
+        String digest = MetadataRepositoryCache.digest(content);
+        if (trustedModelStore.isTrusted(digest)) {
+            // Same content was already validated without any message: skip XML schema and MDM validations.
+            parse(content, handler, false);
+            handler.end();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Data model '" + digest + "' is trusted: validation skipped.");
+            }
+        } else {
+            // Only trust data models without any message: messages (including warnings) are not kept in store, so
+            // they could not be reported again on next loads.
+            MessageCountingHandler countingHandler = new MessageCountingHandler(handler);
+            parse(content, countingHandler, true);
+            validate(countingHandler);
+            if (countingHandler.getMessageCount() == 0 && handler.getErrorCount() == 0) {
+                trustedModelStore.trust(digest);
+            }
+        }
+    }
+
+    private void parse(InputStream inputStream, ValidationHandler handler, boolean validateSchema) {
         if (inputStream == null) {
             throw new IllegalArgumentException("Input stream can not be null.");
         }
+        if (isStreamingLoad) {
+            parse(MetadataRepositoryCache.read(inputStream), handler, validateSchema);
+        } else {
+            parseWithEMF(inputStream, handler, validateSchema);
+        }
+    }
+
+    private void parse(byte[] content, ValidationHandler handler, boolean validateSchema) {
+        if (isStreamingLoad) {
+            try {
+                parseWithStreaming(content, handler, validateSchema);
+                return;
+            } catch (StreamingSchemaParser.UnsupportedSchemaException e) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Data model can not be parsed with streaming parser (" + e.getMessage()
+                            + "), using EMF.");
+                }
+            }
+        }
+        parseWithEMF(new ByteArrayInputStream(content), handler, validateSchema);
+    }
+
+    // Throws UnsupportedSchemaException (before any change in repository) if data model is not supported.
+    private void parseWithStreaming(byte[] content, ValidationHandler handler, boolean validateSchema) {
+        assertLoadable();
+        LoadMetrics metrics = startPhase();
+        StreamingSchemaParser parser = StreamingSchemaParser.read(content);
+        endPhase(metrics, MetadataLoadListener.Phase.XSD_PARSE);
+        if (validateSchema) {
+            metrics = startPhase();
+            StreamingSchemaParser.validate(content, handler);
+            endPhase(metrics, MetadataLoadListener.Phase.XSD_VALIDATION);
+        }
+        metrics = startPhase();
+        parser.build(this);
+        endPhase(metrics, MetadataLoadListener.Phase.SCHEMA_WALK);
+        resolveSuperTypesAndFreeze();
+    }
+
+    private void parseWithEMF(InputStream inputStream, ValidationHandler handler, boolean validateSchema) {
+        assertLoadable();
         // Validates data model using shared studio / server classes
         // Load user defined data model now
         Map<String, Object> options = new HashMap<String, Object>();
         options.put(Resource.OPTION_SAVE_ONLY_IF_CHANGED, Resource.OPTION_SAVE_ONLY_IF_CHANGED_MEMORY_BUFFER);
+        LoadMetrics metrics = startPhase();
         XSDParser parse = new XSDParser(options);
         parse.parse(inputStream);
         XSDSchema schema = parse.getSchema();
         if (schema == null) {
             throw new IllegalStateException("No schema parsed from input (make sure stream contains a data model).");
         }
-        schema.validate();
-        EList<XSDDiagnostic> diagnostics = schema.getDiagnostics();
-        for (XSDDiagnostic diagnostic : diagnostics) {
-            XSDDiagnosticSeverity severity = diagnostic.getSeverity();
-            if (XSDDiagnosticSeverity.ERROR_LITERAL.equals(severity)) {
-                handler.error((TypeMetadata) null, "XSD validation error: " + diagnostic.getMessage(), null, -1, -1,
-                        ValidationError.XML_SCHEMA);
-            } else if (XSDDiagnosticSeverity.WARNING_LITERAL.equals(severity)) {
-                handler.error((TypeMetadata) null, "XSD validation warning: " + diagnostic.getMessage(), null, -1, -1,
-                        ValidationError.XML_SCHEMA);
+        endPhase(metrics, MetadataLoadListener.Phase.XSD_PARSE);
+        if (validateSchema) {
+            metrics = startPhase();
+            schema.validate();
+            EList<XSDDiagnostic> diagnostics = schema.getDiagnostics();
+            for (XSDDiagnostic diagnostic : diagnostics) {
+                XSDDiagnosticSeverity severity = diagnostic.getSeverity();
+                if (XSDDiagnosticSeverity.ERROR_LITERAL.equals(severity)) {
+                    handler.error((TypeMetadata) null, "XSD validation error: " + diagnostic.getMessage(), null, -1, -1,
+                            ValidationError.XML_SCHEMA);
+                } else if (XSDDiagnosticSeverity.WARNING_LITERAL.equals(severity)) {
+                    handler.error((TypeMetadata) null, "XSD validation warning: " + diagnostic.getMessage(), null, -1,
+                            -1, ValidationError.XML_SCHEMA);
+                }
             }
+            // Index xsd:attribute declarations once (walk gives them to types for XSDAttributeValidationRule).
+            schemaAttributes = XmlSchemaAttributes.index(schema.getElement());
+            endPhase(metrics, MetadataLoadListener.Phase.XSD_VALIDATION);
+        }
+        metrics = startPhase();
+        try {
+            XmlSchemaWalker.walk(schema, this);
+        } finally {
+            schemaAttributes = null;
         }
-        XmlSchemaWalker.walk(schema, this);
+        endPhase(metrics, MetadataLoadListener.Phase.SCHEMA_WALK);
+        resolveSuperTypesAndFreeze();
+    }
+
+    private void resolveSuperTypesAndFreeze() {
         // TMDM-4876 Additional processing for entity inheritance
+        LoadMetrics metrics = startPhase();
         resolveAdditionalSuperTypes(this);
-        // "Freeze" all types (ensure all soft references now point to actual types in the repository).
+        endPhase(metrics, MetadataLoadListener.Phase.SUPER_TYPE_RESOLUTION);
+        freeze();
+    }
+
+    /**
+     * "Freeze" all types (ensure all soft references now point to actual types in the repository) and all reusable
+     * type usages. Expects all types to be declared in repository.
+     */
+    void freeze() {
+        typeSnapshot = null; // Types are replaced by their frozen version.
+        LoadMetrics metrics = startPhase();
         nonInstantiableTypes.put(getUserNamespace(), freezeTypes(nonInstantiableTypes.get(getUserNamespace())));
+        endPhase(metrics, MetadataLoadListener.Phase.REUSABLE_TYPE_FREEZE);
         // "Freeze" all reusable type usages in the data model.
+        metrics = startPhase();
         freezeUsages();
+        endPhase(metrics, MetadataLoadListener.Phase.USAGE_FREEZE);
+        metrics = startPhase();
         entityTypes.put(getUserNamespace(), freezeTypes(entityTypes.get(getUserNamespace())));
+        endPhase(metrics, MetadataLoadListener.Phase.ENTITY_TYPE_FREEZE);
+        typeSnapshot = TypeSnapshot.build(entityTypes, nonInstantiableTypes, USER_NAMESPACE);
+        // Types no longer change: index foreign keys once for all InboundReferences / OutboundReferences.
+        metrics = startPhase();
+        referenceIndex = ReferenceIndex.build(this);
+        endPhase(metrics, MetadataLoadListener.Phase.REFERENCE_INDEX);
+        typeOrderCache = new TypeOrderCache();
+    }
+
+    // Keeps xsd:attribute declarations of type definition (if schema was validated and type declares attributes).
+    private void setAttributes(ComplexTypeMetadata type, Element element) {
+        if (schemaAttributes != null && element != null) {
+            List<Element> attributes = schemaAttributes.getAttributes(element);
+            if (!attributes.isEmpty()) {
+                type.setData(XSD_ATTRIBUTES, attributes);
+            }
+        }
+    }
+
+    /**
+     * @return The {@link ReferenceIndex} of this repository or <code>null</code> if repository isn't frozen or was
+     * modified since it was frozen (e.g. types added with {@link #addTypeMetadata(TypeMetadata)}).
+     */
+    public ReferenceIndex getReferenceIndex() {
+        return referenceIndex;
+    }
+
+    /**
+     * @return The {@link TypeOrderCache} of this repository or <code>null</code> if repository isn't frozen or was
+     * modified since it was frozen.
+     */
+    TypeOrderCache getTypeOrderCache() {
+        return typeOrderCache;
+    }
+
+    /**
+     * @return The {@link MetadataIds} (dense integer ids for types and fields) of this repository or <code>null</code>
+     * if repository isn't frozen or was modified since it was frozen. Ids are computed on first call.
+     */
+    public MetadataIds getIds() {
+        TypeSnapshot snapshot = typeSnapshot;
+        return snapshot == null ? null : snapshot.getIds();
+    }
+
+    /**
+     * @return The {@link MetadataFingerprints} (structural fingerprints of the repository and its types) of this
+     * repository or <code>null</code> if repository isn't frozen or was modified since it was frozen. Fingerprints are
+     * computed on first call.
+     */
+    public MetadataFingerprints getFingerprints() {
+        TypeSnapshot snapshot = typeSnapshot;
+        return snapshot == null ? null : snapshot.getFingerprints();
+    }
+
+    private void validate(ValidationHandler handler) {
         // Validate types
+        List<TypeMetadata> typesToValidate = new ArrayList<TypeMetadata>();
         for (TypeMetadata type : getUserComplexTypes()) {
             if (!XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(type.getNamespace())) {
-                type.validate(handler);
+                typesToValidate.add(type);
             }
         }
         for (TypeMetadata type : getNonInstantiableTypes()) {
             if (!XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(type.getNamespace())) {
-                type.validate(handler);
+                typesToValidate.add(type);
             }
         }
+        LoadMetrics metrics = startPhase();
+        if (isParallelValidation && typesToValidate.size() > 1) {
+            validateInParallel(typesToValidate, handler, loadListener);
+        } else {
+            for (TypeMetadata type : typesToValidate) {
+                validate(type, handler, loadListener);
+            }
+        }
+        endPhase(metrics, MetadataLoadListener.Phase.TYPE_VALIDATION);
+        metrics = startPhase();
         ValidationFactory.getRule(this).perform(handler); // Perform data model-scoped validation (e.g. cycles).
+        endPhase(metrics, MetadataLoadListener.Phase.CIRCULAR_DEPENDENCY_VALIDATION);
         handler.end();
         if (handler.getErrorCount() != 0) {
             LOGGER.error("Could not parse data model (" + handler.getErrorCount() + " error(s) found).");
         }
     }
 
-    protected void freezeUsages() {
-        for (List<ComplexTypeMetadata> entityTypes : entityTypeUsage.values()) {
-            for (ComplexTypeMetadata entityType : entityTypes) {
-                entityType.accept(new DefaultMetadataVisitor<Void>() {
+    private static void validate(TypeMetadata type, ValidationHandler handler, MetadataLoadListener listener) {
+        if (listener == null) {
+            type.validate(handler);
+        } else {
+            LoadMetrics metrics = LoadMetrics.start();
+            type.validate(handler);
+            metrics.stop();
+            int fieldCount = type instanceof ComplexTypeMetadata ? ((ComplexTypeMetadata) type).getFields().size() : 0;
+            listener.typeValidated(type, metrics.setCounts(1, fieldCount));
+        }
+    }
+
+    private static void validateInParallel(List<TypeMetadata> typesToValidate, ValidationHandler handler,
+            final MetadataLoadListener listener) {
+        int threadNumber = Math.min(Runtime.getRuntime().availableProcessors(), typesToValidate.size());
+        ExecutorService executor = Executors.newFixedThreadPool(threadNumber, new ThreadFactory() {
+
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metadata-validation-" + threadCount.incrementAndGet()); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        final OrderedValidationHandler orderedHandler = new OrderedValidationHandler(handler);
+        try {
+            List<Future<?>> validations = new ArrayList<Future<?>>(typesToValidate.size());
+            for (final TypeMetadata type : typesToValidate) {
+                validations.add(executor.submit(new Runnable() {
+
                     @Override
-                    public Void visit(ContainedComplexTypeMetadata containedType) {
-                        containedType.getContainedType().declareUsage(containedType);
-                        containedType.finalizeUsage();
-                        for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
-                            subType.accept(this);
-                        }
-                        return super.visit(containedType);
+                    public void run() {
+                        validate(type, orderedHandler, listener);
+                    }
+                }));
+            }
+            for (Future<?> validation : validations) {
+                try {
+                    validation.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
                     }
-                });
+                    throw new RuntimeException("Could not validate data model.", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Data model validation was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        orderedHandler.flush();
+    }
+
+    /**
+     * Enables (or disables) parallel validation of types in {@link #load(InputStream, ValidationHandler)}. When
+     * enabled, types are validated by several threads and validation messages are sent to the
+     * {@link ValidationHandler} sorted by line and column (see {@link OrderedValidationHandler}). Default is
+     * <code>false</code>: types are validated one after the other in the calling thread.
+     *
+     * @param isParallelValidation <code>true</code> to validate types in parallel.
+     */
+    public void setParallelValidation(boolean isParallelValidation) {
+        this.isParallelValidation = isParallelValidation;
+    }
+
+    /**
+     * @return <code>true</code> if types are validated in parallel during load.
+     * @see #setParallelValidation(boolean)
+     */
+    public boolean isParallelValidation() {
+        return isParallelValidation;
+    }
+
+    /**
+     * <p>
+     * Enables (or disables) the streaming front end for data model parsing: when enabled, data model is read with a
+     * StAX parser (and XML schema is validated by the JDK) instead of building an EMF schema, which lowers memory
+     * usage during load. Data models that use XML schema constructs the streaming front end does not support are
+     * still parsed with EMF. Default is <code>false</code>: data models are always parsed with EMF.
+     * </p>
+     * <p>
+     * Types and fields are the same with both front ends, and so are MDM validation errors. XML schema errors are not:
+     * JDK validation reports its own messages (with line and column, EMF reports none) and stops at the first fatal
+     * error, and both implementations do not check exactly the same constraints: a data model may get different
+     * {@link ValidationError#XML_SCHEMA} errors than with EMF.
+     * </p>
+     * <p>
+     * <b>Enabling streaming load may therefore change which data models load successfully</b> (a data model rejected
+     * by EMF validation may be accepted by JDK validation, and the opposite). This is why streaming load is disabled
+     * by default: only enable it when data models are known to be valid (e.g. already validated by EMF at deployment
+     * time), or when XML schema validation is skipped (see {@link #setTrustedModelStore(TrustedModelStore)}).
+     * </p>
+     *
+     * @param isStreamingLoad <code>true</code> to parse data models with the streaming front end when possible.
+     */
+    public void setStreamingLoad(boolean isStreamingLoad) {
+        this.isStreamingLoad = isStreamingLoad;
+    }
+
+    /**
+     * @return <code>true</code> if data models are parsed with the streaming front end when possible.
+     * @see #setStreamingLoad(boolean)
+     */
+    public boolean isStreamingLoad() {
+        return isStreamingLoad;
+    }
+
+    /**
+     * Sets a store of trusted data models: {@link #load(InputStream, ValidationHandler)} skips validation (XML schema
+     * and MDM validation rules) of data models already loaded without any validation message, and adds digest of data
+     * models validated without any message (no error and no warning) to the store. Default is <code>null</code>: data models are always validated.
+     *
+     * @param trustedModelStore A {@link TrustedModelStore} or <code>null</code>.
+     * @see #setForceFullValidation(boolean)
+     */
+    public void setTrustedModelStore(TrustedModelStore trustedModelStore) {
+        this.trustedModelStore = trustedModelStore;
+    }
+
+    /**
+     * @return The store of trusted data models or <code>null</code> if none was set.
+     */
+    public TrustedModelStore getTrustedModelStore() {
+        return trustedModelStore;
+    }
+
+    /**
+     * Forces full validation of data models even if they are in the {@link TrustedModelStore}. Full validation is
+     * also forced for all repositories if system property {@link #FORCE_FULL_VALIDATION} is <code>true</code>.
+     *
+     * @param isForceFullValidation <code>true</code> to always validate data models.
+     */
+    public void setForceFullValidation(boolean isForceFullValidation) {
+        this.isForceFullValidation = isForceFullValidation;
+    }
+
+    /**
+     * @return <code>true</code> if data models are always validated (ignoring the {@link TrustedModelStore}).
+     * @see #setForceFullValidation(boolean)
+     */
+    public boolean isForceFullValidation() {
+        return isForceFullValidation || Boolean.getBoolean(FORCE_FULL_VALIDATION);
+    }
+
+    /**
+     * Sets a listener that receives wall time, allocated bytes and type / field counts for each phase of
+     * {@link #load(InputStream, ValidationHandler)} (see {@link MetadataLoadListener.Phase}). Default is
+     * <code>null</code>: no metric is collected.
+     *
+     * @param loadListener A {@link MetadataLoadListener} or <code>null</code> to stop collecting metrics.
+     */
+    public void setLoadListener(MetadataLoadListener loadListener) {
+        this.loadListener = loadListener;
+    }
+
+    /**
+     * @return The listener for load metrics or <code>null</code> if none was set.
+     * @see #setLoadListener(MetadataLoadListener)
+     */
+    public MetadataLoadListener getLoadListener() {
+        return loadListener;
+    }
+
+    private LoadMetrics startPhase() {
+        return loadListener == null ? null : LoadMetrics.start();
+    }
+
+    private void endPhase(LoadMetrics metrics, MetadataLoadListener.Phase phase) {
+        if (metrics == null) {
+            return;
+        }
+        metrics.stop();
+        int typeCount = 0;
+        int fieldCount = 0;
+        for (Map<String, TypeMetadata> types : Arrays.asList(entityTypes.get(USER_NAMESPACE),
+                nonInstantiableTypes.get(USER_NAMESPACE))) {
+            if (types == null) {
+                continue;
+            }
+            for (TypeMetadata type : types.values()) {
+                typeCount++;
+                if (type instanceof ComplexTypeMetadata && !(type instanceof SoftTypeRef)) {
+                    fieldCount += ((ComplexTypeMetadata) type).getFields().size();
+                }
             }
         }
+        loadListener.phaseCompleted(this, phase, metrics.setCounts(typeCount, fieldCount));
+    }
+
+    /**
+     * Declares a new entity type: all reusable types used by declared entity types get their usages "frozen" during
+     * {@link #freeze()}.
+     *
+     * @param entityType An entity type (might not be registered in repository if it has no key).
+     */
+    void declareEntityType(ComplexTypeMetadata entityType) {
+        entityTypeDeclarations.add(entityType);
+    }
+
+    protected void freezeUsages() {
+        for (ComplexTypeMetadata entityType : entityTypeDeclarations) {
+            entityType.accept(new DefaultMetadataVisitor<Void>() {
+                @Override
+                public Void visit(ContainedComplexTypeMetadata containedType) {
+                    containedType.getContainedType().declareUsage(containedType);
+                    containedType.finalizeUsage();
+                    for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
+                        subType.accept(this);
+                    }
+                    return super.visit(containedType);
+                }
+            });
+        }
     }
 
     private Map<String, TypeMetadata> freezeTypes(Map<String, TypeMetadata> typesToFreeze) {
@@ -357,6 +848,9 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
     }
 
     public void addTypeMetadata(TypeMetadata typeMetadata) {
+        assertNotShared();
+        referenceIndex = null;
+        typeOrderCache = null;
         String namespace = typeMetadata.getNamespace();
         if (typeMetadata.isInstantiable()) {
             registerType(typeMetadata, namespace, entityTypes);
@@ -365,21 +859,66 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         }
     }
 
-    private static void registerType(TypeMetadata typeMetadata, String namespace, Map<String, Map<String, TypeMetadata>> typeMap) {
+    private void registerType(TypeMetadata typeMetadata, String namespace, Map<String, Map<String, TypeMetadata>> typeMap) {
         if (namespace == null) {
             namespace = StringUtils.EMPTY;
         }
+        getWritableNamespace(typeMap, namespace).put(typeMetadata.getName(), typeMetadata);
+    }
+
+    // Returns the types of namespace, copies the namespace map first if this map is shared with other repositories.
+    private Map<String, TypeMetadata> getWritableNamespace(Map<String, Map<String, TypeMetadata>> typeMap, String namespace) {
+        typeSnapshot = null;
         Map<String, TypeMetadata> nameSpace = typeMap.get(namespace);
         if (nameSpace == null) {
             nameSpace = new TreeMap<String, TypeMetadata>();
             typeMap.put(namespace, nameSpace);
+        } else if (sharedNamespaces.remove(nameSpace)) {
+            nameSpace = new TreeMap<String, TypeMetadata>(nameSpace);
+            typeMap.put(namespace, nameSpace);
+        }
+        return nameSpace;
+    }
+
+    /**
+     * Marks this repository as shared between several clients (e.g. a repository returned by
+     * {@link MetadataRepositoryCache}): a shared repository can no longer be loaded, modified or closed (use
+     * {@link #copy()} to get a modifiable repository).
+     */
+    void share() {
+        isShared = true;
+    }
+
+    /**
+     * @return <code>true</code> if this repository is shared between several clients and can not be modified.
+     * @see #copy()
+     */
+    public boolean isShared() {
+        return isShared;
+    }
+
+    private void assertNotShared() {
+        if (isShared) {
+            throw new IllegalStateException("Repository is shared and can not be modified (use a copy of the repository).");
+        }
+    }
+
+    // Loads change existing types (e.g. super types), so a repository that shares its types can not load.
+    private void assertLoadable() {
+        assertNotShared();
+        if (isCopyOnWrite) {
+            throw new IllegalStateException("Repository shares its types with another repository and can not load a data model (use copy()).");
         }
-        typeMap.get(namespace).put(typeMetadata.getName(), typeMetadata);
     }
 
     public void close() {
+        assertNotShared();
         entityTypes.clear();
         nonInstantiableTypes.clear();
+        entityTypeDeclarations.clear();
+        referenceIndex = null;
+        typeOrderCache = null;
+        typeSnapshot = null;
     }
 
     public Collection<TypeMetadata> getInstantiableTypes() {
@@ -428,8 +967,10 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
                     if (currentFacet instanceof XSDMaxLengthFacet) {
                         typeMetadata.setData(MetadataRepository.DATA_MAX_LENGTH,
                                 String.valueOf(((XSDMaxLengthFacet) currentFacet).getValue()));
-                    } else if (LOGGER.isTraceEnabled()) {
-                        LOGGER.trace("Ignore simple type facet on type '" + typeName + "': " + currentFacet);
+                    }
+                    if (typeMetadata instanceof SimpleTypeMetadata) {
+                        ((SimpleTypeMetadata) typeMetadata).addFacet(currentFacet.getFacetName(),
+                                currentFacet.getLexicalValue());
                     }
                 }
             }
@@ -460,6 +1001,7 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
             nonInstantiableType.setData(XSD_LINE_NUMBER, XSDParser.getStartLine(type.getElement()));
             nonInstantiableType.setData(XSD_COLUMN_NUMBER, XSDParser.getStartColumn(type.getElement()));
             nonInstantiableType.setData(XSD_DOM_ELEMENT, type.getElement());
+            setAttributes(nonInstantiableType, type.getElement());
             addTypeMetadata(nonInstantiableType);
             currentTypeStack.push(nonInstantiableType);
             // If type is used, declare usage
@@ -561,9 +1103,11 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
             type.setData(XSD_LINE_NUMBER, XSDParser.getStartLine(element.getElement()));
             type.setData(XSD_COLUMN_NUMBER, XSDParser.getStartColumn(element.getElement()));
             type.setData(XSD_DOM_ELEMENT, element.getElement());
+            setAttributes(type, element.getElement());
             addTypeMetadata(type);
             // Keep usage information
             entityTypeUsage.get(element.getType()).add(type);
+            declareEntityType(type);
             // Walk the fields
             currentTypeStack.push(type);
             {
@@ -592,10 +1136,7 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
             // TMDM-6264: An entity type without any key info is a element maybe referenced by others, but never an
             // entity.
             if (type.getKeyFields().isEmpty() && type.getSuperTypes().isEmpty()) {
-                Map<String, TypeMetadata> userEntityTypes = entityTypes.get(getUserNamespace());
-                if (userEntityTypes != null) {
-                    userEntityTypes.remove(type.getName());
-                }
+                removeEntityType(type.getName());
             }
         } else { // Non "top level" elements means fields for the MDM entity type being parsed
             FieldMetadata fieldMetadata;
@@ -651,19 +1192,19 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
                 fieldType = new SoftTypeRef(this, schemaType.getTargetNamespace(), schemaType.getName(), false);
             } else {
                 // Null QNames may happen for anonymous types extending other types.
-                fieldType = new SimpleTypeMetadata(targetNamespace, ANONYMOUS_PREFIX + String.valueOf(anonymousCounter++));
+                SimpleTypeMetadata anonymousType = new SimpleTypeMetadata(targetNamespace, createAnonymousTypeName());
                 if (content != null) {
-                    fieldType.addSuperType(new SoftTypeRef(this, content.getTargetNamespace(), content.getName(), false));
+                    anonymousType.addSuperType(new SoftTypeRef(this, content.getTargetNamespace(), content.getName(), false));
                 }
                 EList<XSDConstrainingFacet> facets = simpleSchemaType.getFacetContents();
                 for (XSDConstrainingFacet currentFacet : facets) {
                     if (currentFacet instanceof XSDMaxLengthFacet) {
-                        fieldType.setData(MetadataRepository.DATA_MAX_LENGTH,
+                        anonymousType.setData(MetadataRepository.DATA_MAX_LENGTH,
                                 String.valueOf(((XSDMaxLengthFacet) currentFacet).getValue()));
-                    } else if (LOGGER.isTraceEnabled()) {
-                        LOGGER.trace("Ignore simple type facet on type '" + fieldName + "': " + currentFacet);
                     }
+                    anonymousType.addFacet(currentFacet.getFacetName(), currentFacet.getLexicalValue());
                 }
+                fieldType = anonymousType;
             }
             fieldType.setData(XSD_LINE_NUMBER, XSDParser.getStartLine(element.getElement()));
             fieldType.setData(XSD_COLUMN_NUMBER, XSDParser.getStartColumn(element.getElement()));
@@ -734,8 +1275,7 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
                 isContained = true;
                 XSDElementDeclaration refName = element.getResolvedElementDeclaration();
                 if (schemaType != null) {
-                    fieldType = new ComplexTypeMetadataImpl(targetNamespace, ANONYMOUS_PREFIX
-                            + String.valueOf(anonymousCounter++), false);
+                    fieldType = new ComplexTypeMetadataImpl(targetNamespace, createAnonymousTypeName(), false);
                     isContained = true;
                 } else if (refName != null) {
                     // Reference being an element, consider references as references to entity type.
@@ -771,12 +1311,49 @@ public class MetadataRepository implements MetadataVisitable, XSDVisitor, Serial
         }
     }
 
-    private static void setLocalizedNames(FieldMetadata field, Map<Locale, String> labels) {
+    // Removes a type declared as entity type (but without key) from the user entity types.
+    void removeEntityType(String typeName) {
+        if (entityTypes.get(getUserNamespace()) != null) {
+            getWritableNamespace(entityTypes, getUserNamespace()).remove(typeName);
+        }
+    }
+
+    // Anonymous types get a name unique in the repository.
+    String createAnonymousTypeName() {
+        return ANONYMOUS_PREFIX + String.valueOf(anonymousCounter++);
+    }
+
+    static void setLocalizedNames(FieldMetadata field, Map<Locale, String> labels) {
         for (Map.Entry<Locale, String> entry : labels.entrySet()) {
             field.registerName(entry.getKey(), entry.getValue());
         }
     }
 
+    /**
+     * <p>
+     * Returns a copy of this (shared) repository that shares types with this repository: unlike {@link #copy()}, no
+     * type is copied and the cost of the copy only depends on the number of namespaces.
+     * </p>
+     * <p>
+     * Copy on write only applies to the types registered in each namespace: {@link #addTypeMetadata(TypeMetadata)}
+     * (which also replaces a type with the same name) copies the namespace on first call and never changes this
+     * repository. Types themselves are the same (frozen) instances in both repositories and must not be modified:
+     * to change a type, register a new version of it. Other types still reference the previous version (e.g. as
+     * foreign key target, super type or reusable type) unless they are also replaced. A copy can not load a data model
+     * (use {@link #copy()} for this).
+     * </p>
+     *
+     * @return A copy on write copy of this repository.
+     * @throws IllegalStateException If this repository is not shared (see {@link #isShared()}): types of a repository
+     *                               that is still modifiable can not be shared.
+     */
+    public MetadataRepository copyOnWrite() {
+        if (!isShared) {
+            throw new IllegalStateException("Only a shared repository can be copied on write (use copy()).");
+        }
+        return new MetadataRepository(this);
+    }
+
     public MetadataRepository copy() {
         MetadataRepository repositoryCopy = new MetadataRepository();
         // Copy first non instantiable types...
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A cache of loaded {@link MetadataRepository} instances keyed by a digest of the data model content: loading the
+ * same data model (same bytes) twice returns the same repository instance without parsing and validating the data
+ * model again.
+ * </p>
+ * <p>
+ * Returned repositories are <b>shared</b> (see {@link MetadataRepository#isShared()}): they can not be modified and
+ * callers that need to modify a repository should work on a {@link MetadataRepository#copy()}.
+ * </p>
+ * <p>
+ * Cache size is bounded by a number of entries and by a total weight (the weight of a repository is the number of
+ * fields declared in its user types). Least recently used repositories are evicted first.
+ * </p>
+ * <p>
+ * Only repositories loaded without any validation error are cached. Validation messages (warnings) are only reported
+ * to the {@link ValidationHandler} used for the first load of a data model: they are <b>not</b> replayed when a cached
+ * repository is returned (handler only gets a {@link ValidationHandler#end()} call).
+ * </p>
+ */
+public class MetadataRepositoryCache {
+
+    private static final Logger LOGGER = Logger.getLogger(MetadataRepositoryCache.class);
+
+    private static final String DIGEST_ALGORITHM = "SHA-256"; //$NON-NLS-1$
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray(); //$NON-NLS-1$
+
+    private final int maxEntries;
+
+    private final long maxWeight;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+
+    private final AtomicLong missCount = new AtomicLong();
+
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    private long weight;
+
+    /**
+     * @param maxEntries Maximum number of repositories kept in cache.
+     * @param maxWeight Maximum total weight (number of fields in user types) of repositories kept in cache. Use
+     * {@link Long#MAX_VALUE} for a cache only bounded by number of entries.
+     */
+    public MetadataRepositoryCache(int maxEntries, long maxWeight) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Maximum number of entries must be greater than 0.");
+        }
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be greater than 0.");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * Same as {@link #load(InputStream, ValidationHandler)} with a {@link DefaultValidationHandler}.
+     */
+    public MetadataRepository load(InputStream inputStream) {
+        return load(inputStream, new DefaultValidationHandler());
+    }
+
+    /**
+     * Returns the repository for the data model in <code>inputStream</code>: either a previously loaded repository
+     * (if the same data model content was already loaded) or a newly loaded one. This method does not close
+     * <code>inputStream</code>.
+     *
+     * @param inputStream A data model.
+     * @param handler A {@link ValidationHandler} used if data model needs to be loaded. If a cached repository is
+     * returned, handler only gets a {@link ValidationHandler#end()} call (warnings of the first load are not replayed).
+     * @return A shared (i.e. non modifiable) {@link MetadataRepository} for the data model.
+     * @see MetadataRepository#load(InputStream, ValidationHandler)
+     */
+    public MetadataRepository load(InputStream inputStream, ValidationHandler handler) {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Input stream can not be null.");
+        }
+        byte[] content = read(inputStream);
+        String key = digest(content);
+        MetadataRepository cachedRepository = null;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                cachedRepository = entry.repository;
+            }
+        }
+        if (cachedRepository != null) {
+            hitCount.incrementAndGet();
+            // Same as at the end of a load (but without any message).
+            handler.end();
+            return cachedRepository;
+        }
+        missCount.incrementAndGet();
+        MetadataRepository repository = new MetadataRepository();
+        repository.load(new ByteArrayInputStream(content), handler);
+        if (handler.getErrorCount() > 0) {
+            return repository; // Don't keep data models with errors in cache.
+        }
+        repository.share();
+        long repositoryWeight = weightOf(repository);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                // Another thread loaded same data model in the meantime: keep only one instance.
+                return entry.repository;
+            }
+            if (repositoryWeight <= maxWeight) {
+                entries.put(key, new Entry(repository, repositoryWeight));
+                weight += repositoryWeight;
+                evict();
+            } else if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Data model (weight: " + repositoryWeight + ") is too large to be cached.");
+            }
+        }
+        return repository;
+    }
+
+    // Expects caller to hold lock on this.
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && iterator.hasNext()) {
+            Entry eldest = iterator.next();
+            iterator.remove();
+            weight -= eldest.weight;
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all cached repositories (statistics are kept).
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * @return Number of repositories currently cached.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Total weight of repositories currently cached.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * @return Number of loads served by a cached repository.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return Number of loads that needed a data model parsing.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return Number of repositories removed from cache to respect size or weight limits.
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return "MetadataRepositoryCache{" + //$NON-NLS-1$
+                "size=" + size() + //$NON-NLS-1$
+                ", weight=" + getWeight() + //$NON-NLS-1$
+                ", hits=" + getHitCount() + //$NON-NLS-1$
+                ", misses=" + getMissCount() + //$NON-NLS-1$
+                ", evictions=" + getEvictionCount() + //$NON-NLS-1$
+                '}';
+    }
+
+    private static long weightOf(MetadataRepository repository) {
+        long weight = 1;
+        for (ComplexTypeMetadata type : repository.getUserComplexTypes()) {
+            weight += type.getFields().size();
+        }
+        for (ComplexTypeMetadata type : repository.getNonInstantiableTypes()) {
+            weight += type.getFields().size();
+        }
+        return weight;
+    }
+
+    static byte[] read(InputStream inputStream) {
+        try {
+            ByteArrayOutputStream content = new ByteArrayOutputStream(8192);
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return content.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not read data model.", e);
+        }
+    }
+
+    // Also used by MetadataRepository to look up data models in TrustedModelStore.
+    static String digest(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content);
+            char[] key = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                key[i * 2] = HEX[(digest[i] >> 4) & 0xF];
+                key[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(key);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Digest algorithm '" + DIGEST_ALGORITHM + "' is not available.", e);
+        }
+    }
+
+    private static class Entry {
+
+        private final MetadataRepository repository;
+
+        private final long weight;
+
+        private Entry(MetadataRepository repository, long weight) {
+            this.repository = repository;
+            this.weight = weight;
+        }
+    }
+}
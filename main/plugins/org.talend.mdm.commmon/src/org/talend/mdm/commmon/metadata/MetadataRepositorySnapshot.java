@@ -0,0 +1,842 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * Compact binary snapshot of a frozen {@link MetadataRepository}: a snapshot can be written once a data model was
+ * parsed and validated, and read later to get a ready to use repository without any XML Schema (EMF) parsing.
+ * </p>
+ * <p>
+ * A snapshot records type <b>declarations</b> (declared fields, super types, keys, access rights, foreign keys,
+ * primary key info, lookup fields, simple type facets, localized labels, line and column numbers...): reading a
+ * snapshot declares the same types and replays the repository "freeze" (inheritance, reusable type usages...), so read
+ * repository exposes the same types, fields, references and usages as the one that was written.
+ * </p>
+ * <p>
+ * Known limitations:
+ * <ul>
+ * <li>DOM elements ({@link MetadataRepository#XSD_DOM_ELEMENT}) are not part of the snapshot (snapshots are expected to
+ * be taken from already validated data models).</li>
+ * <li>Top level elements with no key (not entity types, see TMDM-6264) are not part of the snapshot.</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Format starts with a magic number and a version: {@link #read(InputStream)} rejects any snapshot written with a
+ * different format version (callers are expected to fall back to a regular
+ * {@link MetadataRepository#load(InputStream, ValidationHandler)} in this case).
+ * </p>
+ */
+public class MetadataRepositorySnapshot {
+
+    /**
+     * Current version of the snapshot format. Any change in the format must increment this value.
+     */
+    public static final int VERSION = 3;
+
+    private static final Logger LOGGER = Logger.getLogger(MetadataRepositorySnapshot.class);
+
+    private static final int MAGIC = 0x4D444D53; // "MDMS"
+
+    private static final int SIMPLE_FIELD = 1;
+
+    private static final int ENUMERATION_FIELD = 2;
+
+    private static final int REFERENCE_FIELD = 3;
+
+    private static final int CONTAINED_FIELD = 4;
+
+    private static final int HAS_LINE = 1;
+
+    private static final int HAS_COLUMN = 1 << 1;
+
+    private static final int HAS_MAX_LENGTH = 1 << 2;
+
+    private static final int HAS_COMPLEX_TYPE_NAME = 1 << 3;
+
+    private MetadataRepositorySnapshot() {
+    }
+
+    /**
+     * Writes a snapshot of <code>repository</code> to <code>output</code>. This method does not close
+     * <code>output</code>.
+     *
+     * @param repository A repository that was successfully loaded (all types must be frozen).
+     * @param output The stream where snapshot is written.
+     * @throws IOException In case of write error.
+     * @throws IllegalStateException If <code>repository</code> contains types that are not frozen.
+     */
+    public static void write(MetadataRepository repository, OutputStream output) throws IOException {
+        if (repository == null) {
+            throw new IllegalArgumentException("Repository cannot be null.");
+        }
+        if (output == null) {
+            throw new IllegalArgumentException("Output stream cannot be null.");
+        }
+        new Writer(repository).write(output);
+    }
+
+    /**
+     * Reads a snapshot previously written with {@link #write(MetadataRepository, OutputStream)}. This method does not
+     * close <code>input</code>.
+     *
+     * @param input A stream that contains a snapshot.
+     * @return A frozen repository with the same types as the written one.
+     * @throws IOException In case of read error.
+     * @throws IllegalArgumentException If stream does not contain a snapshot or a snapshot in an other version.
+     */
+    public static MetadataRepository read(InputStream input) throws IOException {
+        if (input == null) {
+            throw new IllegalArgumentException("Input stream cannot be null.");
+        }
+        return new Reader(new DataInputStream(input)).read();
+    }
+
+    /**
+     * Reads a snapshot stored in <code>file</code> (file content is memory mapped).
+     *
+     * @param file A file that contains a snapshot.
+     * @return A frozen repository with the same types as the written one.
+     * @throws IOException In case of read error.
+     * @see #read(InputStream)
+     */
+    public static MetadataRepository read(File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null.");
+        }
+        FileInputStream input = new FileInputStream(file);
+        try {
+            FileChannel channel = input.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(new ByteBufferInputStream(buffer));
+        } finally {
+            input.close();
+        }
+    }
+
+    private static class Writer {
+
+        private final MetadataRepository repository;
+
+        private final Map<String, Integer> strings = new LinkedHashMap<String, Integer>();
+
+        private final Map<String, Set<String>> nonInstantiableSubTypes = new HashMap<String, Set<String>>();
+
+        private DataOutputStream out;
+
+        private Writer(MetadataRepository repository) {
+            this.repository = repository;
+        }
+
+        void write(OutputStream output) throws IOException {
+            String userNamespace = repository.getUserNamespace();
+            List<SimpleTypeMetadata> simpleTypes = new ArrayList<SimpleTypeMetadata>();
+            for (TypeMetadata type : repository.getTypes()) {
+                if (type instanceof SimpleTypeMetadata && userNamespace.equals(type.getNamespace())) {
+                    simpleTypes.add((SimpleTypeMetadata) type);
+                }
+            }
+            List<ComplexTypeMetadata> nonInstantiableTypes = repository.getNonInstantiableTypes();
+            Collection<ComplexTypeMetadata> entityTypes = repository.getUserComplexTypes();
+            for (ComplexTypeMetadata type : nonInstantiableTypes) {
+                assertFrozen(type);
+                Set<String> subTypeNames = new HashSet<String>();
+                for (ComplexTypeMetadata subType : type.getSubTypes()) {
+                    subTypeNames.add(subType.getName());
+                }
+                nonInstantiableSubTypes.put(type.getName(), subTypeNames);
+            }
+            for (ComplexTypeMetadata type : entityTypes) {
+                assertFrozen(type);
+            }
+            // Body is written first (to build the string table).
+            ByteArrayOutputStream body = new ByteArrayOutputStream(8192);
+            out = new DataOutputStream(body);
+            writeInt(simpleTypes.size());
+            for (SimpleTypeMetadata simpleType : simpleTypes) {
+                writeString(simpleType.getNamespace());
+                writeString(simpleType.getName());
+                writeTypeReferences(simpleType.getSuperTypes());
+                writeData(simpleType);
+                writeFacets(simpleType);
+            }
+            writeInt(nonInstantiableTypes.size());
+            for (ComplexTypeMetadata type : nonInstantiableTypes) {
+                writeComplexType(type);
+            }
+            writeInt(entityTypes.size());
+            for (ComplexTypeMetadata type : entityTypes) {
+                writeComplexType(type);
+            }
+            out.flush();
+            // Header, string table then body.
+            out = new DataOutputStream(output);
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            writeInt(strings.size());
+            for (String string : strings.keySet()) {
+                byte[] bytes = string.getBytes("UTF-8"); //$NON-NLS-1$
+                writeInt(bytes.length);
+                out.write(bytes);
+            }
+            body.writeTo(out);
+            out.flush();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Wrote snapshot (" + (entityTypes.size() + nonInstantiableTypes.size()) + " types, "
+                        + strings.size() + " strings, " + out.size() + " bytes).");
+            }
+        }
+
+        private static void assertFrozen(ComplexTypeMetadata type) {
+            if (!type.isFrozen()) {
+                throw new IllegalStateException("Type '" + type.getName() + "' is not frozen (repository must be loaded before snapshot).");
+            }
+        }
+
+        private void writeComplexType(ComplexTypeMetadata type) throws IOException {
+            writeString(type.getNamespace());
+            writeString(type.getName());
+            out.writeBoolean(type.isInstantiable());
+            writeStrings(type.getWriteUsers());
+            writeStrings(type.getDenyCreate());
+            writeStrings(type.getHideUsers());
+            writeStrings(type.getDenyDelete(ComplexTypeMetadata.DeleteType.PHYSICAL));
+            writeStrings(type.getDenyDelete(ComplexTypeMetadata.DeleteType.LOGICAL));
+            writeStrings(type.getWorkflowAccessRights());
+            writeString(type.getSchematron());
+            writeFieldReferences(type.getPrimaryKeyInfo());
+            writeFieldReferences(type.getLookupFields());
+            writeLabels(type instanceof ComplexTypeMetadataImpl ? ((ComplexTypeMetadataImpl) type).getLocalizedNames() : null);
+            writeData(type);
+            writeTypeReferences(getDeclaredSuperTypes(type));
+            Collection<FieldMetadata> keyFields = type.getKeyFields();
+            writeInt(keyFields.size());
+            for (FieldMetadata keyField : keyFields) {
+                writeString(keyField.getPath());
+                writeData(keyField);
+            }
+            List<FieldMetadata> declaredFields = new ArrayList<FieldMetadata>();
+            for (FieldMetadata field : type.getFields()) {
+                if (isDeclaredIn(field, type)) {
+                    declaredFields.add(field);
+                }
+            }
+            writeInt(declaredFields.size());
+            for (FieldMetadata field : declaredFields) {
+                writeField(field);
+            }
+        }
+
+        // Super types of a frozen type only contain types with same instantiable status: reusable type an entity
+        // inherits from is found using the sub types of the reusable types.
+        private List<TypeMetadata> getDeclaredSuperTypes(ComplexTypeMetadata type) {
+            List<TypeMetadata> superTypes = new ArrayList<TypeMetadata>(type.getSuperTypes());
+            if (type.isInstantiable()) {
+                List<ComplexTypeMetadata> candidates = new ArrayList<ComplexTypeMetadata>();
+                for (ComplexTypeMetadata nonInstantiableType : repository.getNonInstantiableTypes()) {
+                    if (nonInstantiableSubTypes.get(nonInstantiableType.getName()).contains(type.getName())) {
+                        candidates.add(nonInstantiableType);
+                    }
+                }
+                // Only keep direct super types (sub types include the whole type hierarchy).
+                Iterator<ComplexTypeMetadata> iterator = candidates.iterator();
+                while (iterator.hasNext()) {
+                    Set<String> subTypes = nonInstantiableSubTypes.get(iterator.next().getName());
+                    boolean isIndirect = false;
+                    for (ComplexTypeMetadata candidate : candidates) {
+                        isIndirect |= subTypes.contains(candidate.getName());
+                    }
+                    for (TypeMetadata superType : type.getSuperTypes()) {
+                        isIndirect |= subTypes.contains(superType.getName());
+                    }
+                    if (isIndirect) {
+                        iterator.remove();
+                    }
+                }
+                superTypes.addAll(candidates);
+            }
+            return superTypes;
+        }
+
+        private static boolean isDeclaredIn(FieldMetadata field, ComplexTypeMetadata type) {
+            TypeMetadata declaringType;
+            if (field instanceof ReferenceFieldMetadata) {
+                declaringType = ((ReferenceFieldMetadata) field).getDeclaringTypeDefinition();
+            } else {
+                declaringType = field.getDeclaringType();
+            }
+            return declaringType == null || type.getName().equals(declaringType.getName());
+        }
+
+        private void writeField(FieldMetadata field) throws IOException {
+            if (field instanceof ReferenceFieldMetadata) {
+                out.writeByte(REFERENCE_FIELD);
+            } else if (field instanceof ContainedTypeFieldMetadata) {
+                out.writeByte(CONTAINED_FIELD);
+            } else if (field instanceof EnumerationFieldMetadata) {
+                out.writeByte(ENUMERATION_FIELD);
+            } else if (field instanceof SimpleTypeFieldMetadata) {
+                out.writeByte(SIMPLE_FIELD);
+            } else {
+                throw new IllegalArgumentException("Field '" + field.getPath() + "' (" + field.getClass().getName()
+                        + ") is not supported in snapshots.");
+            }
+            writeString(field.getName());
+            out.writeBoolean(field.isMany());
+            out.writeBoolean(field.isMandatory());
+            writeStrings(field.getWriteUsers());
+            writeStrings(field.getHideUsers());
+            writeStrings(field.getWorkflowAccessRights());
+            writeData(field);
+            if (field instanceof ReferenceFieldMetadata) {
+                ReferenceFieldMetadata referenceField = (ReferenceFieldMetadata) field;
+                writeLabels(referenceField.getLocalizedNames());
+                ComplexTypeMetadata referencedType = referenceField.getReferencedType();
+                writeString(referencedType.getName());
+                FieldMetadata referencedField = referenceField.getReferencedField();
+                // A reference to the key field(s) is written without path (resolved to key when read).
+                boolean isKeyReference = referencedField instanceof CompoundFieldMetadata;
+                for (FieldMetadata keyField : referencedType.getKeyFields()) {
+                    isKeyReference |= keyField == referencedField;
+                }
+                writeString(isKeyReference ? null : getRelativePath(referencedField));
+                writeData(referencedField);
+                writeFieldReferences(referenceField.getForeignKeyInfoFields());
+                out.writeBoolean(referenceField.isFKIntegrity());
+                out.writeBoolean(referenceField.allowFKIntegrityOverride());
+                writeFieldType(referenceField.getType());
+            } else if (field instanceof ContainedTypeFieldMetadata) {
+                ContainedTypeFieldMetadata containedField = (ContainedTypeFieldMetadata) field;
+                writeLabels(containedField.getLocalizedNames());
+                ComplexTypeMetadata containedType = containedField.getContainedType();
+                if (containedType instanceof ContainedComplexTypeMetadata) {
+                    containedType = ((ContainedComplexTypeMetadata) containedType).getContainedType();
+                }
+                boolean isAnonymous = containedType.getName().startsWith(MetadataRepository.ANONYMOUS_PREFIX);
+                out.writeBoolean(isAnonymous);
+                if (isAnonymous) {
+                    writeComplexType(containedType);
+                } else {
+                    writeTypeReference(containedType);
+                }
+            } else if (field instanceof EnumerationFieldMetadata) {
+                writeLabels(((EnumerationFieldMetadata) field).getLocalizedNames());
+                writeFieldType(field.getType());
+            } else {
+                writeLabels(((SimpleTypeFieldMetadata) field).getLocalizedNames());
+                writeFieldType(field.getType());
+            }
+        }
+
+        private void writeFieldType(TypeMetadata type) throws IOException {
+            boolean isAnonymous = type instanceof SimpleTypeMetadata && type.getName().startsWith(MetadataRepository.ANONYMOUS_PREFIX);
+            out.writeBoolean(isAnonymous);
+            if (isAnonymous) {
+                writeString(type.getNamespace());
+                writeString(type.getName());
+                writeTypeReferences(type.getSuperTypes());
+                writeData(type);
+                writeFacets((SimpleTypeMetadata) type);
+            } else {
+                writeTypeReference(type);
+            }
+        }
+
+        private void writeFacets(SimpleTypeMetadata type) throws IOException {
+            List<String[]> facets = type.getFacets();
+            writeInt(facets.size());
+            for (String[] facet : facets) {
+                writeString(facet[0]);
+                writeString(facet[1]);
+            }
+        }
+
+        private void writeTypeReferences(Collection<TypeMetadata> types) throws IOException {
+            writeInt(types.size());
+            for (TypeMetadata type : types) {
+                writeTypeReference(type);
+            }
+        }
+
+        private void writeTypeReference(TypeMetadata type) throws IOException {
+            writeString(type.getNamespace());
+            writeString(type.getName());
+            out.writeBoolean(type.isInstantiable());
+        }
+
+        private void writeFieldReferences(List<FieldMetadata> fields) throws IOException {
+            writeInt(fields.size());
+            for (FieldMetadata field : fields) {
+                writeString(getContainingTypeName(field));
+                writeString(getRelativePath(field));
+                writeData(field);
+            }
+        }
+
+        private static String getContainingTypeName(FieldMetadata field) {
+            if (field instanceof UnresolvedFieldMetadata) {
+                return field.getContainingType().getName();
+            }
+            return field.getEntityTypeName();
+        }
+
+        private static String getRelativePath(FieldMetadata field) {
+            if (field instanceof UnresolvedFieldMetadata) {
+                return field.getName();
+            }
+            return field.getPath();
+        }
+
+        private void writeLabels(Map<Locale, String> labels) throws IOException {
+            if (labels == null) {
+                writeInt(0);
+                return;
+            }
+            writeInt(labels.size());
+            for (Map.Entry<Locale, String> entry : labels.entrySet()) {
+                // Parts are written separately: Locale#toString() can't be parsed back (e.g. "zh_CN_#Hans").
+                Locale locale = entry.getKey();
+                writeString(locale.getLanguage());
+                writeString(locale.getCountry());
+                writeString(locale.getVariant());
+                writeString(entry.getValue());
+            }
+        }
+
+        private void writeData(MetadataExtensible element) throws IOException {
+            Integer line = element.getData(MetadataRepository.XSD_LINE_NUMBER);
+            Integer column = element.getData(MetadataRepository.XSD_COLUMN_NUMBER);
+            String maxLength = element.getData(MetadataRepository.DATA_MAX_LENGTH);
+            String complexTypeName = element.getData(MetadataRepository.COMPLEX_TYPE_NAME);
+            int flags = 0;
+            flags |= line != null ? HAS_LINE : 0;
+            flags |= column != null ? HAS_COLUMN : 0;
+            flags |= maxLength != null ? HAS_MAX_LENGTH : 0;
+            flags |= complexTypeName != null ? HAS_COMPLEX_TYPE_NAME : 0;
+            out.writeByte(flags);
+            if (line != null) {
+                writeSignedInt(line);
+            }
+            if (column != null) {
+                writeSignedInt(column);
+            }
+            if (maxLength != null) {
+                writeString(maxLength);
+            }
+            if (complexTypeName != null) {
+                writeString(complexTypeName);
+            }
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            if (values == null) {
+                writeInt(0);
+                return;
+            }
+            writeInt(values.size());
+            for (String value : values) {
+                writeString(value);
+            }
+        }
+
+        // Strings are written as index in string table (0 means null).
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                writeInt(0);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size() + 1;
+                strings.put(value, index);
+            }
+            writeInt(index);
+        }
+
+        private void writeSignedInt(int value) throws IOException {
+            writeInt((value << 1) ^ (value >> 31));
+        }
+
+        // Variable length encoding (7 bits per byte).
+        private void writeInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream in;
+
+        private final MetadataRepository repository = new MetadataRepository();
+
+        private String[] strings;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        MetadataRepository read() throws IOException {
+            int magic;
+            try {
+                magic = in.readInt();
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Input does not contain a data model snapshot.");
+            }
+            if (magic != MAGIC) {
+                throw new IllegalArgumentException("Input does not contain a data model snapshot.");
+            }
+            int version = in.readUnsignedShort();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Snapshot version " + version + " is not supported (expected version "
+                        + VERSION + ").");
+            }
+            strings = new String[readInt()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readInt()];
+                in.readFully(bytes);
+                strings[i] = new String(bytes, "UTF-8"); //$NON-NLS-1$
+            }
+            // Simple types
+            int simpleTypeCount = readInt();
+            for (int i = 0; i < simpleTypeCount; i++) {
+                SimpleTypeMetadata simpleType = new SimpleTypeMetadata(readString(), readString());
+                for (TypeMetadata superType : readTypeReferences()) {
+                    simpleType.addSuperType(superType);
+                }
+                readData(simpleType);
+                readFacets(simpleType);
+                // Types shared by all repositories (such as UUID) are already declared.
+                if (repository.getNonInstantiableType(simpleType.getNamespace(), simpleType.getName()) == null) {
+                    repository.addTypeMetadata(simpleType);
+                }
+            }
+            // Reusable types
+            int nonInstantiableTypeCount = readInt();
+            for (int i = 0; i < nonInstantiableTypeCount; i++) {
+                ComplexTypeMetadata type = readComplexType();
+                if (repository.getNonInstantiableType(type.getNamespace(), type.getName()) == null) {
+                    repository.addTypeMetadata(type);
+                }
+            }
+            // Entity types
+            int entityTypeCount = readInt();
+            for (int i = 0; i < entityTypeCount; i++) {
+                ComplexTypeMetadata type = readComplexType();
+                repository.addTypeMetadata(type);
+                repository.declareEntityType(type);
+                String complexTypeName = type.getData(MetadataRepository.COMPLEX_TYPE_NAME);
+                if (complexTypeName != null) {
+                    TypeMetadata nonInstantiableType = repository.getNonInstantiableType(repository.getUserNamespace(),
+                            complexTypeName);
+                    if (nonInstantiableType instanceof ComplexTypeMetadata) {
+                        ((ComplexTypeMetadata) nonInstantiableType).declareUsage(type);
+                    }
+                }
+            }
+            repository.freeze();
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Read snapshot (" + (entityTypeCount + nonInstantiableTypeCount) + " types).");
+            }
+            return repository;
+        }
+
+        private ComplexTypeMetadata readComplexType() throws IOException {
+            String namespace = readString();
+            String name = readString();
+            boolean isInstantiable = in.readBoolean();
+            List<String> allowWrite = readStrings();
+            List<String> denyCreate = readStrings();
+            List<String> hideUsers = readStrings();
+            List<String> physicalDelete = readStrings();
+            List<String> logicalDelete = readStrings();
+            List<String> workflowAccessRights = readStrings();
+            String schematron = readString();
+            List<FieldMetadata> primaryKeyInfo = readFieldReferences();
+            List<FieldMetadata> lookupFields = readFieldReferences();
+            ComplexTypeMetadataImpl type = new ComplexTypeMetadataImpl(namespace, name, allowWrite, denyCreate, hideUsers,
+                    physicalDelete, logicalDelete, schematron == null ? StringUtils.EMPTY : schematron, primaryKeyInfo,
+                    lookupFields, isInstantiable, workflowAccessRights);
+            for (Map.Entry<Locale, String> label : readLabels().entrySet()) {
+                type.registerName(label.getKey(), label.getValue());
+            }
+            readData(type);
+            for (TypeMetadata superType : readTypeReferences()) {
+                type.addSuperType(superType);
+            }
+            int keyCount = readInt();
+            for (int i = 0; i < keyCount; i++) {
+                SoftIdFieldRef keyField = new SoftIdFieldRef(repository, name, readString());
+                readData(keyField);
+                type.registerKey(keyField);
+            }
+            int fieldCount = readInt();
+            for (int i = 0; i < fieldCount; i++) {
+                type.addField(readField(type));
+            }
+            return type;
+        }
+
+        private FieldMetadata readField(ComplexTypeMetadata containingType) throws IOException {
+            int kind = in.readByte();
+            String name = readString();
+            boolean isMany = in.readBoolean();
+            boolean isMandatory = in.readBoolean();
+            List<String> allowWriteUsers = readStrings();
+            List<String> hideUsers = readStrings();
+            List<String> workflowAccessRights = readStrings();
+            Map<String, Object> data = new HashMap<String, Object>();
+            readData(data);
+            Map<Locale, String> labels = readLabels();
+            FieldMetadata field;
+            switch (kind) {
+            case REFERENCE_FIELD:
+                String referencedTypeName = readString();
+                String referencedFieldPath = readString();
+                FieldMetadata referencedField;
+                if (referencedFieldPath == null) {
+                    referencedField = new SoftIdFieldRef(repository, referencedTypeName);
+                } else {
+                    referencedField = new SoftFieldRef(repository, referencedFieldPath, referencedTypeName);
+                }
+                readData(referencedField);
+                List<FieldMetadata> foreignKeyInfo = readFieldReferences();
+                boolean fkIntegrity = in.readBoolean();
+                boolean fkIntegrityOverride = in.readBoolean();
+                TypeMetadata fieldType = readFieldType();
+                SoftTypeRef referencedType = new SoftTypeRef(repository, repository.getUserNamespace(), referencedTypeName, true);
+                field = new ReferenceFieldMetadata(containingType, false, isMany, isMandatory, name, referencedType,
+                        referencedField, foreignKeyInfo, fkIntegrity, fkIntegrityOverride, fieldType, allowWriteUsers, hideUsers,
+                        workflowAccessRights);
+                break;
+            case CONTAINED_FIELD:
+                ComplexTypeMetadata containedType;
+                if (in.readBoolean()) {
+                    containedType = readComplexType();
+                } else {
+                    containedType = (ComplexTypeMetadata) readTypeReference();
+                }
+                field = new ContainedTypeFieldMetadata(containingType, isMany, isMandatory, name, containedType,
+                        allowWriteUsers, hideUsers, workflowAccessRights);
+                break;
+            case ENUMERATION_FIELD:
+                field = new EnumerationFieldMetadata(containingType, false, isMany, isMandatory, name, readFieldType(),
+                        allowWriteUsers, hideUsers, workflowAccessRights);
+                break;
+            case SIMPLE_FIELD:
+                field = new SimpleTypeFieldMetadata(containingType, false, isMany, isMandatory, name, readFieldType(),
+                        allowWriteUsers, hideUsers, workflowAccessRights);
+                break;
+            default:
+                throw new IllegalArgumentException("Snapshot contains an unknown field kind (" + kind + ").");
+            }
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                field.setData(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Locale, String> label : labels.entrySet()) {
+                field.registerName(label.getKey(), label.getValue());
+            }
+            return field;
+        }
+
+        private TypeMetadata readFieldType() throws IOException {
+            if (in.readBoolean()) {
+                SimpleTypeMetadata anonymousType = new SimpleTypeMetadata(readString(), readString());
+                for (TypeMetadata superType : readTypeReferences()) {
+                    anonymousType.addSuperType(superType);
+                }
+                readData(anonymousType);
+                readFacets(anonymousType);
+                return anonymousType;
+            } else {
+                return readTypeReference();
+            }
+        }
+
+        private void readFacets(SimpleTypeMetadata type) throws IOException {
+            int count = readInt();
+            for (int i = 0; i < count; i++) {
+                type.addFacet(readString(), readString());
+            }
+        }
+
+        private List<TypeMetadata> readTypeReferences() throws IOException {
+            int count = readInt();
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            List<TypeMetadata> types = new ArrayList<TypeMetadata>(count);
+            for (int i = 0; i < count; i++) {
+                types.add(readTypeReference());
+            }
+            return types;
+        }
+
+        private TypeMetadata readTypeReference() throws IOException {
+            return new SoftTypeRef(repository, readString(), readString(), in.readBoolean());
+        }
+
+        private List<FieldMetadata> readFieldReferences() throws IOException {
+            int count = readInt();
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            List<FieldMetadata> fields = new ArrayList<FieldMetadata>(count);
+            for (int i = 0; i < count; i++) {
+                String typeName = readString();
+                SoftFieldRef field = new SoftFieldRef(repository, readString(), typeName);
+                readData(field);
+                fields.add(field);
+            }
+            return fields;
+        }
+
+        private Map<Locale, String> readLabels() throws IOException {
+            int count = readInt();
+            if (count == 0) {
+                return Collections.emptyMap();
+            }
+            Map<Locale, String> labels = new HashMap<Locale, String>();
+            for (int i = 0; i < count; i++) {
+                Locale locale = new Locale(readString(), readString(), readString());
+                labels.put(locale, readString());
+            }
+            return labels;
+        }
+
+        private void readData(MetadataExtensible element) throws IOException {
+            Map<String, Object> data = new HashMap<String, Object>();
+            readData(data);
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                element.setData(entry.getKey(), entry.getValue());
+            }
+        }
+
+        private void readData(Map<String, Object> data) throws IOException {
+            int flags = in.readByte();
+            if ((flags & HAS_LINE) != 0) {
+                data.put(MetadataRepository.XSD_LINE_NUMBER, readSignedInt());
+            }
+            if ((flags & HAS_COLUMN) != 0) {
+                data.put(MetadataRepository.XSD_COLUMN_NUMBER, readSignedInt());
+            }
+            if ((flags & HAS_MAX_LENGTH) != 0) {
+                data.put(MetadataRepository.DATA_MAX_LENGTH, readString());
+            }
+            if ((flags & HAS_COMPLEX_TYPE_NAME) != 0) {
+                data.put(MetadataRepository.COMPLEX_TYPE_NAME, readString());
+            }
+        }
+
+        private List<String> readStrings() throws IOException {
+            int count = readInt();
+            List<String> values = new ArrayList<String>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString());
+            }
+            return values;
+        }
+
+        private String readString() throws IOException {
+            int index = readInt();
+            if (index == 0) {
+                return null;
+            }
+            if (index > strings.length) {
+                throw new IllegalArgumentException("Snapshot is corrupted (string #" + index + " does not exist).");
+            }
+            return strings[index - 1];
+        }
+
+        private int readSignedInt() throws IOException {
+            int value = readInt();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private int readInt() throws IOException {
+            int value = 0;
+            int shift = 0;
+            int current;
+            do {
+                if (shift > 28) {
+                    throw new IllegalArgumentException("Snapshot is corrupted (invalid integer encoding).");
+                }
+                current = in.readUnsignedByte();
+                value |= (current & 0x7F) << shift;
+                shift += 7;
+            } while ((current & 0x80) != 0);
+            return value;
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            return buffer.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return buffer.remaining();
+        }
+    }
+}
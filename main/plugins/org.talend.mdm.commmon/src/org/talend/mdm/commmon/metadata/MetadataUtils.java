@@ -44,14 +44,33 @@ public class MetadataUtils {
      * </p>
      * <p>
      * Code is expected to run in linear time (O(n+p) where n is the number of entities and p the number of references).
-     * Used memory is O(n^2) (due to a dependency ordering).
+     * Used memory is O(n+p). For a frozen repository, entity rank is only computed once.
      * </p>
      *
      * @param repository A {@link MetadataRepository} instance that contains entity types.
      * @return A {@link Map} that maps a entity to its entity rank value.
      */
     public static Map<ComplexTypeMetadata, Long> computeEntityRank(MetadataRepository repository) {
-        List<ComplexTypeMetadata> sortedTypes = sortTypes(repository);
+        TypeOrderCache cache = repository.getTypeOrderCache();
+        if (cache == null) {
+            return _computeEntityRank(repository, sortTypes(repository));
+        }
+        // Repository is frozen: compute entity rank only once.
+        Map<ComplexTypeMetadata, Long> entityRank = cache.getEntityRank();
+        if (entityRank == null) {
+            synchronized (cache) {
+                entityRank = cache.getEntityRank();
+                if (entityRank == null) {
+                    entityRank = Collections.unmodifiableMap(_computeEntityRank(repository, getSortedTypes(repository, cache)));
+                    cache.setEntityRank(entityRank);
+                }
+            }
+        }
+        return new HashMap<ComplexTypeMetadata, Long>(entityRank);
+    }
+
+    private static Map<ComplexTypeMetadata, Long> _computeEntityRank(MetadataRepository repository,
+            List<ComplexTypeMetadata> sortedTypes) {
         int totalNumber = sortedTypes.size();
 
         Map<ComplexTypeMetadata, Long> entityRank = new HashMap<ComplexTypeMetadata, Long>();
@@ -145,10 +164,11 @@ public class MetadataUtils {
      * <li>Use of <i>type</i> as a super type.</li>
      * </ul>
      * This method runs in linear time <i>O(n+p)</i> (<i>n</i> number of types and <i>p</i> number of dependencies
-     * between types). This method uses <i>n²</i> bytes in memory for processing.
+     * between types) and uses <i>O(n+p)</i> memory for processing.
      * </p>
      * <p>
-     * This method is thread safe.
+     * This method is thread safe. For a frozen repository, sort is only computed once and each call returns a copy of
+     * the cached result.
      * </p>
      *
      * @param repository The repository that contains entity types to sort.
@@ -158,8 +178,96 @@ public class MetadataUtils {
      *                                                                     information on where the cycle is.
      */
     public static List<ComplexTypeMetadata> sortTypes(MetadataRepository repository) {
-        List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>(repository.getUserComplexTypes());
-        return _sortTypes(repository, false, types);
+        TypeOrderCache cache = repository.getTypeOrderCache();
+        if (cache == null) {
+            List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>(repository.getUserComplexTypes());
+            return _sortTypes(repository, false, types);
+        }
+        return new ArrayList<ComplexTypeMetadata>(getSortedTypes(repository, cache));
+    }
+
+    // Returns the cached sort of a frozen repository (sort is computed on first call).
+    private static List<ComplexTypeMetadata> getSortedTypes(MetadataRepository repository, TypeOrderCache cache) {
+        List<ComplexTypeMetadata> sortedTypes = cache.getSortedTypes();
+        if (sortedTypes == null) {
+            synchronized (cache) {
+                sortedTypes = cache.getSortedTypes();
+                if (sortedTypes == null) {
+                    List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>(repository.getUserComplexTypes());
+                    try {
+                        sortedTypes = Collections.unmodifiableList(new ArrayList<ComplexTypeMetadata>(_sortTypes(
+                                repository, false, types)));
+                    } catch (CircularDependencyException e) {
+                        // Exception is not cached (sort is computed again on next call), only the fact there's a cycle.
+                        cache.setHasCycle();
+                        throw e;
+                    }
+                    cache.setSortedTypes(sortedTypes);
+                }
+            }
+        }
+        return sortedTypes;
+    }
+
+    /**
+     * <p>
+     * Sorts <code>types</code> (a sub set of the entity types in <code>repository</code>) using the dependency order
+     * of {@link #sortTypes(MetadataRepository)}: for a frozen repository, this reuses the order computed for all
+     * entity types instead of computing the dependencies of <code>types</code> again.
+     * </p>
+     * <p>
+     * Dependencies are the same as the ones {@link #sortTypes(MetadataRepository)} uses (only dependencies between
+     * entity types are considered). If one of the types is not an entity type of <code>repository</code>, if repository
+     * is not frozen or if entity types of repository have a cyclic dependency, dependencies between <code>types</code>
+     * are sorted (with the same dependencies). In all cases, a cycle is only reported if it is between
+     * <code>types</code>.
+     * </p>
+     * <p>
+     * This method is thread safe.
+     * </p>
+     *
+     * @param repository A {@link MetadataRepository} that contains all <code>types</code>.
+     * @param types The types to sort. {@link org.talend.mdm.commmon.metadata.ContainedComplexTypeMetadata Contained
+     * types} are replaced by their containing (top-level) entity type.
+     * @return A sorted list of {@link ComplexTypeMetadata} types. First type of list is a type that has no dependency
+     * on any other type of the list.
+     * @throws org.talend.mdm.commmon.metadata.CircularDependencyException If <code>types</code> contains types that
+     * creates a cyclic dependency.
+     */
+    public static List<ComplexTypeMetadata> sortTypesSubSet(MetadataRepository repository,
+            Collection<ComplexTypeMetadata> types) {
+        TypeOrderCache cache = repository.getTypeOrderCache();
+        if (cache != null && !cache.hasCycle()) {
+            try {
+                getSortedTypes(repository, cache);
+            } catch (CircularDependencyException e) {
+                // Cycle may not be between types: sort types only.
+                return _sortTypes(repository, false, new ArrayList<ComplexTypeMetadata>(types));
+            }
+            final Map<ComplexTypeMetadata, Integer> order = cache.getSortedTypesOrder();
+            Set<ComplexTypeMetadata> topLevelTypes = new HashSet<ComplexTypeMetadata>();
+            boolean isProjectable = true;
+            for (ComplexTypeMetadata type : types) {
+                ComplexTypeMetadata topLevelType = type instanceof ContainedComplexTypeMetadata ? type.getEntity() : type;
+                if (!order.containsKey(topLevelType)) {
+                    isProjectable = false;
+                    break;
+                }
+                topLevelTypes.add(topLevelType);
+            }
+            if (isProjectable) {
+                List<ComplexTypeMetadata> sortedTypes = new ArrayList<ComplexTypeMetadata>(topLevelTypes);
+                Collections.sort(sortedTypes, new Comparator<ComplexTypeMetadata>() {
+
+                    @Override
+                    public int compare(ComplexTypeMetadata type1, ComplexTypeMetadata type2) {
+                        return order.get(type1) - order.get(type2);
+                    }
+                });
+                return sortedTypes;
+            }
+        }
+        return _sortTypes(repository, false, new ArrayList<ComplexTypeMetadata>(types));
     }
 
     /**
@@ -171,7 +279,7 @@ public class MetadataUtils {
      * <li>Use of <i>type</i> as a super type.</li>
      * </ul>
      * This method runs in linear time <i>O(n+p)</i> (<i>n</i> number of types and <i>p</i> number of dependencies
-     * between types). This method uses <i>n²</i> bytes in memory for processing.
+     * between types) and uses <i>O(n+p)</i> memory for processing.
      * </p>
      * <p>
      * This method is thread safe.
@@ -197,162 +305,102 @@ public class MetadataUtils {
     }
 
     private static List<ComplexTypeMetadata> _sortTypes(MetadataRepository repository,
-                                                        final boolean sortAllTypes,
+                                                        boolean sortAllTypes,
                                                         List<ComplexTypeMetadata> typesSubSet) {
         /*
          * Compute additional data for topological sorting
          */
         // Ensure to get only top level types (TMDM-7235)
-        final List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>();
+        List<ComplexTypeMetadata> types = new ArrayList<ComplexTypeMetadata>();
+        Map<ComplexTypeMetadata, Integer> typeIds = new HashMap<ComplexTypeMetadata, Integer>();
         for (ComplexTypeMetadata currentType : typesSubSet) {
+            ComplexTypeMetadata topLevelType = currentType;
             if (currentType instanceof ContainedComplexTypeMetadata) {
-                types.add(currentType.getEntity());
-            } else if (!types.contains(currentType)) {
-                types.add(currentType);
+                topLevelType = currentType.getEntity();
+            }
+            if (!typeIds.containsKey(topLevelType)) {
+                typeIds.put(topLevelType, types.size());
+                types.add(topLevelType);
             }
         }
-        // Create the dependency matrix
-        final int typeNumber = types.size();
-        byte[][] dependencyGraph = new byte[typeNumber][typeNumber];
-        for (final ComplexTypeMetadata type : types) {
-            dependencyGraph[getId(type, types)] = type.accept(new DefaultMetadataVisitor<byte[]>() {
-
-                final Set<TypeMetadata> processedTypes = new HashSet<TypeMetadata>();
-
-                final Set<TypeMetadata> processedReferences = new HashSet<TypeMetadata>();
-
-                final byte[] lineContent = new byte[typeNumber]; // Stores dependencies of current type
-
-                @Override
-                public byte[] visit(ComplexTypeMetadata complexType) {
-                    if (processedTypes.contains(complexType)) {
-                        return lineContent;
-                    } else {
-                        processedTypes.add(complexType);
-                    }
-                    if (sortAllTypes || complexType.isInstantiable()) {
-                        Collection<TypeMetadata> superTypes = complexType.getSuperTypes();
-                        for (TypeMetadata superType : superTypes) {
-                            if (superType instanceof ComplexTypeMetadata) {
-                                lineContent[getId(((ComplexTypeMetadata) superType), types)]++;
-                            }
-                        }
-                        super.visit(complexType);
-                    }
-                    if (complexType.isInstantiable()) {
-                        processedTypes.clear();
-                    }
-                    return lineContent;
-                }
-
-                @Override
-                public byte[] visit(ContainedTypeFieldMetadata containedField) {
-                    ComplexTypeMetadata containedType = containedField.getContainedType();
-                    if (processedTypes.contains(containedType)) {
-                        return lineContent;
-                    } else {
-                        processedTypes.add(containedType);
-                    }
-                    containedType.accept(this);
-                    for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
-                        if (processedTypes.contains(subType)) {
-                            return lineContent;
-                        } else {
-                            processedTypes.add(subType);
-                            subType.accept(this);
-                        }
-                    }
-                    return lineContent;
-                }
-
-                @Override
-                public byte[] visit(ReferenceFieldMetadata referenceField) {
-                    boolean isInherited = !referenceField.getDeclaringType().equals(referenceField.getContainingType());
-                    // Only handle FK declared IN the type (inherited FKs are already processed).
-                    if (isInherited) {
-                        return lineContent;
-                    }
-                    // Within entity count only once references to other type
-                    ComplexTypeMetadata referencedType = referenceField.getReferencedType();
-                    if (!processedReferences.add(referencedType)) {
-                        return lineContent;
-                    }
-                    // Only takes into account mandatory and FK integrity-enabled FKs.
-                    if (isMandatory(referenceField) && referenceField.isFKIntegrity()) {
-                        if (sortAllTypes || referencedType.isInstantiable()) {
-                            if (types.contains(referencedType)) {
-                                lineContent[getId(referencedType, types)]++;
-                                // Implicitly include reference to sub types of referenced type.
-                                for (ComplexTypeMetadata subType : referencedType.getSubTypes()) {
-                                    lineContent[getId(subType, types)]++;
-                                }
-                            }
-                        }
-                    }
-                    return lineContent;
-                }
-
-                private boolean isMandatory(FieldMetadata field) {
-                    ComplexTypeMetadata containingType = field.getContainingType();
-                    FieldMetadata containerField = containingType.getContainer();
-                    if (containerField != null) {
-                        return isMandatory(containerField) && field.isMandatory();
-                    } else {
-                        return field.isMandatory();
-                    }
-                }
-            });
+        // Create the dependency lists: dependencies[i] are the ids of the types type i depends on (and
+        // dependencyCounts[i] the number of edges to each of them). dependents[j] are the ids of the types that
+        // depend on type j.
+        int typeNumber = types.size();
+        int[][] dependencies = new int[typeNumber][];
+        int[][] dependencyCounts = new int[typeNumber][];
+        int[] dependentNumber = new int[typeNumber];
+        DependencyCollector collector = new DependencyCollector(sortAllTypes, typeIds);
+        for (int id = 0; id < typeNumber; id++) {
+            types.get(id).accept(collector);
+            dependencies[id] = collector.getDependencies();
+            dependencyCounts[id] = collector.getDependencyCounts();
+            collector.reset();
+            for (int dependency : dependencies[id]) {
+                dependentNumber[dependency]++;
+            }
+        }
+        int[][] dependents = new int[typeNumber][];
+        for (int id = 0; id < typeNumber; id++) {
+            dependents[id] = new int[dependentNumber[id]];
+            dependentNumber[id] = 0;
         }
-        // Log dependency matrix (before sort)
+        for (int id = 0; id < typeNumber; id++) {
+            for (int dependency : dependencies[id]) {
+                dependents[dependency][dependentNumber[dependency]++] = id;
+            }
+        }
+        // Log dependencies (before sort)
         if (LOGGER.isTraceEnabled()) {
-            StringBuilder builder = logDependencyMatrix(dependencyGraph);
-            LOGGER.trace(builder.toString());
+            LOGGER.trace(logDependencies(types, dependencies, dependencyCounts, null));
         }
         /*
          * TOPOLOGICAL SORTING See "Kahn, A. B. (1962), "Topological sorting of large
          * networks", Communications of the ACM"
          */
         List<ComplexTypeMetadata> sortedTypes = new LinkedList<ComplexTypeMetadata>();
-        Set<ComplexTypeMetadata> noIncomingEdges = new HashSet<ComplexTypeMetadata>();
-        int lineNumber = 0;
-        for (byte[] line : dependencyGraph) {
-            if (!hasIncomingEdges(line)) {
-                noIncomingEdges.add(getType(types, lineNumber));
+        int[] unresolvedDependencies = new int[typeNumber]; // Number of dependencies not yet in sortedTypes
+        boolean[] isSorted = new boolean[typeNumber];
+        LinkedList<Integer> noIncomingEdges = new LinkedList<Integer>();
+        for (int id = 0; id < typeNumber; id++) {
+            unresolvedDependencies[id] = dependencies[id].length;
+            if (unresolvedDependencies[id] == 0) {
+                noIncomingEdges.add(id);
             }
-            lineNumber++;
         }
         while (!noIncomingEdges.isEmpty()) {
-            Iterator<ComplexTypeMetadata> iterator = noIncomingEdges.iterator();
-            ComplexTypeMetadata type = iterator.next();
-            iterator.remove();
-            sortedTypes.add(type);
-            int columnNumber = getId(type, types);
-            for (int i = 0; i < typeNumber; i++) {
-                int edge = dependencyGraph[i][columnNumber];
-                if (edge > 0) {
-                    dependencyGraph[i][columnNumber] -= edge;
-                    if (!hasIncomingEdges(dependencyGraph[i])) {
-                        noIncomingEdges.add(getType(types, i));
-                    }
+            int id = noIncomingEdges.removeFirst();
+            sortedTypes.add(types.get(id));
+            isSorted[id] = true;
+            for (int dependent : dependents[id]) {
+                if (--unresolvedDependencies[dependent] == 0) {
+                    noIncomingEdges.add(dependent);
                 }
             }
         }
-        // Log dependency matrix (after sort)
-        if (LOGGER.isTraceEnabled()) {
-            StringBuilder builder = logDependencyMatrix(dependencyGraph);
-            LOGGER.trace(builder.toString());
-        }
         // Check for cycles
-        if (sortedTypes.size() < dependencyGraph.length) {
-            lineNumber = 0;
+        if (sortedTypes.size() < typeNumber) {
+            // Remaining edges are the edges to types that could not be sorted.
+            for (int id = 0; id < typeNumber; id++) {
+                int[] lineDependencies = dependencies[id];
+                for (int i = 0; i < lineDependencies.length; i++) {
+                    if (isSorted[lineDependencies[i]]) {
+                        dependencyCounts[id][i] = 0;
+                    }
+                }
+            }
+            // Log dependencies (after sort)
+            if (LOGGER.isTraceEnabled()) {
+                LOGGER.trace(logDependencies(types, dependencies, dependencyCounts, isSorted));
+            }
             List<List<ComplexTypeMetadata>> cycles = new LinkedList<List<ComplexTypeMetadata>>();
-            // use dependency graph matrix to get cyclic dependencies (if any).
-            for (byte[] line : dependencyGraph) {
-                if (hasIncomingEdges(line)) { // unresolved dependency (means this is a cycle start).
+            // use remaining dependencies to get cyclic dependencies (if any).
+            for (int lineNumber = 0; lineNumber < typeNumber; lineNumber++) {
+                if (unresolvedDependencies[lineNumber] > 0) { // unresolved dependency (means this is a cycle start).
                     List<ComplexTypeMetadata> dependencyPath = new LinkedList<ComplexTypeMetadata>();
                     int currentLineNumber = lineNumber;
                     do {
-                        ComplexTypeMetadata type = getType(types, currentLineNumber);
+                        ComplexTypeMetadata type = types.get(currentLineNumber);
                         dependencyPath.add(type);
                         InboundReferences incomingReferences = new InboundReferences(type);
                         Set<ReferenceFieldMetadata> incomingFields = repository.accept(incomingReferences);
@@ -363,9 +411,11 @@ public class MetadataUtils {
                             // (but we only care about the entity relations, so use of the reusable types
                             // in entities).
                             if (containingType != null) {
-                                int currentDependency = getId(containingType, types);
-                                if (hasIncomingEdges(dependencyGraph[currentDependency])) {
-                                    dependencyGraph[currentLineNumber][currentDependency]--;
+                                Integer currentDependency = typeIds.get(containingType);
+                                // Types that are not sorted can not be part of a cycle.
+                                if (currentDependency != null && unresolvedDependencies[currentDependency] > 0) {
+                                    removeEdge(currentLineNumber, currentDependency, dependencies, dependencyCounts,
+                                            unresolvedDependencies);
                                     currentLineNumber = currentDependency;
                                     hasMetDependency = true;
                                     break;
@@ -377,12 +427,11 @@ public class MetadataUtils {
                         }
                     } while (currentLineNumber != lineNumber);
                     if (dependencyPath.size() >= 1) {
-                        dependencyPath.add(getType(types, lineNumber)); // Include cycle start to get a better exception
+                        dependencyPath.add(types.get(lineNumber)); // Include cycle start to get a better exception
                         // message.
                         cycles.add(dependencyPath);
                     }
                 }
-                lineNumber++;
             }
             if (!cycles.isEmpty()) { // Found cycle(s): report it/them as exception
                 Iterator<List<ComplexTypeMetadata>> cyclesIterator = cycles.iterator();
@@ -412,71 +461,182 @@ public class MetadataUtils {
         return sortedTypes;
     }
 
-    private static StringBuilder logDependencyMatrix(byte[][] dependencyGraph) {
-        StringBuilder builder = new StringBuilder();
-        builder.append("Dependency matrix").append('\n');
-        int maxSpace = getNumberLength(dependencyGraph.length);
-        for (int i = 0; i <= maxSpace; i++) {
-            builder.append(' ');
-        }
-        for (int i = 0; i < dependencyGraph.length; i++) {
-            builder.append(i);
-            for (int j = 0; j <= maxSpace - getNumberLength(i); j++) {
-                builder.append(' ');
+    // internal method for sortTypes: removes one edge from type 'id' to type 'dependency' (if any left).
+    private static void removeEdge(int id, int dependency, int[][] dependencies, int[][] dependencyCounts,
+            int[] unresolvedDependencies) {
+        int[] lineDependencies = dependencies[id];
+        for (int i = 0; i < lineDependencies.length; i++) {
+            if (lineDependencies[i] == dependency) {
+                if (dependencyCounts[id][i]-- == 1) {
+                    unresolvedDependencies[id]--;
+                }
+                return;
             }
         }
-        builder.append('\n');
-        int line = 0;
-        for (byte[] lineContent : dependencyGraph) {
-            builder.append(line);
-            for (int j = 0; j <= maxSpace - getNumberLength(line); j++) {
-                builder.append(' ');
-            }
-            for (byte b : lineContent) {
-                builder.append(b);
-                for (int j = 0; j <= maxSpace - getNumberLength(b); j++) {
-                    builder.append(' ');
+    }
+
+    private static String logDependencies(List<ComplexTypeMetadata> types, int[][] dependencies, int[][] dependencyCounts,
+            boolean[] isSorted) {
+        StringBuilder builder = new StringBuilder();
+        builder.append("Dependencies").append('\n'); //$NON-NLS-1$
+        for (int id = 0; id < dependencies.length; id++) {
+            if (isSorted != null && isSorted[id]) {
+                continue;
+            }
+            builder.append(id).append(' ').append(types.get(id).getName()).append(" ->"); //$NON-NLS-1$
+            for (int i = 0; i < dependencies[id].length; i++) {
+                if (dependencyCounts[id][i] > 0) {
+                    builder.append(' ').append(dependencies[id][i]).append('(').append(dependencyCounts[id][i]).append(')');
                 }
             }
             builder.append('\n');
-            line++;
         }
-        return builder;
+        return builder.toString();
     }
 
-    private static int getNumberLength(int number) {
-        int length = 1;
-        while (number >= 10) {
-            number %= 10;
-            length++;
+    /**
+     * Collects the dependencies of one type for sortTypes: one edge for each super type and one edge for each mandatory
+     * FK (with FK integrity enabled) to a type (and its sub types). Edges to types not part of the sort are ignored.
+     */
+    private static class DependencyCollector extends DefaultMetadataVisitor<Void> {
+
+        private static final int[] NO_DEPENDENCY = new int[0];
+
+        private final Set<TypeMetadata> processedTypes = new HashSet<TypeMetadata>();
+
+        private final Set<TypeMetadata> processedReferences = new HashSet<TypeMetadata>();
+
+        private final boolean sortAllTypes;
+
+        private final Map<ComplexTypeMetadata, Integer> typeIds;
+
+        private final int[] edges; // Number of edges from current type to each type id
+
+        private final int[] dependencies; // Ids with edges[id] > 0 (in order of discovery)
+
+        private int dependencyNumber;
+
+        private DependencyCollector(boolean sortAllTypes, Map<ComplexTypeMetadata, Integer> typeIds) {
+            this.sortAllTypes = sortAllTypes;
+            this.typeIds = typeIds;
+            this.edges = new int[typeIds.size()];
+            this.dependencies = new int[typeIds.size()];
         }
-        return length;
-    }
 
-    // internal method for sortTypes
-    private static ComplexTypeMetadata getType(List<ComplexTypeMetadata> types, int lineNumber) {
-        return types.get(lineNumber);
-    }
+        private void addEdge(ComplexTypeMetadata type) {
+            if (type instanceof ContainedComplexTypeMetadata) {
+                type = type.getEntity();
+            }
+            Integer id = typeIds.get(type);
+            if (id != null && edges[id]++ == 0) {
+                dependencies[dependencyNumber++] = id;
+            }
+        }
 
-    // internal method for sortTypes
-    private static boolean hasIncomingEdges(byte[] line) {
-        for (byte column : line) {
-            if (column > 0) {
-                return true;
+        int[] getDependencies() {
+            if (dependencyNumber == 0) {
+                return NO_DEPENDENCY;
             }
+            int[] result = new int[dependencyNumber];
+            System.arraycopy(dependencies, 0, result, 0, dependencyNumber);
+            return result;
         }
-        return false;
-    }
 
-    // internal method for sortTypes
-    private static int getId(ComplexTypeMetadata type, List<ComplexTypeMetadata> types) {
-        if (type instanceof ContainedComplexTypeMetadata) {
-            type = type.getEntity();
+        int[] getDependencyCounts() {
+            int[] result = new int[dependencyNumber];
+            for (int i = 0; i < dependencyNumber; i++) {
+                result[i] = edges[dependencies[i]];
+            }
+            return result;
+        }
+
+        void reset() {
+            for (int i = 0; i < dependencyNumber; i++) {
+                edges[dependencies[i]] = 0;
+            }
+            dependencyNumber = 0;
+            processedTypes.clear();
+            processedReferences.clear();
+        }
+
+        @Override
+        public Void visit(ComplexTypeMetadata complexType) {
+            if (processedTypes.contains(complexType)) {
+                return null;
+            } else {
+                processedTypes.add(complexType);
+            }
+            if (sortAllTypes || complexType.isInstantiable()) {
+                Collection<TypeMetadata> superTypes = complexType.getSuperTypes();
+                for (TypeMetadata superType : superTypes) {
+                    if (superType instanceof ComplexTypeMetadata) {
+                        addEdge((ComplexTypeMetadata) superType);
+                    }
+                }
+                super.visit(complexType);
+            }
+            if (complexType.isInstantiable()) {
+                processedTypes.clear();
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ContainedTypeFieldMetadata containedField) {
+            ComplexTypeMetadata containedType = containedField.getContainedType();
+            if (processedTypes.contains(containedType)) {
+                return null;
+            } else {
+                processedTypes.add(containedType);
+            }
+            containedType.accept(this);
+            for (ComplexTypeMetadata subType : containedType.getSubTypes()) {
+                if (processedTypes.contains(subType)) {
+                    return null;
+                } else {
+                    processedTypes.add(subType);
+                    subType.accept(this);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Void visit(ReferenceFieldMetadata referenceField) {
+            boolean isInherited = !referenceField.getDeclaringType().equals(referenceField.getContainingType());
+            // Only handle FK declared IN the type (inherited FKs are already processed).
+            if (isInherited) {
+                return null;
+            }
+            // Within entity count only once references to other type
+            ComplexTypeMetadata referencedType = referenceField.getReferencedType();
+            if (!processedReferences.add(referencedType)) {
+                return null;
+            }
+            // Only takes into account mandatory and FK integrity-enabled FKs.
+            if (isMandatory(referenceField) && referenceField.isFKIntegrity()) {
+                if (sortAllTypes || referencedType.isInstantiable()) {
+                    if (typeIds.containsKey(referencedType)) {
+                        addEdge(referencedType);
+                        // Implicitly include reference to sub types of referenced type.
+                        for (ComplexTypeMetadata subType : referencedType.getSubTypes()) {
+                            addEdge(subType);
+                        }
+                    }
+                }
+            }
+            return null;
         }
-        if (!types.contains(type)) {
-            types.add(type);
+
+        private boolean isMandatory(FieldMetadata field) {
+            ComplexTypeMetadata containingType = field.getContainingType();
+            FieldMetadata containerField = containingType.getContainer();
+            if (containerField != null) {
+                return isMandatory(containerField) && field.isMandatory();
+            } else {
+                return field.isMandatory();
+            }
         }
-        return types.indexOf(type);
     }
 
     /**
@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.w3c.dom.Element;
+
+/**
+ * <p>
+ * A thread safe {@link ValidationHandler} that collects messages sent by several threads and forwards them to another
+ * {@link ValidationHandler} in a deterministic order: messages are sorted by line number, then column number (messages
+ * without location come last), so the delegate receives messages in the same order whatever the order validation
+ * threads sent them.
+ * </p>
+ * <p>
+ * Messages are forwarded on {@link #flush()} or {@link #end()}. Delegate does not need to be thread safe.
+ * </p>
+ *
+ * @see MetadataRepository#setParallelValidation(boolean)
+ */
+public class OrderedValidationHandler implements ValidationHandler {
+
+    private static final Comparator<Message> MESSAGE_ORDER = new Comparator<Message>() {
+
+        @Override
+        public int compare(Message message1, Message message2) {
+            int result = compareLocation(message1.lineNumber, message2.lineNumber);
+            if (result != 0) {
+                return result;
+            }
+            result = compareLocation(message1.columnNumber, message2.columnNumber);
+            if (result != 0) {
+                return result;
+            }
+            result = message1.sourceName.compareTo(message2.sourceName);
+            if (result != 0) {
+                return result;
+            }
+            result = String.valueOf(message1.message).compareTo(String.valueOf(message2.message));
+            if (result != 0) {
+                return result;
+            }
+            return message1.kind - message2.kind;
+        }
+
+        private int compareLocation(Integer location1, Integer location2) {
+            int value1 = location1 == null || location1 < 0 ? Integer.MAX_VALUE : location1;
+            int value2 = location2 == null || location2 < 0 ? Integer.MAX_VALUE : location2;
+            return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+        }
+    };
+
+    private static final int FATAL = 0;
+
+    private static final int ERROR = 1;
+
+    private static final int WARNING = 2;
+
+    private final ValidationHandler delegate;
+
+    private final List<Message> messages = new ArrayList<Message>();
+
+    private final AtomicInteger pendingErrorCount = new AtomicInteger();
+
+    /**
+     * @param delegate The {@link ValidationHandler} that receives the sorted messages.
+     */
+    public OrderedValidationHandler(ValidationHandler delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate handler can not be null.");
+        }
+        this.delegate = delegate;
+    }
+
+    private void add(Message message) {
+        synchronized (messages) {
+            messages.add(message);
+        }
+    }
+
+    @Override
+    public void fatal(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        add(new Message(FATAL, field, null, message, element, lineNumber, columnNumber, error));
+    }
+
+    @Override
+    public void error(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        pendingErrorCount.incrementAndGet();
+        add(new Message(ERROR, field, null, message, element, lineNumber, columnNumber, error));
+    }
+
+    @Override
+    public void warning(FieldMetadata field, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        add(new Message(WARNING, field, null, message, element, lineNumber, columnNumber, error));
+    }
+
+    @Override
+    public void fatal(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        add(new Message(FATAL, null, type, message, element, lineNumber, columnNumber, error));
+    }
+
+    @Override
+    public void error(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        pendingErrorCount.incrementAndGet();
+        add(new Message(ERROR, null, type, message, element, lineNumber, columnNumber, error));
+    }
+
+    @Override
+    public void warning(TypeMetadata type, String message, Element element, Integer lineNumber, Integer columnNumber,
+            ValidationError error) {
+        add(new Message(WARNING, null, type, message, element, lineNumber, columnNumber, error));
+    }
+
+    /**
+     * Sends all messages received so far to the delegate handler (sorted by line and column).
+     */
+    public void flush() {
+        List<Message> sortedMessages;
+        synchronized (messages) {
+            sortedMessages = new ArrayList<Message>(messages);
+            messages.clear();
+        }
+        Collections.sort(sortedMessages, MESSAGE_ORDER);
+        for (Message message : sortedMessages) {
+            if (message.kind == ERROR) {
+                pendingErrorCount.decrementAndGet();
+            }
+            message.sendTo(delegate);
+        }
+    }
+
+    @Override
+    public void end() {
+        flush();
+        delegate.end();
+    }
+
+    @Override
+    public int getErrorCount() {
+        return delegate.getErrorCount() + pendingErrorCount.get();
+    }
+
+    private static class Message {
+
+        private final int kind;
+
+        private final FieldMetadata field;
+
+        private final TypeMetadata type;
+
+        private final String sourceName;
+
+        private final String message;
+
+        private final Element element;
+
+        private final Integer lineNumber;
+
+        private final Integer columnNumber;
+
+        private final ValidationError error;
+
+        private Message(int kind, FieldMetadata field, TypeMetadata type, String message, Element element,
+                Integer lineNumber, Integer columnNumber, ValidationError error) {
+            this.kind = kind;
+            this.field = field;
+            this.type = type;
+            this.message = message;
+            this.element = element;
+            this.lineNumber = lineNumber;
+            this.columnNumber = columnNumber;
+            this.error = error;
+            if (field != null) {
+                sourceName = String.valueOf(field.getName());
+            } else if (type != null) {
+                sourceName = String.valueOf(type.getName());
+            } else {
+                sourceName = ""; //$NON-NLS-1$
+            }
+        }
+
+        private void sendTo(ValidationHandler handler) {
+            switch (kind) {
+            case FATAL:
+                if (field != null) {
+                    handler.fatal(field, message, element, lineNumber, columnNumber, error);
+                } else {
+                    handler.fatal(type, message, element, lineNumber, columnNumber, error);
+                }
+                break;
+            case ERROR:
+                if (field != null) {
+                    handler.error(field, message, element, lineNumber, columnNumber, error);
+                } else {
+                    handler.error(type, message, element, lineNumber, columnNumber, error);
+                }
+                break;
+            default:
+                if (field != null) {
+                    handler.warning(field, message, element, lineNumber, columnNumber, error);
+                } else {
+                    handler.warning(type, message, element, lineNumber, columnNumber, error);
+                }
+            }
+        }
+    }
+}
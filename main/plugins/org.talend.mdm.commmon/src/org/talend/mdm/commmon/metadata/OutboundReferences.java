@@ -58,6 +58,11 @@ public class OutboundReferences extends DefaultMetadataVisitor<Set<ReferenceFiel
 
     @Override
     public Set<ReferenceFieldMetadata> visit(MetadataRepository repository) {
+        ReferenceIndex index = repository.getReferenceIndex();
+        if (index != null) {
+            fieldToCheck.addAll(index.getReferences());
+            return fieldToCheck;
+        }
         Collection<TypeMetadata> types = repository.getTypes();
         for (TypeMetadata type : types) {
             type.accept(this);
@@ -45,7 +45,7 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
 
     private List<FieldMetadata> foreignKeyInfoFields = Collections.emptyList();
 
-    private final Map<Locale, String> localeToLabel = new HashMap<Locale, String>();
+    private Map<Locale, String> localeToLabel = Collections.emptyMap();
 
     private ComplexTypeMetadata referencedType;
 
@@ -113,6 +113,7 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
 
     public void setContainingType(ComplexTypeMetadata typeMetadata) {
         this.containingType = typeMetadata;
+        cachedHashCode = 0; // Containing type may change after freeze (see ContainedComplexTypeMetadata).
     }
 
     public FieldMetadata freeze() {
@@ -174,7 +175,9 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
 
     @Override
     public void registerName(Locale locale, String name) {
-        localeToLabel.put(locale, name);
+        Map<Locale, String> labels = new HashMap<Locale, String>(localeToLabel);
+        labels.put(locale, name);
+        localeToLabel = labels;
     }
 
     @Override
@@ -186,10 +189,19 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
         return localizedName;
     }
 
+    Map<Locale, String> getLocalizedNames() {
+        return Collections.unmodifiableMap(localeToLabel);
+    }
+
     public TypeMetadata getDeclaringType() {
         return containingType;
     }
 
+    // Type that declared this field (getDeclaringType() returns the containing type).
+    TypeMetadata getDeclaringTypeDefinition() {
+        return declaringType;
+    }
+
     public boolean isFKIntegrity() {
         return isFKIntegrity;
     }
@@ -241,10 +253,8 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
                 writeUsers,
                 hideUsers,
                 workflowAccessRights);
-        copy.localeToLabel.putAll(localeToLabel);
-        if (dataMap != null) {
-            copy.dataMap = new HashMap<String, Object>(dataMap);
-        }
+        copy.localeToLabel = localeToLabel;
+        shareData(copy);
         return copy;
     }
 
@@ -318,13 +328,15 @@ public class ReferenceFieldMetadata extends MetadataExtensions implements FieldM
         int result = (isKey ? 1 : 0);
         result = 31 * result + (isMany ? 1 : 0);
         result = 31 * result + (foreignKeyInfoFields != null ? foreignKeyInfoFields.hashCode() : 0);
-        result = 31 * result + (containingType != null ? containingType.hashCode() : 0);
-        result = 31 * result + (declaringType != null ? declaringType.hashCode() : 0);
+        result = 31 * result + (containingType != null ? containingType.getName().hashCode() : 0);
+        result = 31 * result + (declaringType != null ? declaringType.getName().hashCode() : 0);
         result = 31 * result + (allowFKIntegrityOverride ? 1 : 0);
         result = 31 * result + (isFKIntegrity ? 1 : 0);
         result = 31 * result + (isMandatory ? 1 : 0);
         result = 31 * result + (name != null ? name.hashCode() : 0);
-        cachedHashCode = result;
+        if (isFrozen) {
+            cachedHashCode = result; // Field no longer changes once frozen.
+        }
         return result;
     }
 
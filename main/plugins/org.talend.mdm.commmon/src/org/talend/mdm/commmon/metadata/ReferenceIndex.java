@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>
+ * Index of all foreign keys ({@link ReferenceFieldMetadata}) of a frozen {@link MetadataRepository}: index is built
+ * once when repository is frozen and gives inbound and outbound references of a type without visiting all types of
+ * the repository.
+ * </p>
+ * <p>
+ * Index returns the same references as the {@link InboundReferences} and {@link OutboundReferences} visitors (both
+ * visitors use the repository index when it is available).
+ * </p>
+ *
+ * @see MetadataRepository#getReferenceIndex()
+ */
+public class ReferenceIndex {
+
+    private final Set<ReferenceFieldMetadata> references;
+
+    // Foreign keys indexed by the referenced type name.
+    private final Map<String, Set<ReferenceFieldMetadata>> inboundReferences = new HashMap<String, Set<ReferenceFieldMetadata>>();
+
+    // Foreign keys indexed by the name of the entity that contains the foreign key.
+    private final Map<String, Set<ReferenceFieldMetadata>> outboundReferences = new HashMap<String, Set<ReferenceFieldMetadata>>();
+
+    private ReferenceIndex(Set<ReferenceFieldMetadata> references) {
+        this.references = Collections.unmodifiableSet(references);
+        for (ReferenceFieldMetadata reference : references) {
+            index(inboundReferences, reference.getReferencedType().getName(), reference);
+            index(outboundReferences, reference.getEntityTypeName(), reference);
+        }
+    }
+
+    /**
+     * Builds the index for the types in <code>repository</code> (all types are expected to be frozen).
+     *
+     * @param repository A repository.
+     * @return A {@link ReferenceIndex} for all references found in <code>repository</code>.
+     */
+    static ReferenceIndex build(MetadataRepository repository) {
+        // Don't use repository.accept(): OutboundReferences would use the repository's (previous) index.
+        OutboundReferences allReferences = new OutboundReferences();
+        Set<ReferenceFieldMetadata> references = Collections.emptySet();
+        for (TypeMetadata type : repository.getTypes()) {
+            references = type.accept(allReferences); // Visitor always returns the same (growing) set.
+        }
+        return new ReferenceIndex(new HashSet<ReferenceFieldMetadata>(references));
+    }
+
+    private static void index(Map<String, Set<ReferenceFieldMetadata>> index, String key,
+            ReferenceFieldMetadata reference) {
+        Set<ReferenceFieldMetadata> references = index.get(key);
+        if (references == null) {
+            references = new HashSet<ReferenceFieldMetadata>();
+            index.put(key, references);
+        }
+        references.add(reference);
+    }
+
+    /**
+     * @return All foreign keys in the repository (including foreign keys declared in reusable types).
+     */
+    public Set<ReferenceFieldMetadata> getReferences() {
+        return references;
+    }
+
+    /**
+     * Returns foreign keys that point to <code>type</code>: this includes foreign keys to <code>type</code> and
+     * foreign keys to super types of <code>type</code>.
+     *
+     * @param type A type.
+     * @return A modifiable {@link Set} of foreign keys (same as the ones {@link InboundReferences} returns).
+     */
+    public Set<ReferenceFieldMetadata> getInboundReferences(TypeMetadata type) {
+        if (type == null) {
+            throw new IllegalArgumentException("Type argument cannot be null"); //$NON-NLS-1$
+        }
+        Set<ReferenceFieldMetadata> result = new HashSet<ReferenceFieldMetadata>();
+        Set<String> processedTypeNames = new HashSet<String>();
+        LinkedList<TypeMetadata> typesToProcess = new LinkedList<TypeMetadata>();
+        typesToProcess.add(type);
+        while (!typesToProcess.isEmpty()) {
+            TypeMetadata current = typesToProcess.removeFirst();
+            if (!processedTypeNames.add(current.getName())) {
+                continue;
+            }
+            Set<ReferenceFieldMetadata> references = inboundReferences.get(current.getName());
+            if (references != null) {
+                for (ReferenceFieldMetadata reference : references) {
+                    if (type.isAssignableFrom(reference.getReferencedType())) {
+                        result.add(reference);
+                    }
+                }
+            }
+            typesToProcess.addAll(current.getSuperTypes());
+        }
+        return result;
+    }
+
+    /**
+     * Returns foreign keys contained in <code>entityType</code>: this includes foreign keys inherited from super types
+     * and the foreign keys in types contained in <code>entityType</code> (as well as their sub types).
+     *
+     * @param entityType An entity type.
+     * @return A modifiable {@link Set} of foreign keys.
+     */
+    public Set<ReferenceFieldMetadata> getOutboundReferences(ComplexTypeMetadata entityType) {
+        if (entityType == null) {
+            throw new IllegalArgumentException("Type argument cannot be null"); //$NON-NLS-1$
+        }
+        Set<ReferenceFieldMetadata> references = outboundReferences.get(entityType.getName());
+        if (references == null) {
+            return new HashSet<ReferenceFieldMetadata>();
+        }
+        return new HashSet<ReferenceFieldMetadata>(references);
+    }
+
+    /**
+     * @param type A type.
+     * @return Number of foreign keys that point to <code>type</code> (see {@link #getInboundReferences(TypeMetadata)}).
+     */
+    public int getInboundReferencesCount(TypeMetadata type) {
+        return getInboundReferences(type).size();
+    }
+
+    /**
+     * @return Names of all types referenced by at least one foreign key.
+     */
+    public Collection<String> getReferencedTypeNames() {
+        return Collections.unmodifiableSet(inboundReferences.keySet());
+    }
+}
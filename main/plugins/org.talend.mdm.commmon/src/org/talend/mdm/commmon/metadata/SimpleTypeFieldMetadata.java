@@ -14,6 +14,7 @@ package org.talend.mdm.commmon.metadata;
 import org.talend.mdm.commmon.metadata.validation.ValidationFactory;
 import org.talend.mdm.commmon.metadata.validation.ValidationRule;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
@@ -48,7 +49,8 @@ public class SimpleTypeFieldMetadata extends MetadataExtensions implements Field
 
     private int cachedHashCode;
 
-    private final Map<Locale, String> localeToLabel = new HashMap<Locale, String>();
+    // Replaced (never modified) by registerName(): copies of this field share the same labels.
+    private Map<Locale, String> localeToLabel = Collections.emptyMap();
 
     public SimpleTypeFieldMetadata(ComplexTypeMetadata containingType,
             boolean isKey,
@@ -140,7 +142,9 @@ public class SimpleTypeFieldMetadata extends MetadataExtensions implements Field
 
     @Override
     public void registerName(Locale locale, String name) {
-        localeToLabel.put(locale, name);
+        Map<Locale, String> labels = new HashMap<Locale, String>(localeToLabel);
+        labels.put(locale, name);
+        localeToLabel = labels;
     }
 
     @Override
@@ -152,6 +156,10 @@ public class SimpleTypeFieldMetadata extends MetadataExtensions implements Field
         return localizedName;
     }
 
+    Map<Locale, String> getLocalizedNames() {
+        return Collections.unmodifiableMap(localeToLabel);
+    }
+
     public TypeMetadata getDeclaringType() {
         return declaringType;
     }
@@ -173,10 +181,8 @@ public class SimpleTypeFieldMetadata extends MetadataExtensions implements Field
                 hideUsers,
                 workflowAccessRights);
         copy.setDeclaringType(declaringType);
-        copy.localeToLabel.putAll(localeToLabel);
-        if (dataMap != null) {
-            copy.dataMap = new HashMap<String, Object>(dataMap);
-        }
+        copy.localeToLabel = localeToLabel;
+        shareData(copy);
         return copy;
     }
 
@@ -258,7 +264,9 @@ public class SimpleTypeFieldMetadata extends MetadataExtensions implements Field
         result = 31 * result + (isKey ? 1 : 0);
         result = 31 * result + (isMandatory ? 1 : 0);
         result = 31 * result + (workflowAccessRights != null ? workflowAccessRights.hashCode() : 0);
-        cachedHashCode = result;
+        if (isFrozen) {
+            cachedHashCode = result; // Field no longer changes once frozen.
+        }
         return result;
     }
 
@@ -31,6 +31,12 @@ public class SimpleTypeMetadata extends MetadataExtensions implements TypeMetada
 
     private String name;
 
+    // Facets declared by this type (facet name and lexical value), see FacetValidator.
+    private final List<String[]> facets = new ArrayList<String[]>();
+
+    // Compiled on first call to validate(String).
+    private volatile FacetValidator validator;
+
     public SimpleTypeMetadata(String nameSpace, String name) {
         if (name == null) {
             throw new IllegalArgumentException("Name cannot be null.");
@@ -77,11 +83,14 @@ public class SimpleTypeMetadata extends MetadataExtensions implements TypeMetada
         for (TypeMetadata superType : superTypes) {
             copy.addSuperType(superType.copy());
         }
+        copy.facets.addAll(facets);
         return copy;
     }
 
     public TypeMetadata copyShallow() {
-        return new SimpleTypeMetadata(nameSpace, name);
+        SimpleTypeMetadata copy = new SimpleTypeMetadata(nameSpace, name);
+        copy.facets.addAll(facets);
+        return copy;
     }
 
     public TypeMetadata freeze() {
@@ -95,6 +104,7 @@ public class SimpleTypeMetadata extends MetadataExtensions implements TypeMetada
                 }
             }
         }
+        validator = null; // Base types changed: compile again facets of base types.
         return this;
     }
 
@@ -140,6 +150,45 @@ public class SimpleTypeMetadata extends MetadataExtensions implements TypeMetada
 
     public void addSuperType(TypeMetadata superType) {
         superTypes.add(superType);
+        validator = null;
+    }
+
+    /**
+     * Adds a facet declared by this type (facets declared by super types don't need to be added).
+     *
+     * @param facetName A XML schema facet name (e.g. "pattern", "maxLength").
+     * @param value The facet value as declared in the XML schema.
+     */
+    public void addFacet(String facetName, String value) {
+        if (facetName == null || value == null) {
+            throw new IllegalArgumentException("Facet name and value cannot be null.");
+        }
+        facets.add(new String[] { facetName, value });
+        validator = null;
+    }
+
+    List<String[]> getFacets() {
+        return facets;
+    }
+
+    /**
+     * Checks <code>value</code> against the facets of this type and of all its super types (pattern, enumeration,
+     * length, numeric bounds and digits). Facets are compiled once, so this method is cheap enough to be called for
+     * each value of a bulk load. Type is expected to be frozen.
+     *
+     * @param value A value for this type.
+     * @return <code>true</code> if value satisfies all facets, <code>false</code> otherwise.
+     */
+    public boolean validate(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("Value cannot be null.");
+        }
+        FacetValidator currentValidator = validator;
+        if (currentValidator == null) {
+            currentValidator = FacetValidator.compile(this);
+            validator = currentValidator;
+        }
+        return currentValidator.validate(value);
     }
 
     public <T> T accept(MetadataVisitor<T> visitor) {
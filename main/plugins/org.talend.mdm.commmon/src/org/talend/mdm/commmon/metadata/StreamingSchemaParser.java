@@ -0,0 +1,941 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Stack;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.QName;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.stream.StreamSource;
+import javax.xml.validation.SchemaFactory;
+
+import org.apache.commons.lang.StringUtils;
+import org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessor;
+import org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessorState;
+import org.talend.mdm.commmon.metadata.xsd.XmlSchemaLocations;
+import org.talend.mdm.commmon.util.core.ICoreConstants;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+
+/**
+ * <p>
+ * Streaming (StAX) front end for {@link MetadataRepository}: reads the data model in a compact form (no EMF
+ * <code>XSDSchema</code> and no DOM, except for &lt;appinfo&gt; elements given to annotation processors) and then
+ * creates types and fields the same way {@link MetadataRepository} does for a schema parsed by EMF.
+ * </p>
+ * <p>
+ * Only the XML schema subset used by MDM data models is supported (no target namespace, no import of other schemas, no
+ * element references, groups or attributes...). {@link #read(byte[])} throws {@link UnsupportedSchemaException} for
+ * any other construct: caller is expected to parse the data model with EMF in this case.
+ * </p>
+ *
+ * @see MetadataRepository#setStreamingLoad(boolean)
+ */
+class StreamingSchemaParser {
+
+    private static final String XSD = XMLConstants.W3C_XML_SCHEMA_NS_URI;
+
+    // Like EMF, global elements and types are processed sorted by name.
+    private final Map<String, ElementDeclaration> elements = new TreeMap<String, ElementDeclaration>();
+
+    private final Map<String, TypeDefinition> types = new TreeMap<String, TypeDefinition>();
+
+    private final Document appInfoDocument;
+
+    private StreamingSchemaParser(Document appInfoDocument) {
+        this.appInfoDocument = appInfoDocument;
+    }
+
+    /**
+     * Reads a data model.
+     *
+     * @param content A data model.
+     * @return A parser ready to {@link #build(MetadataRepository) build} types.
+     * @throws UnsupportedSchemaException If data model uses XML schema constructs this parser does not support (or is
+     * not a well formed XML schema).
+     */
+    static StreamingSchemaParser read(byte[] content) {
+        StreamingSchemaParser parser;
+        try {
+            parser = new StreamingSchemaParser(DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument());
+        } catch (ParserConfigurationException e) {
+            throw new RuntimeException("Could not create DOM document for annotations.", e);
+        }
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(content));
+            try {
+                if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !isSchemaElement(reader, "schema")) { //$NON-NLS-1$
+                    throw new UnsupportedSchemaException("Document is not an XML schema.");
+                }
+                parser.readSchema(reader);
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new UnsupportedSchemaException("Could not read XML schema: " + e.getMessage());
+        }
+        parser.resolve();
+        return parser;
+    }
+
+    /**
+     * Validates data model with the JDK XML schema implementation (EMF validation needs the EMF schema). Messages and
+     * number of errors differ from EMF validation (see {@link MetadataRepository#setStreamingLoad(boolean)}).
+     *
+     * @param content A data model.
+     * @param handler Handler for XML schema errors.
+     */
+    static void validate(byte[] content, final ValidationHandler handler) {
+        SchemaFactory factory = SchemaFactory.newInstance(XSD);
+        factory.setErrorHandler(new ErrorHandler() {
+
+            @Override
+            public void warning(SAXParseException exception) {
+                report("XSD validation warning: ", exception); //$NON-NLS-1$
+            }
+
+            @Override
+            public void error(SAXParseException exception) {
+                report("XSD validation error: ", exception); //$NON-NLS-1$
+            }
+
+            @Override
+            public void fatalError(SAXParseException exception) {
+                report("XSD validation error: ", exception); //$NON-NLS-1$
+            }
+
+            private void report(String prefix, SAXParseException exception) {
+                handler.error((TypeMetadata) null, prefix + exception.getMessage(), null, exception.getLineNumber(),
+                        exception.getColumnNumber(), ValidationError.XML_SCHEMA);
+            }
+        });
+        try {
+            factory.newSchema(new StreamSource(new ByteArrayInputStream(content)));
+        } catch (SAXException e) {
+            // Already reported to handler.
+        }
+    }
+
+    /**
+     * Creates types and fields in <code>repository</code> (same as <code>XmlSchemaWalker.walk(schema, repository)</code>
+     * for a data model parsed with EMF).
+     *
+     * @param repository The repository being loaded.
+     */
+    void build(MetadataRepository repository) {
+        new Builder(repository).build();
+    }
+
+    // Reading
+
+    private void readSchema(XMLStreamReader reader) throws XMLStreamException {
+        if (StringUtils.isNotEmpty(reader.getAttributeValue(null, "targetNamespace"))) { //$NON-NLS-1$
+            throw new UnsupportedSchemaException("Target namespace is not supported.");
+        }
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("element".equals(name)) { //$NON-NLS-1$
+                ElementDeclaration element = readElement(reader, true);
+                if (elements.put(element.name, element) != null) {
+                    throw new UnsupportedSchemaException("Element '" + element.name + "' is declared twice.");
+                }
+            } else if ("complexType".equals(name) || "simpleType".equals(name)) { //$NON-NLS-1$ //$NON-NLS-2$
+                TypeDefinition type = "complexType".equals(name) ? readComplexType(reader) : readSimpleType(reader); //$NON-NLS-1$
+                if (type.name == null || types.put(type.name, type) != null) {
+                    throw new UnsupportedSchemaException("Type '" + type.name + "' has no name or is declared twice.");
+                }
+            } else if ("annotation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else if ("import".equals(name) && XSD.equals(reader.getAttributeValue(null, "namespace")) //$NON-NLS-1$ //$NON-NLS-2$
+                    && reader.getAttributeValue(null, "schemaLocation") == null) { //$NON-NLS-1$
+                skip(reader);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+    }
+
+    private ElementDeclaration readElement(XMLStreamReader reader, boolean isGlobal) throws XMLStreamException {
+        ElementDeclaration element = new ElementDeclaration();
+        element.name = reader.getAttributeValue(null, "name"); //$NON-NLS-1$
+        if (element.name == null || reader.getAttributeValue(null, "ref") != null //$NON-NLS-1$
+                || reader.getAttributeValue(null, "substitutionGroup") != null) { //$NON-NLS-1$
+            throw unsupported(reader);
+        }
+        element.line = reader.getLocation().getLineNumber();
+        element.column = reader.getLocation().getColumnNumber();
+        element.typeName = getQName(reader, "type"); //$NON-NLS-1$
+        if (!isGlobal) {
+            element.minOccurs = getOccurs(reader, "minOccurs"); //$NON-NLS-1$
+            element.maxOccurs = getOccurs(reader, "maxOccurs"); //$NON-NLS-1$
+        }
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("annotation".equals(name)) { //$NON-NLS-1$
+                element.appInfos = readAnnotation(reader);
+            } else if ("complexType".equals(name) && element.typeName == null && element.type == null) { //$NON-NLS-1$
+                element.type = readComplexType(reader);
+            } else if ("simpleType".equals(name) && element.typeName == null && element.type == null && !isGlobal) { //$NON-NLS-1$
+                element.type = readSimpleType(reader);
+            } else if (("unique".equals(name) || "key".equals(name)) && isGlobal) { //$NON-NLS-1$ //$NON-NLS-2$
+                readKey(reader, element);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+        if (element.typeName == null && element.type == null) {
+            throw new UnsupportedSchemaException("Element '" + element.name + "' has no type.");
+        }
+        return element;
+    }
+
+    private void readKey(XMLStreamReader reader, ElementDeclaration element) throws XMLStreamException {
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("field".equals(name)) { //$NON-NLS-1$
+                String path = reader.getAttributeValue(null, "xpath"); //$NON-NLS-1$
+                if (path == null) {
+                    throw unsupported(reader);
+                }
+                // Same as EMF: last declaration of a key field wins but field keeps its first position.
+                element.keyFields.put(path, new int[] { reader.getLocation().getLineNumber(),
+                        reader.getLocation().getColumnNumber() });
+                skip(reader);
+            } else if ("selector".equals(name) || "annotation".equals(name)) { //$NON-NLS-1$ //$NON-NLS-2$
+                skip(reader);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+    }
+
+    private ComplexTypeDefinition readComplexType(XMLStreamReader reader) throws XMLStreamException {
+        ComplexTypeDefinition type = new ComplexTypeDefinition();
+        type.name = reader.getAttributeValue(null, "name"); //$NON-NLS-1$
+        type.line = reader.getLocation().getLineNumber();
+        type.column = reader.getLocation().getColumnNumber();
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("annotation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else if (isModelGroup(name) && type.particles == null) {
+                type.particles = readModelGroup(reader);
+            } else if ("complexContent".equals(name) && type.particles == null) { //$NON-NLS-1$
+                readComplexContent(reader, type);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+        return type;
+    }
+
+    private void readComplexContent(XMLStreamReader reader, ComplexTypeDefinition type) throws XMLStreamException {
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("annotation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else if ("extension".equals(name) && type.baseName == null) { //$NON-NLS-1$
+                type.baseName = getQName(reader, "base"); //$NON-NLS-1$
+                if (type.baseName == null) {
+                    throw unsupported(reader);
+                }
+                while (nextChild(reader)) {
+                    String extensionChild = getSchemaElementName(reader);
+                    if ("annotation".equals(extensionChild)) { //$NON-NLS-1$
+                        skip(reader);
+                    } else if (isModelGroup(extensionChild) && type.particles == null) {
+                        type.particles = readModelGroup(reader);
+                    } else {
+                        throw unsupported(reader);
+                    }
+                }
+            } else {
+                throw unsupported(reader);
+            }
+        }
+    }
+
+    private List<ElementDeclaration> readModelGroup(XMLStreamReader reader) throws XMLStreamException {
+        List<ElementDeclaration> particles = new ArrayList<ElementDeclaration>();
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("element".equals(name)) { //$NON-NLS-1$
+                particles.add(readElement(reader, false));
+            } else if ("annotation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+        return particles;
+    }
+
+    private SimpleTypeDefinition readSimpleType(XMLStreamReader reader) throws XMLStreamException {
+        SimpleTypeDefinition type = new SimpleTypeDefinition();
+        type.name = reader.getAttributeValue(null, "name"); //$NON-NLS-1$
+        type.line = reader.getLocation().getLineNumber();
+        type.column = reader.getLocation().getColumnNumber();
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("annotation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else if ("restriction".equals(name) && type.baseName == null) { //$NON-NLS-1$
+                type.baseName = getQName(reader, "base"); //$NON-NLS-1$
+                if (type.baseName == null) {
+                    throw unsupported(reader);
+                }
+                readFacets(reader, type);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+        if (type.baseName == null) {
+            throw new UnsupportedSchemaException("Simple type '" + type.name + "' is not a restriction.");
+        }
+        return type;
+    }
+
+    private void readFacets(XMLStreamReader reader, SimpleTypeDefinition type) throws XMLStreamException {
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("maxLength".equals(name)) { //$NON-NLS-1$
+                try {
+                    type.maxLength = String.valueOf(Integer.parseInt(reader.getAttributeValue(null, "value").trim())); //$NON-NLS-1$
+                } catch (RuntimeException e) {
+                    throw unsupported(reader);
+                }
+            } else if ("enumeration".equals(name)) { //$NON-NLS-1$
+                type.hasEnumeration = true;
+            } else if (!"annotation".equals(name) && !isFacet(name)) { //$NON-NLS-1$
+                throw unsupported(reader);
+            }
+            String value = reader.getAttributeValue(null, "value"); //$NON-NLS-1$
+            if (!"annotation".equals(name) && value != null) { //$NON-NLS-1$
+                type.facets.add(new String[] { name, value });
+            }
+            skip(reader);
+        }
+    }
+
+    private List<Element> readAnnotation(XMLStreamReader reader) throws XMLStreamException {
+        List<Element> appInfos = new LinkedList<Element>();
+        while (nextChild(reader)) {
+            String name = getSchemaElementName(reader);
+            if ("appinfo".equals(name)) { //$NON-NLS-1$
+                appInfos.add(readDOMElement(reader));
+            } else if ("documentation".equals(name)) { //$NON-NLS-1$
+                skip(reader);
+            } else {
+                throw unsupported(reader);
+            }
+        }
+        return appInfos;
+    }
+
+    // Creates a DOM element (with its content) for current element.
+    private Element readDOMElement(XMLStreamReader reader) throws XMLStreamException {
+        String prefix = reader.getPrefix();
+        String qualifiedName = StringUtils.isEmpty(prefix) ? reader.getLocalName() : prefix + ':' + reader.getLocalName();
+        Element element = appInfoDocument.createElementNS(emptyToNull(reader.getNamespaceURI()),
+                qualifiedName);
+        XmlSchemaLocations.setStartLocation(element, reader.getLocation().getLineNumber(), reader.getLocation()
+                .getColumnNumber());
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            QName attributeName = reader.getAttributeName(i);
+            String attributePrefix = attributeName.getPrefix();
+            element.setAttributeNS(emptyToNull(attributeName.getNamespaceURI()),
+                    StringUtils.isEmpty(attributePrefix) ? attributeName.getLocalPart() : attributePrefix + ':'
+                            + attributeName.getLocalPart(), reader.getAttributeValue(i));
+        }
+        while (true) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                element.appendChild(readDOMElement(reader));
+                break;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.CDATA:
+            case XMLStreamConstants.SPACE:
+                element.appendChild(appInfoDocument.createTextNode(reader.getText()));
+                break;
+            case XMLStreamConstants.END_ELEMENT:
+                return element;
+            default:
+                // Comments and processing instructions are not part of the annotation text.
+                break;
+            }
+        }
+    }
+
+    // Resolution of type references (a data model with a reference this parser can't resolve is left to EMF).
+
+    private void resolve() {
+        for (ElementDeclaration element : elements.values()) {
+            resolve(element);
+            if (!(element.type instanceof ComplexTypeDefinition)) {
+                throw new UnsupportedSchemaException("Entity '" + element.name + "' does not have a complex type.");
+            }
+        }
+        for (TypeDefinition type : types.values()) {
+            resolve(type);
+        }
+        for (TypeDefinition type : types.values()) {
+            int depth = 0;
+            TypeDefinition current = type;
+            while (current instanceof SimpleTypeDefinition && current != null) {
+                if (depth++ > types.size()) {
+                    throw new UnsupportedSchemaException("Simple type '" + type.name + "' inherits from itself.");
+                }
+                current = ((SimpleTypeDefinition) current).base;
+            }
+        }
+    }
+
+    private void resolve(ElementDeclaration element) {
+        if (element.type == null) {
+            element.type = getType(element.typeName);
+        } else {
+            resolve(element.type);
+        }
+    }
+
+    private void resolve(TypeDefinition type) {
+        if (type.isResolved) {
+            return;
+        }
+        type.isResolved = true;
+        if (type instanceof SimpleTypeDefinition) {
+            SimpleTypeDefinition simpleType = (SimpleTypeDefinition) type;
+            TypeDefinition baseType = getType(simpleType.baseName);
+            if (!(baseType instanceof SimpleTypeDefinition)) {
+                throw new UnsupportedSchemaException("Base of simple type '" + type.name + "' is not a simple type.");
+            }
+            simpleType.base = (SimpleTypeDefinition) baseType;
+        } else {
+            ComplexTypeDefinition complexType = (ComplexTypeDefinition) type;
+            if (complexType.baseName != null && !isXSDAnyType(complexType.baseName)) {
+                TypeDefinition baseType = getType(complexType.baseName);
+                if (!(baseType instanceof ComplexTypeDefinition)) {
+                    throw new UnsupportedSchemaException("Base of complex type '" + type.name + "' is not a complex type.");
+                }
+                complexType.base = (ComplexTypeDefinition) baseType;
+            }
+            if (complexType.particles != null) {
+                for (ElementDeclaration particle : complexType.particles) {
+                    resolve(particle);
+                }
+            }
+        }
+    }
+
+    private TypeDefinition getType(QName typeName) {
+        if (XSD.equals(typeName.getNamespaceURI())) {
+            if (isXSDAnyType(typeName) || "anySimpleType".equals(typeName.getLocalPart())) { //$NON-NLS-1$
+                throw new UnsupportedSchemaException("Type '" + typeName + "' is not supported.");
+            }
+            SimpleTypeDefinition builtInType = new SimpleTypeDefinition();
+            builtInType.namespace = XSD;
+            builtInType.name = typeName.getLocalPart();
+            builtInType.isResolved = true;
+            return builtInType;
+        }
+        TypeDefinition type = XMLConstants.NULL_NS_URI.equals(typeName.getNamespaceURI()) ? types.get(typeName
+                .getLocalPart()) : null;
+        if (type == null) {
+            throw new UnsupportedSchemaException("Type '" + typeName + "' is not declared in data model.");
+        }
+        resolve(type);
+        return type;
+    }
+
+    // Reading helpers
+
+    private static boolean isSchemaElement(XMLStreamReader reader, String localName) {
+        return XSD.equals(reader.getNamespaceURI()) && localName.equals(reader.getLocalName());
+    }
+
+    private static String getSchemaElementName(XMLStreamReader reader) {
+        if (!XSD.equals(reader.getNamespaceURI())) {
+            throw unsupported(reader);
+        }
+        return reader.getLocalName();
+    }
+
+    private static void addFacets(SimpleTypeMetadata typeMetadata, SimpleTypeDefinition type) {
+        for (String[] facet : type.facets) {
+            typeMetadata.addFacet(facet[0], facet[1]);
+        }
+    }
+
+    private static boolean isModelGroup(String name) {
+        return "sequence".equals(name) || "all".equals(name) || "choice".equals(name); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    // Other facets (only kept for SimpleTypeMetadata#validate(String)).
+    private static boolean isFacet(String name) {
+        return "length".equals(name) || "minLength".equals(name) || "pattern".equals(name) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                || "whiteSpace".equals(name) || "totalDigits".equals(name) || "fractionDigits".equals(name) //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                || "minInclusive".equals(name) || "maxInclusive".equals(name) //$NON-NLS-1$ //$NON-NLS-2$
+                || "minExclusive".equals(name) || "maxExclusive".equals(name); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    private static boolean isXSDAnyType(QName typeName) {
+        return XSD.equals(typeName.getNamespaceURI()) && Types.ANY_TYPE.equals(typeName.getLocalPart());
+    }
+
+    private static String emptyToNull(String namespace) {
+        return StringUtils.isEmpty(namespace) ? null : namespace;
+    }
+
+    private static QName getQName(XMLStreamReader reader, String attribute) {
+        String value = reader.getAttributeValue(null, attribute);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        String prefix = value.indexOf(':') > 0 ? StringUtils.substringBefore(value, ":") : XMLConstants.DEFAULT_NS_PREFIX; //$NON-NLS-1$
+        String namespace = reader.getNamespaceContext().getNamespaceURI(prefix);
+        if (prefix.isEmpty()) {
+            namespace = namespace == null ? XMLConstants.NULL_NS_URI : namespace; // No default namespace.
+        } else if (StringUtils.isEmpty(namespace)) {
+            throw unsupported(reader);
+        }
+        return new QName(namespace, prefix.isEmpty() ? value : StringUtils.substringAfter(value, ":")); //$NON-NLS-1$
+    }
+
+    private static int getOccurs(XMLStreamReader reader, String attribute) {
+        String value = reader.getAttributeValue(null, attribute);
+        if (value == null) {
+            return 1;
+        }
+        value = value.trim();
+        if ("unbounded".equals(value)) { //$NON-NLS-1$
+            return -1;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw unsupported(reader);
+        }
+    }
+
+    // Moves to next child element of current element, returns false at end of current element.
+    private static boolean nextChild(XMLStreamReader reader) throws XMLStreamException {
+        while (true) {
+            switch (reader.next()) {
+            case XMLStreamConstants.START_ELEMENT:
+                return true;
+            case XMLStreamConstants.END_ELEMENT:
+                return false;
+            case XMLStreamConstants.CHARACTERS:
+            case XMLStreamConstants.SPACE:
+                if (!reader.isWhiteSpace()) {
+                    throw new UnsupportedSchemaException("Unexpected text at line " + reader.getLocation().getLineNumber()
+                            + ".");
+                }
+                break;
+            case XMLStreamConstants.COMMENT:
+            case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                break;
+            default:
+                throw new UnsupportedSchemaException("Unexpected XML content at line "
+                        + reader.getLocation().getLineNumber() + ".");
+            }
+        }
+    }
+
+    // Skips current element and its content.
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static UnsupportedSchemaException unsupported(XMLStreamReader reader) {
+        return new UnsupportedSchemaException("Element '" + reader.getName() + "' at line "
+                + reader.getLocation().getLineNumber() + " is not supported.");
+    }
+
+    /**
+     * Thrown when data model uses a part of XML schema the streaming front end does not support.
+     */
+    static class UnsupportedSchemaException extends RuntimeException {
+
+        private static final long serialVersionUID = -4398271360152837609L;
+
+        UnsupportedSchemaException(String message) {
+            super(message);
+        }
+    }
+
+    // Compact data model
+
+    private abstract static class TypeDefinition {
+
+        String namespace; // null for data model types (no target namespace)
+
+        String name; // null for anonymous types
+
+        int line;
+
+        int column;
+
+        boolean isResolved;
+    }
+
+    private static class SimpleTypeDefinition extends TypeDefinition {
+
+        QName baseName;
+
+        SimpleTypeDefinition base; // null for XML schema types
+
+        String maxLength;
+
+        boolean hasEnumeration;
+
+        List<String[]> facets = new LinkedList<String[]>();
+
+        // Enumeration facets are inherited from base types.
+        boolean isEnumeration() {
+            SimpleTypeDefinition current = this;
+            while (current != null) {
+                if (current.hasEnumeration) {
+                    return true;
+                }
+                current = current.base;
+            }
+            return false;
+        }
+    }
+
+    private static class ComplexTypeDefinition extends TypeDefinition {
+
+        QName baseName;
+
+        ComplexTypeDefinition base; // null if type does not extend a data model type
+
+        List<ElementDeclaration> particles;
+    }
+
+    private static class ElementDeclaration {
+
+        String name;
+
+        QName typeName;
+
+        TypeDefinition type;
+
+        int minOccurs = 1;
+
+        int maxOccurs = 1;
+
+        List<Element> appInfos; // null if element has no annotation
+
+        final Map<String, int[]> keyFields = new LinkedHashMap<String, int[]>();
+
+        int line;
+
+        int column;
+    }
+
+    /**
+     * Creates types and fields: mirrors <code>MetadataRepository#visitElement</code>,
+     * <code>MetadataRepository#visitComplexType</code>, <code>MetadataRepository#visitSimpleType</code> and
+     * <code>MetadataRepository#createFieldMetadata</code> for the supported XML schema subset.
+     */
+    private class Builder {
+
+        private final MetadataRepository repository;
+
+        private final String targetNamespace;
+
+        private final Stack<ComplexTypeMetadata> currentTypeStack = new Stack<ComplexTypeMetadata>();
+
+        // Entity types that use a named complex type (usages are declared once complex type is created).
+        private final Map<TypeDefinition, List<ComplexTypeMetadata>> entityTypeUsage = new HashMap<TypeDefinition, List<ComplexTypeMetadata>>();
+
+        private Builder(MetadataRepository repository) {
+            this.repository = repository;
+            this.targetNamespace = repository.getUserNamespace();
+        }
+
+        private void build() {
+            for (ElementDeclaration element : elements.values()) {
+                visitEntity(element);
+            }
+            for (TypeDefinition type : types.values()) {
+                if (type instanceof SimpleTypeDefinition) {
+                    visitSimpleType((SimpleTypeDefinition) type);
+                } else {
+                    visitComplexType((ComplexTypeDefinition) type);
+                }
+            }
+        }
+
+        private void visitEntity(ElementDeclaration element) {
+            String typeName = element.name;
+            if (repository.getComplexType(typeName) != null) { // Don't process twice type
+                return;
+            }
+            XmlSchemaAnnotationProcessorState state;
+            try {
+                state = processAnnotations(null, element.appInfos);
+            } catch (Exception e) {
+                throw new RuntimeException("Annotation processing exception while parsing info for type '" + typeName + "'.",
+                        e);
+            }
+            // If write is not allowed for everyone, at least add "administration".
+            if (state.getAllowWrite().isEmpty()) {
+                state.getAllowWrite().add(ICoreConstants.ADMIN_PERMISSION);
+            }
+            ComplexTypeMetadata type = new ComplexTypeMetadataImpl(targetNamespace, typeName, state.getAllowWrite(),
+                    state.getDenyCreate(), state.getHide(), state.getDenyPhysicalDelete(), state.getDenyLogicalDelete(),
+                    state.getSchematron(), state.getPrimaryKeyInfo(), state.getLookupFields(), true,
+                    state.getWorkflowAccessRights());
+            for (Map.Entry<Locale, String> entry : state.getLocaleToLabel().entrySet()) {
+                type.registerName(entry.getKey(), entry.getValue());
+            }
+            type.setData(MetadataRepository.XSD_LINE_NUMBER, element.line);
+            type.setData(MetadataRepository.XSD_COLUMN_NUMBER, element.column);
+            repository.addTypeMetadata(type);
+            getUsages(element.type).add(type);
+            repository.declareEntityType(type);
+            currentTypeStack.push(type);
+            {
+                visitContent((ComplexTypeDefinition) element.type);
+            }
+            currentTypeStack.pop();
+            // Register keys (TMDM-4470).
+            for (Map.Entry<String, int[]> keyField : element.keyFields.entrySet()) {
+                SoftIdFieldRef keyFieldRef = new SoftIdFieldRef(repository, type.getName(), keyField.getKey());
+                keyFieldRef.setData(MetadataRepository.XSD_LINE_NUMBER, keyField.getValue()[0]);
+                keyFieldRef.setData(MetadataRepository.XSD_COLUMN_NUMBER, keyField.getValue()[1]);
+                type.registerKey(keyFieldRef);
+            }
+            // TMDM-6264: An entity type without any key info is a element maybe referenced by others, but never an
+            // entity.
+            if (type.getKeyFields().isEmpty() && type.getSuperTypes().isEmpty()) {
+                repository.removeEntityType(type.getName());
+            }
+        }
+
+        private void visitSimpleType(SimpleTypeDefinition type) {
+            TypeMetadata typeMetadata = repository.getNonInstantiableType(targetNamespace, type.name);
+            if (typeMetadata == null) {
+                typeMetadata = new SimpleTypeMetadata(targetNamespace, type.name);
+            }
+            // Simple type might inherit from other simple types (i.e. UUID from string).
+            TypeMetadata superType = new SoftTypeRef(repository, type.base.namespace, type.base.name, false);
+            if (type.maxLength != null) {
+                typeMetadata.setData(MetadataRepository.DATA_MAX_LENGTH, type.maxLength);
+            }
+            if (typeMetadata instanceof SimpleTypeMetadata) {
+                addFacets((SimpleTypeMetadata) typeMetadata, type);
+            }
+            if (repository.getNonInstantiableType(targetNamespace, type.name) == null) {
+                typeMetadata.addSuperType(superType);
+                repository.addTypeMetadata(typeMetadata);
+            }
+        }
+
+        private void visitComplexType(ComplexTypeDefinition type) {
+            if (repository.getNonInstantiableType(repository.getUserNamespace(), type.name) != null) {
+                // Ignore another definition of type (already processed).
+                return;
+            }
+            ComplexTypeMetadata nonInstantiableType = new ComplexTypeMetadataImpl(targetNamespace, type.name, false);
+            nonInstantiableType.setData(MetadataRepository.XSD_LINE_NUMBER, type.line);
+            nonInstantiableType.setData(MetadataRepository.XSD_COLUMN_NUMBER, type.column);
+            repository.addTypeMetadata(nonInstantiableType);
+            currentTypeStack.push(nonInstantiableType);
+            for (ComplexTypeMetadata usage : getUsages(type)) {
+                nonInstantiableType.declareUsage(usage);
+            }
+            visitParticlesAndSuperType(type);
+            currentTypeStack.pop();
+        }
+
+        // Adds fields and super type of type to the type on top of stack.
+        private void visitContent(ComplexTypeDefinition type) {
+            // Keep track of the complex type used for entity type (especially for inheritance).
+            if (type.name != null) {
+                currentTypeStack.peek().setData(MetadataRepository.COMPLEX_TYPE_NAME, type.name);
+            }
+            visitParticlesAndSuperType(type);
+        }
+
+        private void visitParticlesAndSuperType(ComplexTypeDefinition type) {
+            visitParticles(type);
+            if (type.base != null) {
+                SoftTypeRef superType = new SoftTypeRef(repository, type.base.namespace, type.base.name, false);
+                if (currentTypeStack.peek() instanceof ContainedComplexTypeMetadata) {
+                    superType.declareUsage(currentTypeStack.peek());
+                }
+                currentTypeStack.peek().addSuperType(superType);
+                // Same as MetadataRepository: fields of types with a super type are created twice (last one is kept).
+                visitParticles(type);
+            }
+        }
+
+        private void visitParticles(ComplexTypeDefinition type) {
+            if (type.particles != null) {
+                for (ElementDeclaration particle : type.particles) {
+                    currentTypeStack.peek().addField(createFieldMetadata(particle, currentTypeStack.peek()));
+                }
+            }
+        }
+
+        private FieldMetadata createFieldMetadata(ElementDeclaration element, ComplexTypeMetadata containingType) {
+            String fieldName = element.name;
+            int minOccurs = element.minOccurs;
+            int maxOccurs = element.maxOccurs;
+            if (maxOccurs > 0 && minOccurs > maxOccurs) {
+                throw new IllegalArgumentException("Can not parse information on field '" + fieldName + "' of type '"
+                        + containingType + "' (maxOccurs > minOccurs)");
+            }
+            boolean isMany = maxOccurs == -1 || maxOccurs > 1;
+            XmlSchemaAnnotationProcessorState state;
+            try {
+                state = processAnnotations(containingType, element.appInfos);
+            } catch (Exception e) {
+                throw new RuntimeException("Annotation processing exception while parsing info for field '" + fieldName
+                        + "' in type '" + containingType.getName() + "'", e);
+            }
+            boolean isMandatory = minOccurs > 0;
+            List<String> hideUsers = state.getHide();
+            List<String> allowWriteUsers = state.getAllowWrite();
+            List<String> workflowAccessRights = state.getWorkflowAccessRights();
+            TypeMetadata fieldType = state.getFieldType();
+            FieldMetadata field;
+            if (element.type instanceof SimpleTypeDefinition) {
+                SimpleTypeDefinition simpleType = (SimpleTypeDefinition) element.type;
+                if (simpleType.name != null) {
+                    fieldType = new SoftTypeRef(repository, simpleType.namespace, simpleType.name, false);
+                } else {
+                    SimpleTypeMetadata anonymousType = new SimpleTypeMetadata(targetNamespace,
+                            repository.createAnonymousTypeName());
+                    anonymousType.addSuperType(new SoftTypeRef(repository, simpleType.base.namespace,
+                            simpleType.base.name, false));
+                    if (simpleType.maxLength != null) {
+                        anonymousType.setData(MetadataRepository.DATA_MAX_LENGTH, simpleType.maxLength);
+                    }
+                    addFacets(anonymousType, simpleType);
+                    fieldType = anonymousType;
+                }
+                fieldType.setData(MetadataRepository.XSD_LINE_NUMBER, element.line);
+                fieldType.setData(MetadataRepository.XSD_COLUMN_NUMBER, element.column);
+                if (state.isReference()) {
+                    field = new ReferenceFieldMetadata(containingType, false, isMany, isMandatory, fieldName,
+                            (ComplexTypeMetadata) state.getReferencedType(), state.getReferencedField(),
+                            state.getForeignKeyInfo(), state.isFkIntegrity(), state.isFkIntegrityOverride(), fieldType,
+                            allowWriteUsers, hideUsers, workflowAccessRights);
+                    // Same as MetadataRepository: labels of FK fields go to the referenced field.
+                    MetadataRepository.setLocalizedNames(state.getReferencedField(), state.getLocaleToLabel());
+                } else {
+                    if (simpleType.base != null && simpleType.base.isEnumeration()) {
+                        field = new EnumerationFieldMetadata(containingType, false, isMany, isMandatory, fieldName,
+                                fieldType, allowWriteUsers, hideUsers, workflowAccessRights);
+                    } else {
+                        field = new SimpleTypeFieldMetadata(containingType, false, isMany, isMandatory, fieldName,
+                                fieldType, allowWriteUsers, hideUsers, workflowAccessRights);
+                    }
+                    MetadataRepository.setLocalizedNames(field, state.getLocaleToLabel());
+                }
+                field.setData(MetadataRepository.XSD_LINE_NUMBER, element.line);
+                field.setData(MetadataRepository.XSD_COLUMN_NUMBER, element.column);
+                return field;
+            }
+            ComplexTypeDefinition complexType = (ComplexTypeDefinition) element.type;
+            boolean isContained = false;
+            if (fieldType == null) {
+                isContained = true;
+                if (complexType.name != null) {
+                    if (repository.getType(complexType.namespace, complexType.name) != null) {
+                        fieldType = new SoftTypeRef(repository, targetNamespace, complexType.name, false);
+                    } else {
+                        fieldType = new SoftTypeRef(repository, complexType.namespace, complexType.name, false);
+                    }
+                } else {
+                    fieldType = new ComplexTypeMetadataImpl(targetNamespace, repository.createAnonymousTypeName(), false);
+                }
+            }
+            if (isContained) {
+                ContainedTypeFieldMetadata containedField = new ContainedTypeFieldMetadata(containingType, isMany,
+                        isMandatory, fieldName, (ComplexTypeMetadata) fieldType, allowWriteUsers, hideUsers,
+                        workflowAccessRights);
+                containedField.setData(MetadataRepository.XSD_LINE_NUMBER, element.line);
+                containedField.setData(MetadataRepository.XSD_COLUMN_NUMBER, element.column);
+                if (fieldType.getName().startsWith(MetadataRepository.ANONYMOUS_PREFIX)) {
+                    currentTypeStack.push((ComplexTypeMetadata) containedField.getType());
+                    {
+                        visitContent(complexType);
+                    }
+                    currentTypeStack.pop();
+                }
+                field = containedField;
+            } else {
+                field = new SimpleTypeFieldMetadata(containingType, false, isMany, isMandatory, fieldName, fieldType,
+                        allowWriteUsers, hideUsers, workflowAccessRights);
+                field.setData(MetadataRepository.XSD_LINE_NUMBER, element.line);
+                field.setData(MetadataRepository.XSD_COLUMN_NUMBER, element.column);
+            }
+            MetadataRepository.setLocalizedNames(field, state.getLocaleToLabel());
+            return field;
+        }
+
+        private XmlSchemaAnnotationProcessorState processAnnotations(ComplexTypeMetadata type, List<Element> appInfos) {
+            XmlSchemaAnnotationProcessorState state = new XmlSchemaAnnotationProcessorState();
+            if (appInfos != null) {
+                for (XmlSchemaAnnotationProcessor processor : MetadataRepository.XML_ANNOTATIONS_PROCESSORS) {
+                    processor.process(repository, type, appInfos, state);
+                }
+            }
+            return state;
+        }
+
+        private List<ComplexTypeMetadata> getUsages(TypeDefinition type) {
+            List<ComplexTypeMetadata> usages = entityTypeUsage.get(type);
+            if (usages == null) {
+                usages = new LinkedList<ComplexTypeMetadata>();
+                entityTypeUsage.put(type, usages);
+            }
+            return usages;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+
+/**
+ * <p>
+ * A local store of data model digests (SHA-256 of the data model content) for data models already loaded without any
+ * validation message (no error and no warning). When a {@link MetadataRepository} uses a store (see
+ * {@link MetadataRepository#setTrustedModelStore(TrustedModelStore)}), a data model found in the store is loaded
+ * without XML schema validation nor MDM validation rules. Any change in the data model content changes its digest:
+ * modified data models are always fully validated.
+ * </p>
+ * <p>
+ * Digests are kept in a text file (one digest per line, after a line with the version of the validation). Store keeps
+ * at most {@link #MAX_ENTRIES} digests, oldest digests are removed first. A store file that can't be read is ignored
+ * (all data models are then validated).
+ * </p>
+ * <p>
+ * Digests are only trusted by the version of the validation that stored them: a store file written by another version
+ * (e.g. before a product update that changed validation rules) is cleared when read. Store does not keep validation
+ * messages, this is why a data model with warnings is never trusted (and warnings are reported on each load).
+ * </p>
+ */
+public class TrustedModelStore {
+
+    /**
+     * Maximum number of digests kept in a store.
+     */
+    public static final int MAX_ENTRIES = 256;
+
+    /**
+     * Version of the MDM validation rules: must be incremented when a validation rule changes, so data models trusted
+     * with previous rules are validated again.
+     */
+    public static final int RULES_VERSION = 1;
+
+    private static final Logger LOGGER = Logger.getLogger(TrustedModelStore.class);
+
+    private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+    private static final String VERSION_PREFIX = "version="; //$NON-NLS-1$
+
+    private final File file;
+
+    private final String version;
+
+    private final Set<String> digests = new LinkedHashSet<String>();
+
+    /**
+     * Creates a store for the default version of the validation (see {@link #getDefaultVersion()}).
+     *
+     * @param file File where digests are stored (created if it does not exist).
+     */
+    public TrustedModelStore(File file) {
+        this(file, getDefaultVersion());
+    }
+
+    /**
+     * @param file File where digests are stored (created if it does not exist).
+     * @param version Version of the validation (e.g. {@link #getDefaultVersion()} with the product version): digests
+     * stored with a different version are not trusted.
+     */
+    public TrustedModelStore(File file, String version) {
+        if (file == null) {
+            throw new IllegalArgumentException("Store file can not be null.");
+        }
+        if (version == null || version.trim().isEmpty() || version.indexOf('\n') >= 0 || version.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Version can not be empty nor contain line breaks.");
+        }
+        this.file = file;
+        this.version = version.trim();
+        if (file.exists()) {
+            read();
+        }
+    }
+
+    /**
+     * @return The default version of the validation: {@link #RULES_VERSION} and the implementation version of this
+     * library (when available).
+     */
+    public static String getDefaultVersion() {
+        Package currentPackage = TrustedModelStore.class.getPackage();
+        String implementationVersion = currentPackage == null ? null : currentPackage.getImplementationVersion();
+        if (implementationVersion == null) {
+            return String.valueOf(RULES_VERSION);
+        }
+        return RULES_VERSION + "/" + implementationVersion; //$NON-NLS-1$
+    }
+
+    /**
+     * @param digest A data model digest.
+     * @return <code>true</code> if a data model with this digest was validated without error.
+     */
+    public synchronized boolean isTrusted(String digest) {
+        return digests.contains(digest);
+    }
+
+    /**
+     * Adds <code>digest</code> to the store. Caller is expected to have fully validated the data model with this
+     * digest.
+     *
+     * @param digest Digest of a data model validated without error.
+     */
+    public synchronized void trust(String digest) {
+        if (digest == null) {
+            throw new IllegalArgumentException("Digest can not be null.");
+        }
+        if (!digests.add(digest)) {
+            return;
+        }
+        if (digests.size() > MAX_ENTRIES) {
+            Iterator<String> iterator = digests.iterator();
+            while (digests.size() > MAX_ENTRIES) {
+                iterator.next();
+                iterator.remove();
+            }
+            rewrite();
+        } else {
+            append(digest);
+        }
+    }
+
+    /**
+     * Removes all digests from the store: next load of any data model will be fully validated.
+     */
+    public synchronized void clear() {
+        digests.clear();
+        rewrite();
+    }
+
+    /**
+     * @return Number of digests in the store.
+     */
+    public synchronized int size() {
+        return digests.size();
+    }
+
+    /**
+     * @return The file where digests are stored.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * @return The version of the validation digests are trusted for.
+     */
+    public String getVersion() {
+        return version;
+    }
+
+    private void read() {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), ENCODING));
+            try {
+                String line;
+                String fileVersion = null;
+                while ((line = reader.readLine()) != null) {
+                    line = line.trim();
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (fileVersion == null) {
+                        fileVersion = line.startsWith(VERSION_PREFIX) ? line.substring(VERSION_PREFIX.length()) : line;
+                        if (!version.equals(fileVersion)) {
+                            if (LOGGER.isDebugEnabled()) {
+                                LOGGER.debug("Trusted data models in '" + file.getAbsolutePath()
+                                        + "' were validated by another version (all data models will be validated).");
+                            }
+                            break;
+                        }
+                    } else {
+                        digests.add(line);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Could not read trusted data models from '" + file.getAbsolutePath()
+                    + "' (all data models will be validated).", e);
+            digests.clear();
+        }
+    }
+
+    private void append(String digest) {
+        if (digests.size() == 1) {
+            rewrite(); // First digest: file may be missing or written by another version.
+        } else {
+            write(Collections.singleton(digest), true);
+        }
+    }
+
+    private void rewrite() {
+        write(digests, false);
+    }
+
+    private void write(Set<String> digestsToWrite, boolean append) {
+        try {
+            File parent = file.getAbsoluteFile().getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create directory '" + parent.getAbsolutePath() + "'.");
+            }
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), ENCODING));
+            try {
+                if (!append) {
+                    writer.write(VERSION_PREFIX + version);
+                    writer.write('\n');
+                }
+                for (String digest : digestsToWrite) {
+                    writer.write(digest);
+                    writer.write('\n');
+                }
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            // Digests are still available in memory for this store instance.
+            LOGGER.warn("Could not write trusted data models to '" + file.getAbsolutePath() + "'.", e);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Results computed from the entity types of a frozen {@link MetadataRepository} by
+ * {@link MetadataUtils#sortTypes(MetadataRepository)} and {@link MetadataUtils#computeEntityRank(MetadataRepository)}.
+ * A new cache is created each time repository is frozen and cache is dropped when repository is modified, so these
+ * results never outlive the types they were computed from. Results are computed (and set) by {@link MetadataUtils}
+ * while holding the lock of the cache.
+ */
+class TypeOrderCache {
+
+    private volatile List<ComplexTypeMetadata> sortedTypes;
+
+    private volatile Map<ComplexTypeMetadata, Integer> sortedTypesOrder;
+
+    private volatile boolean hasCycle;
+
+    private volatile Map<ComplexTypeMetadata, Long> entityRank;
+
+    /**
+     * @return The cached result of {@link MetadataUtils#sortTypes(MetadataRepository)} or <code>null</code> if not
+     * computed yet (or if entity types have a cyclic dependency).
+     */
+    List<ComplexTypeMetadata> getSortedTypes() {
+        return sortedTypes;
+    }
+
+    /**
+     * @return A map from each type in {@link #getSortedTypes()} to its position in the list (or <code>null</code> if
+     * sorted types are not computed yet).
+     */
+    Map<ComplexTypeMetadata, Integer> getSortedTypesOrder() {
+        return sortedTypesOrder;
+    }
+
+    void setSortedTypes(List<ComplexTypeMetadata> sortedTypes) {
+        Map<ComplexTypeMetadata, Integer> order = new HashMap<ComplexTypeMetadata, Integer>();
+        int position = 0;
+        for (ComplexTypeMetadata sortedType : sortedTypes) {
+            order.put(sortedType, position++);
+        }
+        this.sortedTypesOrder = order;
+        this.sortedTypes = sortedTypes; // Written last: callers check this field.
+    }
+
+    /**
+     * @return <code>true</code> if sort of all entity types failed because of a cyclic dependency.
+     */
+    boolean hasCycle() {
+        return hasCycle;
+    }
+
+    void setHasCycle() {
+        this.hasCycle = true;
+    }
+
+    /**
+     * @return The cached result of {@link MetadataUtils#computeEntityRank(MetadataRepository)} or <code>null</code>
+     * if not computed yet.
+     */
+    Map<ComplexTypeMetadata, Long> getEntityRank() {
+        return entityRank;
+    }
+
+    void setEntityRank(Map<ComplexTypeMetadata, Long> entityRank) {
+        this.entityRank = entityRank;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>
+ * Immutable copy of the types of a frozen {@link MetadataRepository}, indexed by name space and type name in hash maps.
+ * </p>
+ * <p>
+ * Repository publishes a new snapshot each time it is frozen and drops it as soon as it is modified: readers that get
+ * a snapshot (through a volatile field) only see fully built maps and never need to synchronize with loading thread.
+ * </p>
+ * <p>
+ * Snapshot also keeps the type lists returned by {@link MetadataRepository#getUserComplexTypes()},
+ * {@link MetadataRepository#getTypes()} and {@link MetadataRepository#getNonInstantiableTypes()}: lists are
+ * unmodifiable and support indexed access (iterating over types of a frozen repository allocates no new list).
+ * </p>
+ */
+final class TypeSnapshot {
+
+    private final Map<String, Map<String, TypeMetadata>> entityTypes;
+
+    private final Map<String, Map<String, TypeMetadata>> nonInstantiableTypes;
+
+    private final List<ComplexTypeMetadata> userComplexTypes;
+
+    private final List<TypeMetadata> types;
+
+    private final List<ComplexTypeMetadata> userNonInstantiableTypes;
+
+    // Lazily computed (see getIds()).
+    private volatile MetadataIds ids;
+
+    // Lazily computed (see getFingerprints()).
+    private volatile MetadataFingerprints fingerprints;
+
+    private TypeSnapshot(Map<String, Map<String, TypeMetadata>> entityTypes,
+            Map<String, Map<String, TypeMetadata>> nonInstantiableTypes, String userNamespace) {
+        // Lists are built from the repository maps (not the copies): types keep the repository order.
+        this.userComplexTypes = getComplexTypes(entityTypes.get(userNamespace));
+        this.userNonInstantiableTypes = getComplexTypes(nonInstantiableTypes.get(userNamespace));
+        List<TypeMetadata> allTypes = new ArrayList<TypeMetadata>();
+        addAll(allTypes, entityTypes.values());
+        addAll(allTypes, nonInstantiableTypes.values());
+        this.types = Collections.unmodifiableList(allTypes);
+        this.entityTypes = copy(entityTypes);
+        this.nonInstantiableTypes = copy(nonInstantiableTypes);
+    }
+
+    /**
+     * @param entityTypes Entity types of the repository (by name space).
+     * @param nonInstantiableTypes Non instantiable types of the repository (by name space).
+     * @param userNamespace The name space of the types defined by the MDM user.
+     * @return A snapshot that no longer depends on the maps passed as parameters.
+     */
+    static TypeSnapshot build(Map<String, Map<String, TypeMetadata>> entityTypes,
+            Map<String, Map<String, TypeMetadata>> nonInstantiableTypes, String userNamespace) {
+        return new TypeSnapshot(entityTypes, nonInstantiableTypes, userNamespace);
+    }
+
+    TypeMetadata getType(String namespace, String name) {
+        return get(entityTypes, namespace, name);
+    }
+
+    TypeMetadata getNonInstantiableType(String namespace, String name) {
+        return get(nonInstantiableTypes, namespace, name);
+    }
+
+    List<ComplexTypeMetadata> getUserComplexTypes() {
+        return userComplexTypes;
+    }
+
+    List<TypeMetadata> getTypes() {
+        return types;
+    }
+
+    List<ComplexTypeMetadata> getUserNonInstantiableTypes() {
+        return userNonInstantiableTypes;
+    }
+
+    MetadataIds getIds() {
+        MetadataIds currentIds = ids;
+        if (currentIds == null) {
+            // Concurrent callers may compute ids more than once, but they always compute the same ids.
+            currentIds = MetadataIds.build(userComplexTypes, userNonInstantiableTypes);
+            ids = currentIds;
+        }
+        return currentIds;
+    }
+
+    MetadataFingerprints getFingerprints() {
+        MetadataFingerprints currentFingerprints = fingerprints;
+        if (currentFingerprints == null) {
+            currentFingerprints = MetadataFingerprints.build(userComplexTypes, userNonInstantiableTypes);
+            fingerprints = currentFingerprints;
+        }
+        return currentFingerprints;
+    }
+
+    private static TypeMetadata get(Map<String, Map<String, TypeMetadata>> typeMap, String namespace, String name) {
+        Map<String, TypeMetadata> namespaceTypes = typeMap.get(namespace);
+        if (namespaceTypes == null) {
+            return null;
+        }
+        TypeMetadata type = namespaceTypes.get(name);
+        if (type == null && isUntrimmed(name)) {
+            // Only trim names that need it (most callers already use the exact type name).
+            type = namespaceTypes.get(name.trim());
+        }
+        return type;
+    }
+
+    private static boolean isUntrimmed(String name) {
+        int length = name.length();
+        return length > 0 && (name.charAt(0) <= ' ' || name.charAt(length - 1) <= ' ');
+    }
+
+    private static List<ComplexTypeMetadata> getComplexTypes(Map<String, TypeMetadata> namespaceTypes) {
+        if (namespaceTypes == null) {
+            return Collections.emptyList();
+        }
+        List<ComplexTypeMetadata> complexTypes = new ArrayList<ComplexTypeMetadata>(namespaceTypes.size());
+        for (TypeMetadata type : namespaceTypes.values()) {
+            if (type instanceof ComplexTypeMetadata) {
+                complexTypes.add((ComplexTypeMetadata) type);
+            }
+        }
+        return Collections.unmodifiableList(complexTypes);
+    }
+
+    private static void addAll(List<TypeMetadata> types, Collection<Map<String, TypeMetadata>> namespaces) {
+        for (Map<String, TypeMetadata> namespaceTypes : namespaces) {
+            if (namespaceTypes != null) {
+                types.addAll(namespaceTypes.values());
+            }
+        }
+    }
+
+    private static Map<String, Map<String, TypeMetadata>> copy(Map<String, Map<String, TypeMetadata>> typeMap) {
+        Map<String, Map<String, TypeMetadata>> copy = new HashMap<String, Map<String, TypeMetadata>>();
+        for (Map.Entry<String, Map<String, TypeMetadata>> entry : typeMap.entrySet()) {
+            if (entry.getValue() != null) {
+                copy.put(entry.getKey(), Collections.unmodifiableMap(new HashMap<String, TypeMetadata>(entry.getValue())));
+            }
+        }
+        return Collections.unmodifiableMap(copy);
+    }
+}
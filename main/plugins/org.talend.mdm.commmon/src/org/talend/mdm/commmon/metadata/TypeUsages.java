@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>
+ * Usages of a {@link ComplexTypeMetadataImpl} (see {@link ComplexTypeMetadata#declareUsage(ComplexTypeMetadata)}).
+ * Usages are kept in declaration order in a list that is only appended to, so a copy of a type takes a snapshot of
+ * the usages of its source by only keeping the number of usages declared so far: snapshots of the same usages share
+ * the same list.
+ * </p>
+ * <p>
+ * A snapshot appends to the shared list only when it sees all usages in the list, otherwise it first copies the
+ * usages it sees in a list of its own: usages declared on a type (or on a copy) after a copy was made are never
+ * visible from the other types.
+ * </p>
+ */
+class TypeUsages extends AbstractCollection<ComplexTypeMetadata> {
+
+    private final Log log;
+
+    private final int size;
+
+    TypeUsages() {
+        this(new Log(), 0);
+    }
+
+    private TypeUsages(Log log, int size) {
+        this.log = log;
+        this.size = size;
+    }
+
+    /**
+     * @param usage A usage of the type.
+     * @return Usages of the type once <code>usage</code> is declared (this instance if usage was already declared).
+     */
+    TypeUsages with(ComplexTypeMetadata usage) {
+        if (contains(usage)) {
+            return this;
+        }
+        Log appendLog = log;
+        if (log.usages.size() != size) {
+            // Other usages were declared on the shared list since this snapshot: copy usages of this snapshot.
+            appendLog = new Log();
+            for (ComplexTypeMetadata previousUsage : this) {
+                appendLog.add(previousUsage);
+            }
+        }
+        appendLog.add(usage);
+        return new TypeUsages(appendLog, size + 1);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        Integer position = log.positions.get(o);
+        return position != null && position < size;
+    }
+
+    @Override
+    public Iterator<ComplexTypeMetadata> iterator() {
+        // Not a sub list iterator: other snapshots may append to shared list during iteration.
+        return new Iterator<ComplexTypeMetadata>() {
+
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public ComplexTypeMetadata next() {
+                if (position >= size) {
+                    throw new NoSuchElementException();
+                }
+                return log.usages.get(position++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Usages can not be removed.");
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Usages in declaration order (and their position in list).
+    private static class Log {
+
+        private final List<ComplexTypeMetadata> usages = new ArrayList<ComplexTypeMetadata>();
+
+        private final Map<ComplexTypeMetadata, Integer> positions = new HashMap<ComplexTypeMetadata, Integer>();
+
+        private void add(ComplexTypeMetadata usage) {
+            positions.put(usage, usages.size());
+            usages.add(usage);
+        }
+    }
+}
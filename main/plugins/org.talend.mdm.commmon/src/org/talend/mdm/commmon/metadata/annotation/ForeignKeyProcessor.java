@@ -10,11 +10,12 @@
 
 package org.talend.mdm.commmon.metadata.annotation;
 
+import java.util.List;
+
 import org.apache.commons.lang.StringUtils;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.xsd.XSDAnnotation;
-import org.eclipse.xsd.util.XSDParser;
 import org.talend.mdm.commmon.metadata.*;
+import org.talend.mdm.commmon.metadata.xsd.XmlSchemaLocations;
 import org.w3c.dom.Element;
 
 public class ForeignKeyProcessor implements XmlSchemaAnnotationProcessor {
@@ -23,18 +24,23 @@ public class ForeignKeyProcessor implements XmlSchemaAnnotationProcessor {
     public void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation,
             XmlSchemaAnnotationProcessorState state) {
         if (annotation != null) {
-            EList<Element> annotations = annotation.getApplicationInformation();
-            for (Element appInfo : annotations) {
-                String source = appInfo.getAttribute("source");
-                if ("X_ForeignKey".equals(source)) { //$NON-NLS-1$
-                    handleForeignKey(repository, type, state, appInfo);
-                } else if ("X_ForeignKeyInfo".equals(source)) { //$NON-NLS-1$
-                    handleForeignKeyInfo(repository, type, state, appInfo);
-                } else if ("X_FKIntegrity".equals(source)) { //$NON-NLS-1$
-                    state.setFkIntegrity(Boolean.valueOf(appInfo.getTextContent()));
-                } else if ("X_FKIntegrity_Override".equals(source)) { //$NON-NLS-1$
-                    state.setFkIntegrityOverride(Boolean.valueOf(appInfo.getTextContent()));
-                }
+            process(repository, type, annotation.getApplicationInformation(), state);
+        }
+    }
+
+    @Override
+    public void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos,
+            XmlSchemaAnnotationProcessorState state) {
+        for (Element appInfo : appInfos) {
+            String source = appInfo.getAttribute("source");
+            if ("X_ForeignKey".equals(source)) { //$NON-NLS-1$
+                handleForeignKey(repository, type, state, appInfo);
+            } else if ("X_ForeignKeyInfo".equals(source)) { //$NON-NLS-1$
+                handleForeignKeyInfo(repository, type, state, appInfo);
+            } else if ("X_FKIntegrity".equals(source)) { //$NON-NLS-1$
+                state.setFkIntegrity(Boolean.valueOf(appInfo.getTextContent()));
+            } else if ("X_FKIntegrity_Override".equals(source)) { //$NON-NLS-1$
+                state.setFkIntegrityOverride(Boolean.valueOf(appInfo.getTextContent()));
             }
         }
     }
@@ -71,8 +77,8 @@ public class ForeignKeyProcessor implements XmlSchemaAnnotationProcessor {
         } else {
             fieldMetadata = new SoftIdFieldRef(repository, typeName);
         }
-        fieldMetadata.setData(MetadataRepository.XSD_LINE_NUMBER, XSDParser.getStartLine(appInfo));
-        fieldMetadata.setData(MetadataRepository.XSD_COLUMN_NUMBER, XSDParser.getStartColumn(appInfo));
+        fieldMetadata.setData(MetadataRepository.XSD_LINE_NUMBER, XmlSchemaLocations.getStartLine(appInfo));
+        fieldMetadata.setData(MetadataRepository.XSD_COLUMN_NUMBER, XmlSchemaLocations.getStartColumn(appInfo));
         fieldMetadata.setData(MetadataRepository.XSD_DOM_ELEMENT, appInfo);
         return fieldMetadata;
     }
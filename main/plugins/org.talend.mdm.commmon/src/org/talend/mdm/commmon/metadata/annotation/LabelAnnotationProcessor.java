@@ -12,26 +12,30 @@
 package org.talend.mdm.commmon.metadata.annotation;
 
 import org.apache.commons.lang.StringUtils;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.xsd.XSDAnnotation;
 import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
 import org.talend.mdm.commmon.metadata.MetadataRepository;
 import org.w3c.dom.Element;
 
+import java.util.List;
 import java.util.Locale;
 
 public class LabelAnnotationProcessor implements XmlSchemaAnnotationProcessor {
     @Override
     public void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation, XmlSchemaAnnotationProcessorState state) {
         if (annotation != null) {
-            EList<Element> appInfoElements = annotation.getApplicationInformation();
-            for (Element appInfo : appInfoElements) {
-                String source = appInfo.getAttribute("source"); //$NON-NLS-1$
-                if (source != null && source.startsWith("X_Label_")) { //$NON-NLS-1$
-                    String language = StringUtils.substringAfter(source, "X_Label_"); //$NON-NLS-1$
-                    Locale locale = new Locale(language.toLowerCase());
-                    state.registerTypeName(locale, appInfo.getTextContent());
-                }
+            process(repository, type, annotation.getApplicationInformation(), state);
+        }
+    }
+
+    @Override
+    public void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos, XmlSchemaAnnotationProcessorState state) {
+        for (Element appInfo : appInfos) {
+            String source = appInfo.getAttribute("source"); //$NON-NLS-1$
+            if (source != null && source.startsWith("X_Label_")) { //$NON-NLS-1$
+                String language = StringUtils.substringAfter(source, "X_Label_"); //$NON-NLS-1$
+                Locale locale = new Locale(language.toLowerCase());
+                state.registerTypeName(locale, appInfo.getTextContent());
             }
         }
     }
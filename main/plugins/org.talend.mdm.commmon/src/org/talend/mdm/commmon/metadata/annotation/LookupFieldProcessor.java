@@ -12,10 +12,9 @@
 package org.talend.mdm.commmon.metadata.annotation;
 
 import org.apache.commons.lang.StringUtils;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.xsd.XSDAnnotation;
-import org.eclipse.xsd.util.XSDParser;
 import org.talend.mdm.commmon.metadata.*;
+import org.talend.mdm.commmon.metadata.xsd.XmlSchemaLocations;
 import org.w3c.dom.Element;
 
 import java.util.Arrays;
@@ -28,15 +27,19 @@ public class LookupFieldProcessor implements XmlSchemaAnnotationProcessor {
     @Override
     public void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation, XmlSchemaAnnotationProcessorState state) {
         if (annotation != null) {
-            EList<Element> annotations = annotation.getApplicationInformation();
-            List<FieldMetadata> lookupFields = new LinkedList<FieldMetadata>();
-            for (Element appInfo : annotations) {
-                if ("X_Lookup_Field".equals(appInfo.getAttribute("source"))) { //$NON-NLS-1$
-                    lookupFields.add(handleLookupField(repository, state, appInfo));
-                }
+            process(repository, type, annotation.getApplicationInformation(), state);
+        }
+    }
+
+    @Override
+    public void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos, XmlSchemaAnnotationProcessorState state) {
+        List<FieldMetadata> lookupFields = new LinkedList<FieldMetadata>();
+        for (Element appInfo : appInfos) {
+            if ("X_Lookup_Field".equals(appInfo.getAttribute("source"))) { //$NON-NLS-1$
+                lookupFields.add(handleLookupField(repository, state, appInfo));
             }
-            state.setLookupFields(lookupFields);
         }
+        state.setLookupFields(lookupFields);
     }
 
     private FieldMetadata handleLookupField(MetadataRepository repository, XmlSchemaAnnotationProcessorState state,
@@ -60,8 +63,8 @@ public class LookupFieldProcessor implements XmlSchemaAnnotationProcessor {
         state.setFieldType(referencedType); // TODO Wrong!!!!
         state.setReferencedType(referencedType); // Only reference instantiable types.
         FieldMetadata fieldMetadata = new SoftFieldRef(repository, fieldPath, typeName);
-        fieldMetadata.setData(MetadataRepository.XSD_LINE_NUMBER, XSDParser.getStartLine(appInfo));
-        fieldMetadata.setData(MetadataRepository.XSD_COLUMN_NUMBER, XSDParser.getStartColumn(appInfo));
+        fieldMetadata.setData(MetadataRepository.XSD_LINE_NUMBER, XmlSchemaLocations.getStartLine(appInfo));
+        fieldMetadata.setData(MetadataRepository.XSD_COLUMN_NUMBER, XmlSchemaLocations.getStartColumn(appInfo));
         fieldMetadata.setData(MetadataRepository.XSD_DOM_ELEMENT, appInfo);
         return fieldMetadata;
     }
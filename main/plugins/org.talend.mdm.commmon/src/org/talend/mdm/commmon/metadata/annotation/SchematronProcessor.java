@@ -12,7 +12,6 @@
 package org.talend.mdm.commmon.metadata.annotation;
 
 import org.apache.commons.lang.StringEscapeUtils;
-import org.eclipse.emf.common.util.EList;
 import org.eclipse.xsd.XSDAnnotation;
 import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
 import org.talend.mdm.commmon.metadata.MetadataRepository;
@@ -26,6 +25,7 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.util.List;
 
 public class SchematronProcessor implements XmlSchemaAnnotationProcessor {
 
@@ -34,28 +34,32 @@ public class SchematronProcessor implements XmlSchemaAnnotationProcessor {
     @Override
     public void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation, XmlSchemaAnnotationProcessorState state) {
         if (annotation != null) {
-            EList<Element> annotations = annotation.getApplicationInformation();
-            for (Element appInfo : annotations) {
-                if ("X_Schematron".equals(appInfo.getAttribute("source"))) { //$NON-NLS-1$ //$NON-NLS-2$
-                    StringWriter sw = new StringWriter();
-                    Transformer transformer;
-                    try {
-                        transformer = transformerFactory.newTransformer();
-                    } catch (TransformerConfigurationException e) {
-                        throw new RuntimeException("Could not create transformer instance.", e);
-                    }
-                    transformer.setOutputProperty("omit-xml-declaration", "yes"); //$NON-NLS-1$ //$NON-NLS-2$
+            process(repository, type, annotation.getApplicationInformation(), state);
+        }
+    }
+
+    @Override
+    public void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos, XmlSchemaAnnotationProcessorState state) {
+        for (Element appInfo : appInfos) {
+            if ("X_Schematron".equals(appInfo.getAttribute("source"))) { //$NON-NLS-1$ //$NON-NLS-2$
+                StringWriter sw = new StringWriter();
+                Transformer transformer;
+                try {
+                    transformer = transformerFactory.newTransformer();
+                } catch (TransformerConfigurationException e) {
+                    throw new RuntimeException("Could not create transformer instance.", e);
+                }
+                transformer.setOutputProperty("omit-xml-declaration", "yes"); //$NON-NLS-1$ //$NON-NLS-2$
+                try {
+                    // TODO This is not really efficient but doing it nicely would require to rewrite a StringEscapeUtils.unescapeXml()
+                    transformer.transform(new StreamSource(new StringReader(appInfo.getTextContent())), new StreamResult(sw));
+                    state.setSchematron("<schema>" + sw.toString() + "</schema>"); //$NON-NLS-1$ //$NON-NLS-2$
+                } catch (TransformerException e) {
                     try {
-                        // TODO This is not really efficient but doing it nicely would require to rewrite a StringEscapeUtils.unescapeXml()
-                        transformer.transform(new StreamSource(new StringReader(appInfo.getTextContent())), new StreamResult(sw));
+                        transformer.transform(new StreamSource(new StringReader(StringEscapeUtils.unescapeXml(appInfo.getTextContent()))), new StreamResult(sw));
                         state.setSchematron("<schema>" + sw.toString() + "</schema>"); //$NON-NLS-1$ //$NON-NLS-2$
-                    } catch (TransformerException e) {
-                        try {
-                            transformer.transform(new StreamSource(new StringReader(StringEscapeUtils.unescapeXml(appInfo.getTextContent()))), new StreamResult(sw));
-                            state.setSchematron("<schema>" + sw.toString() + "</schema>"); //$NON-NLS-1$ //$NON-NLS-2$
-                        } catch (TransformerException e1) {
-                            throw new RuntimeException(e1);
-                        }
+                    } catch (TransformerException e1) {
+                        throw new RuntimeException(e1);
                     }
                 }
             }
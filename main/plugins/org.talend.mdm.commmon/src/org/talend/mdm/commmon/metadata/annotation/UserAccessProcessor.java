@@ -11,7 +11,8 @@
 
 package org.talend.mdm.commmon.metadata.annotation;
 
-import org.eclipse.emf.common.util.EList;
+import java.util.List;
+
 import org.eclipse.xsd.XSDAnnotation;
 import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
 import org.talend.mdm.commmon.metadata.MetadataRepository;
@@ -22,24 +23,28 @@ public class UserAccessProcessor implements XmlSchemaAnnotationProcessor {
     @Override
     public void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation, XmlSchemaAnnotationProcessorState state) {
         if (annotation != null) {
-            EList<Element> appInfoElements = annotation.getApplicationInformation();
-            for (Element appInfo : appInfoElements) {
-                String source = appInfo.getAttribute("source");
-                String textContent = appInfo.getTextContent();
-                if ("X_Hide".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
-                    state.getHide().add(textContent);
-                } else if ("X_Write".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
-                    state.getAllowWrite().add(textContent);
-                } else if ("X_Deny_Create".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
-                    state.getDenyCreate().add(textContent);
-                } else if ("X_Deny_LogicalDelete".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
-                    state.getDenyLogicalDelete().add(textContent);
-                } else if ("X_Deny_PhysicalDelete".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
-                    state.getDenyPhysicalDelete().add(textContent);
-                } else if ("X_Workflow".equals(source)) {  //$NON-NLS-1$//$NON-NLS-2$
-                    // including Writable, Read-only and Hidden
-                    state.getWorkflowAccessRights().add(textContent);
-                }
+            process(repository, type, annotation.getApplicationInformation(), state);
+        }
+    }
+
+    @Override
+    public void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos, XmlSchemaAnnotationProcessorState state) {
+        for (Element appInfo : appInfos) {
+            String source = appInfo.getAttribute("source");
+            String textContent = appInfo.getTextContent();
+            if ("X_Hide".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
+                state.getHide().add(textContent);
+            } else if ("X_Write".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
+                state.getAllowWrite().add(textContent);
+            } else if ("X_Deny_Create".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
+                state.getDenyCreate().add(textContent);
+            } else if ("X_Deny_LogicalDelete".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
+                state.getDenyLogicalDelete().add(textContent);
+            } else if ("X_Deny_PhysicalDelete".equals(source)) { //$NON-NLS-1$ //$NON-NLS-2$
+                state.getDenyPhysicalDelete().add(textContent);
+            } else if ("X_Workflow".equals(source)) {  //$NON-NLS-1$//$NON-NLS-2$
+                // including Writable, Read-only and Hidden
+                state.getWorkflowAccessRights().add(textContent);
             }
         }
     }
@@ -11,9 +11,12 @@
 
 package org.talend.mdm.commmon.metadata.annotation;
 
+import java.util.List;
+
 import org.eclipse.xsd.XSDAnnotation;
 import org.talend.mdm.commmon.metadata.ComplexTypeMetadata;
 import org.talend.mdm.commmon.metadata.MetadataRepository;
+import org.w3c.dom.Element;
 
 /**
  * Enrich a {@link ComplexTypeMetadata} being built with information contained in XML Schema information.
@@ -31,4 +34,17 @@ public interface XmlSchemaAnnotationProcessor {
      *                   {@link org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessor}.
      */
     void process(MetadataRepository repository, ComplexTypeMetadata type, XSDAnnotation annotation, XmlSchemaAnnotationProcessorState state);
+
+    /**
+     * Process additional type information contained in the &lt;appinfo&gt; elements of an XML Schema annotation (used
+     * when data model is not parsed with EMF).
+     *
+     * @param repository The repository that contains the <code>type</code>.
+     * @param type       The {@link ComplexTypeMetadata} being enriched by the annotation.
+     * @param appInfos   The &lt;appinfo&gt; elements of the annotation.
+     * @param state      A {@link org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessorState} that keeps track of information parsed by
+     *                   {@link org.talend.mdm.commmon.metadata.annotation.XmlSchemaAnnotationProcessor}.
+     * @see #process(MetadataRepository, ComplexTypeMetadata, XSDAnnotation, XmlSchemaAnnotationProcessorState)
+     */
+    void process(MetadataRepository repository, ComplexTypeMetadata type, List<Element> appInfos, XmlSchemaAnnotationProcessorState state);
 }
@@ -11,6 +11,13 @@
 package org.talend.mdm.commmon.metadata.compare;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.talend.mdm.commmon.metadata.*;
@@ -19,9 +26,22 @@ public class Compare {
 
     private static final Logger LOGGER = Logger.getLogger(Compare.class);
 
+    // Below this number of entity types, comparing types in parallel costs more than it saves.
+    private static final int PARALLEL_THRESHOLD = 32;
+
+    // Number of tasks per thread: more tasks than threads balance the entity types of different sizes.
+    private static final int TASKS_PER_THREAD = 4;
+
     /**
      * Compare two {@link org.talend.mdm.commmon.metadata.MetadataRepository repositories} and return the differences
      * between them.
+     * <p>
+     * When both repositories are frozen, entity types with the same {@link MetadataFingerprints fingerprint} on both
+     * sides are skipped. Contents of other entity types are matched with hash lookups and fields that changed are paired
+     * by path. When left repository has many entity types, entity types are compared in parallel; results are always
+     * merged in the order of {@link MetadataRepository#getUserComplexTypes()}. Entity types that only exist in
+     * <code>right</code> are reported as added types (after the changes of the existing entity types).
+     * </p>
      * 
      * @param left The original {@link org.talend.mdm.commmon.metadata.MetadataRepository repository}.
      * @param right The new {@link org.talend.mdm.commmon.metadata.MetadataRepository repository}.
@@ -31,74 +51,31 @@ public class Compare {
      */
     public static DiffResults compare(MetadataRepository left, MetadataRepository right) {
         DiffResults diffResults = new DiffResults();
-        Collection<ComplexTypeMetadata> entityTypes = left.getUserComplexTypes();
-        DumpContent dumpContent = new DumpContent();
-        for (ComplexTypeMetadata leftType : entityTypes) {
-            // Check if left type still exists
-            ComplexTypeMetadata rightType = right.getComplexType(leftType.getName());
-            if (rightType == null) {
-                // Right type does not exist
-                diffResults.removeChanges.add(new RemoveChange(leftType));
+        MetadataFingerprints leftFingerprints = left.getFingerprints();
+        MetadataFingerprints rightFingerprints = right.getFingerprints();
+        if (leftFingerprints != null && rightFingerprints != null
+                && leftFingerprints.getFingerprint() == rightFingerprints.getFingerprint()) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("Data models have the same fingerprint: no difference.");
+            }
+            return diffResults;
+        }
+        Collection<ComplexTypeMetadata> userTypes = left.getUserComplexTypes();
+        // Repository returns a list (parallel compare splits it in sub lists).
+        List<ComplexTypeMetadata> entityTypes = userTypes instanceof List ? (List<ComplexTypeMetadata>) userTypes
+                : new ArrayList<ComplexTypeMetadata>(userTypes);
+        int threadNumber = Math.min(Runtime.getRuntime().availableProcessors(), entityTypes.size());
+        if (threadNumber > 1 && entityTypes.size() >= PARALLEL_THRESHOLD) {
+            compareInParallel(entityTypes, right, leftFingerprints, rightFingerprints, diffResults, threadNumber);
+        } else {
+            compare(entityTypes, right, leftFingerprints, rightFingerprints, diffResults);
+        }
+        // Entity types that only exist in right repository
+        for (ComplexTypeMetadata rightType : right.getUserComplexTypes()) {
+            if (left.getComplexType(rightType.getName()) == null) {
+                diffResults.addChanges.add(new AddChange(rightType));
                 if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("[REMOVED] Type " + leftType + " no longer exist.");
-                }
-            } else {
-                // Read left content
-                List<MetadataVisitable> leftContent = new ArrayList<MetadataVisitable>(leftType.accept(dumpContent));
-                dumpContent.reset();
-                // Read right content
-                List<MetadataVisitable> rightContent = new ArrayList<MetadataVisitable>(rightType.accept(dumpContent));
-                dumpContent.reset();
-                // Compare contents
-                Map<String, FieldMetadata> removedElementNames = new HashMap<String, FieldMetadata>();
-                for (MetadataVisitable leftVisitable : leftContent) {
-                    int index = rightContent.indexOf(leftVisitable);
-                    if (index < 0) {
-                        // Different (right does not exist, but might be removed or modified).
-                        if (leftVisitable instanceof FieldMetadata) {
-                            FieldMetadata field = (FieldMetadata) leftVisitable;
-                            removedElementNames.put(field.getName(), field);
-                        }
-                    } else {
-                        rightContent.remove(index);
-                    }
-                }
-                if (!rightContent.isEmpty()) {
-                    Iterator<MetadataVisitable> addedElements = rightContent.iterator();
-                    while (addedElements.hasNext()) {
-                        MetadataVisitable current = addedElements.next();
-                        MetadataVisitable modifiedElement = null;
-                        if (current instanceof FieldMetadata) {
-                            modifiedElement = removedElementNames.get(((FieldMetadata) current).getName());
-                        }
-                        if (modifiedElement != null) {
-                            // Modified element (only exist in right, not in left).
-                            diffResults.modifyChanges.add(new ModifyChange(modifiedElement, current));
-                            if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug("[MODIFIED] " + current + " was modified" + "\t was " + modifiedElement + "\t now "
-                                        + current);
-                            }
-                            removedElementNames.remove(((FieldMetadata) current).getName());
-                        } else {
-                            // Added element (only exist in right, not in left).
-                            diffResults.addChanges.add(new AddChange(current));
-                            if (LOGGER.isDebugEnabled()) {
-                                LOGGER.debug("[ADDED] " + current + " was added.");
-                            }
-                        }
-                        addedElements.remove();
-                    }
-                }
-                // Process removed elements
-                for (FieldMetadata fieldMetadata : removedElementNames.values()) {
-                    // Different (right does not exist).
-                    diffResults.removeChanges.add(new RemoveChange(fieldMetadata));
-                    if (LOGGER.isDebugEnabled()) {
-                        LOGGER.debug("[REMOVED] " + fieldMetadata + " no longer exist.");
-                    }
-                }
-                if (!rightContent.isEmpty()) { // Not expected at all -> likely a bug
-                    throw new IllegalStateException("Elements remain for comparison.");
+                    LOGGER.debug("[ADDED] Type " + rightType + " was added.");
                 }
             }
         }
@@ -142,6 +119,151 @@ public class Compare {
         return diffResults;
     }
 
+    private static void compare(List<ComplexTypeMetadata> entityTypes, MetadataRepository right,
+            MetadataFingerprints leftFingerprints, MetadataFingerprints rightFingerprints, DiffResults diffResults) {
+        DumpContent dumpContent = new DumpContent();
+        for (ComplexTypeMetadata leftType : entityTypes) {
+            compare(leftType, right, leftFingerprints, rightFingerprints, diffResults, dumpContent);
+        }
+    }
+
+    private static void compareInParallel(List<ComplexTypeMetadata> entityTypes, final MetadataRepository right,
+            final MetadataFingerprints leftFingerprints, final MetadataFingerprints rightFingerprints,
+            DiffResults diffResults, int threadNumber) {
+        ExecutorService executor = Executors.newFixedThreadPool(threadNumber, new ThreadFactory() {
+
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "metadata-compare-" + threadCount.incrementAndGet()); //$NON-NLS-1$
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try {
+            // Each task compares a contiguous range of types: merging results in task order gives the same results (in
+            // the same order) as a sequential comparison.
+            int taskNumber = Math.min(entityTypes.size(), threadNumber * TASKS_PER_THREAD);
+            List<Future<DiffResults>> comparisons = new ArrayList<Future<DiffResults>>(taskNumber);
+            for (int i = 0; i < taskNumber; i++) {
+                final List<ComplexTypeMetadata> types = entityTypes.subList(i * entityTypes.size() / taskNumber, (i + 1)
+                        * entityTypes.size() / taskNumber);
+                comparisons.add(executor.submit(new Callable<DiffResults>() {
+
+                    @Override
+                    public DiffResults call() {
+                        DiffResults partialResults = new DiffResults();
+                        compare(types, right, leftFingerprints, rightFingerprints, partialResults);
+                        return partialResults;
+                    }
+                }));
+            }
+            for (Future<DiffResults> comparison : comparisons) {
+                try {
+                    diffResults.addAll(comparison.get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new RuntimeException("Could not compare data models.", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Data model comparison was interrupted.", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void compare(ComplexTypeMetadata leftType, MetadataRepository right,
+            MetadataFingerprints leftFingerprints, MetadataFingerprints rightFingerprints, DiffResults diffResults,
+            DumpContent dumpContent) {
+        // Check if left type still exists
+        ComplexTypeMetadata rightType = right.getComplexType(leftType.getName());
+        if (rightType == null) {
+            // Right type does not exist
+            diffResults.removeChanges.add(new RemoveChange(leftType));
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("[REMOVED] Type " + leftType + " no longer exist.");
+            }
+            return;
+        }
+        if (leftFingerprints != null && rightFingerprints != null
+                && leftFingerprints.getFingerprint(leftType) == rightFingerprints.getFingerprint(rightType)) {
+            // Same structure: a deep comparison would not find any difference.
+            return;
+        }
+        // Read left content
+        List<MetadataVisitable> leftContent = new ArrayList<MetadataVisitable>(leftType.accept(dumpContent));
+        dumpContent.reset();
+        // Read right content
+        List<MetadataVisitable> rightContent = new ArrayList<MetadataVisitable>(rightType.accept(dumpContent));
+        dumpContent.reset();
+        // Index right content: first unmatched position of each element, next[i] links position i to the next position
+        // of an equal element (or -1).
+        int rightSize = rightContent.size();
+        Map<MetadataVisitable, Integer> rightPositions = new HashMap<MetadataVisitable, Integer>(rightSize * 2);
+        int[] next = new int[rightSize];
+        for (int i = rightSize - 1; i >= 0; i--) {
+            Integer previous = rightPositions.put(rightContent.get(i), i);
+            next[i] = previous == null ? -1 : previous;
+        }
+        // Compare contents
+        boolean[] matched = new boolean[rightSize];
+        Map<String, FieldMetadata> removedElements = new LinkedHashMap<String, FieldMetadata>();
+        for (MetadataVisitable leftVisitable : leftContent) {
+            Integer index = rightPositions.get(leftVisitable);
+            if (index == null) {
+                // Different (right does not exist, but might be removed or modified).
+                if (leftVisitable instanceof FieldMetadata) {
+                    FieldMetadata field = (FieldMetadata) leftVisitable;
+                    removedElements.put(field.getPath(), field);
+                }
+            } else {
+                matched[index] = true;
+                if (next[index] < 0) {
+                    rightPositions.remove(leftVisitable);
+                } else {
+                    rightPositions.put(rightContent.get(index), next[index]);
+                }
+            }
+        }
+        for (int i = 0; i < rightSize; i++) {
+            if (matched[i]) {
+                continue;
+            }
+            MetadataVisitable current = rightContent.get(i);
+            MetadataVisitable modifiedElement = null;
+            if (current instanceof FieldMetadata && !removedElements.isEmpty()) {
+                modifiedElement = removedElements.remove(((FieldMetadata) current).getPath());
+            }
+            if (modifiedElement != null) {
+                // Modified element (only exist in right, not in left).
+                diffResults.modifyChanges.add(new ModifyChange(modifiedElement, current));
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("[MODIFIED] " + current + " was modified" + "\t was " + modifiedElement + "\t now "
+                            + current);
+                }
+            } else {
+                // Added element (only exist in right, not in left).
+                diffResults.addChanges.add(new AddChange(current));
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("[ADDED] " + current + " was added.");
+                }
+            }
+        }
+        // Process removed elements
+        for (FieldMetadata fieldMetadata : removedElements.values()) {
+            // Different (right does not exist).
+            diffResults.removeChanges.add(new RemoveChange(fieldMetadata));
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("[REMOVED] " + fieldMetadata + " no longer exist.");
+            }
+        }
+    }
+
     private static class DumpContent extends DefaultMetadataVisitor<List<MetadataVisitable>> {
 
         private final Stack<MetadataVisitable> content = new Stack<MetadataVisitable>();
@@ -239,6 +361,12 @@ public class Compare {
             return Collections.unmodifiableList(modifyChanges);
         }
 
+        void addAll(DiffResults results) {
+            addChanges.addAll(results.addChanges);
+            removeChanges.addAll(results.removeChanges);
+            modifyChanges.addAll(results.modifyChanges);
+        }
+
         public List<Change> getActions() {
             List<Change> allChanges = new ArrayList<Change>(addChanges.size() + removeChanges.size() + modifyChanges.size());
             allChanges.addAll(addChanges);
@@ -17,12 +17,34 @@ import org.talend.mdm.commmon.metadata.ContainedTypeFieldMetadata;
 import org.talend.mdm.commmon.metadata.FieldMetadata;
 import org.talend.mdm.commmon.metadata.MetadataVisitable;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
-public class HibernateStorageImpactAnalyzer implements ImpactAnalyzer {
+public class HibernateStorageImpactAnalyzer implements MigrationImpactAnalyzer {
+
+    // Execution order of steps: kind order first, then entity type name (steps on the same tables are kept together).
+    private static final Comparator<MigrationStep> STEP_ORDER = new Comparator<MigrationStep>() {
+
+        @Override
+        public int compare(MigrationStep step1, MigrationStep step2) {
+            int kindOrder = step1.getKind().compareTo(step2.getKind());
+            if (kindOrder != 0) {
+                return kindOrder;
+            }
+            return step1.getEntityTypeName().compareTo(step2.getEntityTypeName());
+        }
+    };
 
     public Map<Impact, List<Change>> analyzeImpacts(Compare.DiffResults diffResult) {
         Map<Impact, List<Change>> impactSort = new EnumMap<Impact, List<Change>>(Impact.class);
@@ -95,4 +117,173 @@ public class HibernateStorageImpactAnalyzer implements ImpactAnalyzer {
         return impactSort;
     }
 
+    public MigrationPlan planMigration(Compare.DiffResults diffResult, Map<String, Long> rowCounts) {
+        if (rowCounts == null) {
+            throw new IllegalArgumentException("Row counts cannot be null.");
+        }
+        Map<Change, Impact> impacts = new HashMap<Change, Impact>();
+        for (Map.Entry<Impact, List<Change>> impactChanges : analyzeImpacts(diffResult).entrySet()) {
+            for (Change change : impactChanges.getValue()) {
+                impacts.put(change, impactChanges.getKey());
+            }
+        }
+        List<MigrationStep> steps = new ArrayList<MigrationStep>();
+        // Entity types changed by the diff (by name), in both versions: used to detect key changes.
+        Map<String, ComplexTypeMetadata> previousEntityTypes = new HashMap<String, ComplexTypeMetadata>();
+        Map<String, ComplexTypeMetadata> currentEntityTypes = new HashMap<String, ComplexTypeMetadata>();
+        Map<String, Change> entityTypeChanges = new LinkedHashMap<String, Change>();
+        // Entity types with an added or removed key field (e.g. a field added to a composite key).
+        Set<String> keyFieldEntityTypes = new HashSet<String>();
+        // Add actions
+        for (AddChange addAction : diffResult.getAddChanges()) {
+            MetadataVisitable element = addAction.getElement();
+            if (element instanceof ComplexTypeMetadata) {
+                ComplexTypeMetadata type = (ComplexTypeMetadata) element;
+                if (type.isInstantiable() && type.getContainer() == null) {
+                    // New entity type: table is created empty.
+                    steps.add(new MigrationStep(MigrationStep.Kind.CREATE_TABLE, addAction, type.getName(), impacts
+                            .get(addAction), 0));
+                }
+                // Contained types added to an existing entity type need no step: their fields are also added.
+            } else if (element instanceof FieldMetadata) {
+                registerEntityType(currentEntityTypes, entityTypeChanges, (FieldMetadata) element, addAction);
+                FieldMetadata field = (FieldMetadata) element;
+                String entityTypeName = field.getEntityTypeName();
+                // Existing rows need a value for a new mandatory field, a new optional column is only a schema change.
+                long cost = field.isMandatory() ? getRowCount(rowCounts, entityTypeName) : 0;
+                if (field.isKey()) {
+                    keyFieldEntityTypes.add(entityTypeName);
+                }
+                steps.add(new MigrationStep(MigrationStep.Kind.ADD_COLUMN, addAction, entityTypeName, impacts.get(addAction),
+                        cost));
+            }
+        }
+        // Remove actions
+        for (RemoveChange removeAction : diffResult.getRemoveChanges()) {
+            MetadataVisitable element = removeAction.getElement();
+            if (element instanceof ComplexTypeMetadata) {
+                ComplexTypeMetadata type = (ComplexTypeMetadata) element;
+                if (type.isInstantiable() && type.getContainer() == null) {
+                    // Dropping tables does not depend on row count.
+                    steps.add(new MigrationStep(MigrationStep.Kind.DROP_TABLE, removeAction, type.getName(), impacts
+                            .get(removeAction), 0));
+                }
+            } else if (element instanceof FieldMetadata) {
+                registerEntityType(previousEntityTypes, entityTypeChanges, (FieldMetadata) element, removeAction);
+                String entityTypeName = ((FieldMetadata) element).getEntityTypeName();
+                if (((FieldMetadata) element).isKey()) {
+                    keyFieldEntityTypes.add(entityTypeName);
+                }
+                steps.add(new MigrationStep(MigrationStep.Kind.DROP_COLUMN, removeAction, entityTypeName, impacts
+                        .get(removeAction), getRowCount(rowCounts, entityTypeName)));
+            }
+        }
+        // Modify actions
+        for (ModifyChange modifyAction : diffResult.getModifyChanges()) {
+            MetadataVisitable element = modifyAction.getElement();
+            Impact impact = impacts.get(modifyAction);
+            if (element instanceof ComplexTypeMetadata) {
+                // Reusable type usage changed: mapping of all entity types that use it changes.
+                Set<String> entityTypeNames = new TreeSet<String>();
+                addEntityTypeNames((ComplexTypeMetadata) element, entityTypeNames, new HashSet<ComplexTypeMetadata>());
+                if (modifyAction.getCurrent() instanceof ComplexTypeMetadata) {
+                    addEntityTypeNames((ComplexTypeMetadata) modifyAction.getCurrent(), entityTypeNames,
+                            new HashSet<ComplexTypeMetadata>());
+                }
+                for (String entityTypeName : entityTypeNames) {
+                    steps.add(new MigrationStep(MigrationStep.Kind.REBUILD_TABLE, modifyAction, entityTypeName, impact,
+                            getRowCount(rowCounts, entityTypeName)));
+                }
+            } else if (element instanceof FieldMetadata) {
+                FieldMetadata previous = (FieldMetadata) modifyAction.getPrevious();
+                FieldMetadata current = (FieldMetadata) modifyAction.getCurrent();
+                registerEntityType(previousEntityTypes, entityTypeChanges, previous, modifyAction);
+                registerEntityType(currentEntityTypes, entityTypeChanges, current, modifyAction);
+                String entityTypeName = current.getEntityTypeName();
+                long rowCount = getRowCount(rowCounts, entityTypeName);
+                // A field may need several steps (e.g. a field that becomes a collection with a different type).
+                if (previous.isMany() != current.isMany()) {
+                    steps.add(new MigrationStep(MigrationStep.Kind.REBUILD_COLLECTION_TABLE, modifyAction, entityTypeName,
+                            impact, rowCount));
+                }
+                if (!previous.getType().equals(current.getType()) || previous.isMandatory() != current.isMandatory()) {
+                    steps.add(new MigrationStep(MigrationStep.Kind.ALTER_COLUMN, modifyAction, entityTypeName, impact,
+                            rowCount));
+                }
+            }
+        }
+        // Key changes (at most one step per entity type): any added or removed key field, or different key fields in
+        // both versions of the entity type (a key may be replaced by another field, or a field may become a key).
+        for (Map.Entry<String, Change> entityTypeChange : entityTypeChanges.entrySet()) {
+            String entityTypeName = entityTypeChange.getKey();
+            ComplexTypeMetadata previousType = previousEntityTypes.get(entityTypeName);
+            ComplexTypeMetadata currentType = currentEntityTypes.get(entityTypeName);
+            boolean isKeyChanged = keyFieldEntityTypes.contains(entityTypeName);
+            if (!isKeyChanged && previousType != null && currentType != null) {
+                isKeyChanged = !getKeyPaths(previousType).equals(getKeyPaths(currentType));
+            }
+            if (isKeyChanged) {
+                Change change = entityTypeChange.getValue();
+                steps.add(new MigrationStep(MigrationStep.Kind.REKEY, change, entityTypeName, impacts.get(change),
+                        getRowCount(rowCounts, entityTypeName)));
+            }
+        }
+        Collections.sort(steps, STEP_ORDER);
+        return new MigrationPlan(steps);
+    }
+
+    // Remembers the entity type of field (and the first change on a key field of this entity type, or the first change
+    // if none is on a key field).
+    private static void registerEntityType(Map<String, ComplexTypeMetadata> entityTypes, Map<String, Change> changes,
+            FieldMetadata field, Change change) {
+        ComplexTypeMetadata containingType = field.getContainingType();
+        if (containingType == null) {
+            return;
+        }
+        ComplexTypeMetadata entityType = containingType.getEntity();
+        if (!entityType.isInstantiable()) {
+            return; // Field of a reusable type.
+        }
+        String entityTypeName = entityType.getName();
+        entityTypes.put(entityTypeName, entityType);
+        Change previousChange = changes.get(entityTypeName);
+        if (previousChange == null || (field.isKey() && !isKeyFieldChange(previousChange))) {
+            changes.put(entityTypeName, change);
+        }
+    }
+
+    private static boolean isKeyFieldChange(Change change) {
+        return change.getElement() instanceof FieldMetadata && ((FieldMetadata) change.getElement()).isKey();
+    }
+
+    private static List<String> getKeyPaths(ComplexTypeMetadata entityType) {
+        Collection<FieldMetadata> keyFields = entityType.getKeyFields();
+        List<String> keyPaths = new ArrayList<String>(keyFields.size());
+        for (FieldMetadata keyField : keyFields) {
+            keyPaths.add(keyField.getPath());
+        }
+        return keyPaths;
+    }
+
+    private static long getRowCount(Map<String, Long> rowCounts, String entityTypeName) {
+        Long rowCount = rowCounts.get(entityTypeName);
+        return rowCount == null ? 0 : rowCount;
+    }
+
+    // Adds names of the entity types that use the reusable type (directly or through other reusable types).
+    private static void addEntityTypeNames(ComplexTypeMetadata type, Set<String> entityTypeNames,
+            Set<ComplexTypeMetadata> visitedTypes) {
+        if (!visitedTypes.add(type)) {
+            return;
+        }
+        for (ComplexTypeMetadata usage : type.getUsages()) {
+            FieldMetadata container = usage.getContainer();
+            ComplexTypeMetadata entity = container == null ? usage.getEntity() : container.getContainingType().getEntity();
+            if (entity.isInstantiable()) {
+                entityTypeNames.add(entity.getName());
+            } else {
+                addEntityTypeNames(entity, entityTypeNames, visitedTypes);
+            }
+        }
+    }
 }
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.compare;
+
+import java.util.Map;
+
+/**
+ * <p>
+ * An {@link ImpactAnalyzer} that can also turn diffs between 2 data models into a {@link MigrationPlan}: the storage
+ * operations needed to apply the changes, in execution order, each with an estimated cost.
+ * </p>
+ * <p>
+ * Costs are estimated from the number of rows of each entity type (provided by caller, e.g. from storage statistics):
+ * callers may run cheap steps while storage is online and schedule expensive ones.
+ * </p>
+ */
+public interface MigrationImpactAnalyzer extends ImpactAnalyzer {
+
+    /**
+     * Plans the storage operations needed to apply <code>diffResult</code>.
+     *
+     * @param diffResult A diff computed between 2 data models.
+     * @param rowCounts Number of rows stored for each entity type (by entity type name). Entity types without row
+     *                  count are considered empty.
+     * @return The migration plan (steps are in execution order).
+     * @see org.talend.mdm.commmon.metadata.compare.Compare#compare(org.talend.mdm.commmon.metadata.MetadataRepository, org.talend.mdm.commmon.metadata.MetadataRepository)
+     */
+    MigrationPlan planMigration(Compare.DiffResults diffResult, Map<String, Long> rowCounts);
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.compare;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Ordered list of {@link MigrationStep steps} needed to migrate a storage from a data model to another.
+ *
+ * @see MigrationImpactAnalyzer#planMigration(Compare.DiffResults, java.util.Map)
+ */
+public class MigrationPlan {
+
+    private final List<MigrationStep> steps;
+
+    private final long cost;
+
+    /**
+     * @param steps The steps of the plan (in execution order).
+     */
+    public MigrationPlan(List<MigrationStep> steps) {
+        this.steps = Collections.unmodifiableList(new ArrayList<MigrationStep>(steps));
+        long totalCost = 0;
+        for (MigrationStep step : steps) {
+            totalCost += step.getCost();
+        }
+        this.cost = totalCost;
+    }
+
+    /**
+     * @return The steps in execution order.
+     */
+    public List<MigrationStep> getSteps() {
+        return steps;
+    }
+
+    /**
+     * @param maxCost A cost.
+     * @return The steps (in execution order) whose estimated cost does not exceed <code>maxCost</code>, e.g. steps
+     * cheap enough to run while storage is online.
+     */
+    public List<MigrationStep> getSteps(long maxCost) {
+        List<MigrationStep> cheapSteps = new ArrayList<MigrationStep>();
+        for (MigrationStep step : steps) {
+            if (step.getCost() <= maxCost) {
+                cheapSteps.add(step);
+            }
+        }
+        return cheapSteps;
+    }
+
+    /**
+     * @return Estimated cost of the plan (sum of the costs of all steps).
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    public boolean isEmpty() {
+        return steps.isEmpty();
+    }
+}
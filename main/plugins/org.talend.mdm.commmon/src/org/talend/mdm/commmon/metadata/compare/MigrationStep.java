@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.compare;
+
+/**
+ * A step of a {@link MigrationPlan}: a storage operation needed to apply a {@link Change} on the storage of an entity
+ * type, with an estimate of its cost.
+ *
+ * @see MigrationImpactAnalyzer
+ */
+public class MigrationStep {
+
+    /**
+     * Kinds of storage operations, declared in the order steps should be executed (additions first so storage accepts
+     * the new data model as soon as possible, destructive operations last).
+     */
+    public enum Kind {
+        /**
+         * Creates the (empty) tables of a new entity type.
+         */
+        CREATE_TABLE,
+        /**
+         * Adds a column (or a table for a new collection or contained type) to the storage of an entity type.
+         */
+        ADD_COLUMN,
+        /**
+         * Changes the type or constraints of an existing column: existing values must be checked or converted.
+         */
+        ALTER_COLUMN,
+        /**
+         * Changes the key fields of an entity type: table is rewritten and keys are checked for duplicates.
+         */
+        REKEY,
+        /**
+         * Rebuilds the tables of an entity type whose mapping changed (e.g. usage count of a reusable type changed).
+         */
+        REBUILD_TABLE,
+        /**
+         * Moves values between a column and a collection table (field changed from single to many or from many to
+         * single).
+         */
+        REBUILD_COLLECTION_TABLE,
+        /**
+         * Drops a column (or the table of a collection or contained type).
+         */
+        DROP_COLUMN,
+        /**
+         * Drops the tables of a removed entity type.
+         */
+        DROP_TABLE
+    }
+
+    private final Kind kind;
+
+    private final Change change;
+
+    private final String entityTypeName;
+
+    private final ImpactAnalyzer.Impact impact;
+
+    private final long cost;
+
+    /**
+     * @param kind The storage operation.
+     * @param change The change that requires the operation.
+     * @param entityTypeName Name of the entity type whose storage is modified.
+     * @param impact The impact of the change (as returned by {@link ImpactAnalyzer#analyzeImpacts(Compare.DiffResults)}).
+     * @param cost Estimated cost of the operation (the number of rows the operation reads or writes).
+     */
+    public MigrationStep(Kind kind, Change change, String entityTypeName, ImpactAnalyzer.Impact impact, long cost) {
+        if (kind == null) {
+            throw new IllegalArgumentException("Kind cannot be null.");
+        }
+        if (cost < 0) {
+            throw new IllegalArgumentException("Cost cannot be negative (was " + cost + ").");
+        }
+        this.kind = kind;
+        this.change = change;
+        this.entityTypeName = entityTypeName;
+        this.impact = impact;
+        this.cost = cost;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public Change getChange() {
+        return change;
+    }
+
+    public String getEntityTypeName() {
+        return entityTypeName;
+    }
+
+    public ImpactAnalyzer.Impact getImpact() {
+        return impact;
+    }
+
+    /**
+     * @return Estimated cost of the step: number of rows read or written (0 for operations that only change storage
+     * schema).
+     */
+    public long getCost() {
+        return cost;
+    }
+
+    @Override
+    public String toString() {
+        return kind + " on " + entityTypeName + " (cost: " + cost + ", impact: " + impact + ")"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * <p>
+ * Generates synthetic MDM data models (XML schemas) for load and scale testing. Generated data models use the
+ * annotations {@link org.talend.mdm.commmon.metadata.MetadataRepository} understands:
+ * <ul>
+ * <li>Foreign keys (<code>X_ForeignKey</code>, <code>X_ForeignKeyInfo</code>, <code>X_FKIntegrity</code>).</li>
+ * <li>Entity information (<code>X_PrimaryKeyInfo</code>, <code>X_Lookup_Field</code>).</li>
+ * <li>Labels (<code>X_Label_EN</code>, <code>X_Label_FR</code>) and access rights (<code>X_Write</code>,
+ * <code>X_Hide</code>).</li>
+ * <li>Reusable types (nested up to {@link #setReuseDepth(int) reuse depth}) with sub types usable with
+ * <code>xsi:type</code>.</li>
+ * <li>Entity inheritance (up to {@link #setInheritanceDepth(int) inheritance depth}).</li>
+ * </ul>
+ * </p>
+ * <p>
+ * Generation is deterministic: a generator always generates the same data model for the same seed and parameters.
+ * Generated data models have no circular dependency (a foreign key always points to an entity declared before).
+ * </p>
+ * <p>
+ * Naming conventions (can be used to build queries on generated data models):
+ * <ul>
+ * <li>Entities are named <code>Entity0</code>, <code>Entity1</code>... (see {@link #getEntityName(int)}).</li>
+ * <li>All entities have a {@link #KEY_FIELD} key field and a {@link #NAME_FIELD} field (inherited in sub types).</li>
+ * <li>If reuse depth is greater than 0, all entities have a {@link #REUSABLE_FIELD} field typed with a reusable
+ * type. Each reusable type has a {@link #REUSABLE_TYPE_FIELD} field and a {@link #NESTED_FIELD} field for the next
+ * nested reusable type (see {@link #getNestedFieldPath(int)}).</li>
+ * </ul>
+ * </p>
+ */
+public class DataModelGenerator {
+
+    public static final String KEY_FIELD = "Id"; //$NON-NLS-1$
+
+    public static final String NAME_FIELD = "Name"; //$NON-NLS-1$
+
+    public static final String REUSABLE_FIELD = "Address"; //$NON-NLS-1$
+
+    public static final String NESTED_FIELD = "Detail"; //$NON-NLS-1$
+
+    public static final String REUSABLE_TYPE_FIELD = "Line0"; //$NON-NLS-1$
+
+    private static final String ENCODING = "UTF-8"; //$NON-NLS-1$
+
+    private static final String[] SIMPLE_TYPES = { "xsd:string", "xsd:int", "xsd:boolean", "xsd:date", "xsd:dateTime", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+            "xsd:decimal", "xsd:long" }; //$NON-NLS-1$ //$NON-NLS-2$
+
+    private static final String[] ROLES = { "Demo_User", "Demo_Manager", "System_Web" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+    private static final String[] WORDS = { "Customer", "Product", "Order", "Store", "Supplier", "Account", "Contract", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$ //$NON-NLS-6$ //$NON-NLS-7$
+            "Invoice", "Region", "Agency", "Employee", "Item" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+    private final long seed;
+
+    private final int entityCount;
+
+    private int fieldCount = 8;
+
+    private int fanOut = 2;
+
+    private int reusableTypeCount = -1;
+
+    private int reuseDepth = 2;
+
+    private int reusableSubTypeCount = 2;
+
+    private int inheritanceDepth = 2;
+
+    /**
+     * @param seed Seed for the random choices of the generator (field types, foreign key targets...).
+     * @param entityCount Number of entity types in generated data models.
+     */
+    public DataModelGenerator(long seed, int entityCount) {
+        if (entityCount <= 0) {
+            throw new IllegalArgumentException("Entity count must be greater than 0.");
+        }
+        this.seed = seed;
+        this.entityCount = entityCount;
+    }
+
+    /**
+     * @param fieldCount Number of simple fields declared in each entity type (in addition to key and name fields).
+     * Default is 8.
+     */
+    public void setFieldCount(int fieldCount) {
+        if (fieldCount < 0) {
+            throw new IllegalArgumentException("Field count can not be negative.");
+        }
+        this.fieldCount = fieldCount;
+    }
+
+    /**
+     * @param fanOut Number of foreign keys declared in each entity type (first entities have less foreign keys since
+     * foreign keys only point to entities declared before). Default is 2.
+     */
+    public void setFanOut(int fanOut) {
+        if (fanOut < 0) {
+            throw new IllegalArgumentException("Fan out can not be negative.");
+        }
+        this.fanOut = fanOut;
+    }
+
+    /**
+     * @param reusableTypeCount Number of reusable types used by entities (each reusable type has its own nested types
+     * and sub types). Default is one reusable type every 20 entities.
+     */
+    public void setReusableTypeCount(int reusableTypeCount) {
+        if (reusableTypeCount <= 0) {
+            throw new IllegalArgumentException("Reusable type count must be greater than 0.");
+        }
+        this.reusableTypeCount = reusableTypeCount;
+    }
+
+    /**
+     * @param reuseDepth Number of nested reusable types (1 means reusable types don't contain other reusable types, 0
+     * means data model has no reusable type). Default is 2.
+     */
+    public void setReuseDepth(int reuseDepth) {
+        if (reuseDepth < 0) {
+            throw new IllegalArgumentException("Reuse depth can not be negative.");
+        }
+        this.reuseDepth = reuseDepth;
+    }
+
+    /**
+     * @param reusableSubTypeCount Number of sub types (for <code>xsi:type</code>) of each reusable type. Default is 2.
+     */
+    public void setReusableSubTypeCount(int reusableSubTypeCount) {
+        if (reusableSubTypeCount < 0) {
+            throw new IllegalArgumentException("Sub type count can not be negative.");
+        }
+        this.reusableSubTypeCount = reusableSubTypeCount;
+    }
+
+    /**
+     * @param inheritanceDepth Maximum length of entity inheritance chains (0 means no entity inheritance). Default is
+     * 2.
+     */
+    public void setInheritanceDepth(int inheritanceDepth) {
+        if (inheritanceDepth < 0) {
+            throw new IllegalArgumentException("Inheritance depth can not be negative.");
+        }
+        this.inheritanceDepth = inheritanceDepth;
+    }
+
+    /**
+     * @param index An entity index (from 0 to entity count - 1).
+     * @return The name of the entity type at <code>index</code>.
+     */
+    public static String getEntityName(int index) {
+        return "Entity" + index; //$NON-NLS-1$
+    }
+
+    /**
+     * @param depth A nesting depth (0 for the reusable type used by entities).
+     * @return Path (from an entity type) of the {@link #REUSABLE_TYPE_FIELD} field of the reusable type at
+     * <code>depth</code>, e.g. <code>Address/Detail/Line0</code> for a depth of 1.
+     */
+    public static String getNestedFieldPath(int depth) {
+        StringBuilder path = new StringBuilder(REUSABLE_FIELD);
+        for (int i = 0; i < depth; i++) {
+            path.append('/').append(NESTED_FIELD);
+        }
+        return path.append('/').append(REUSABLE_TYPE_FIELD).toString();
+    }
+
+    /**
+     * @return A new data model (UTF-8 encoded XML schema).
+     */
+    public byte[] generate() {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(entityCount * 4096);
+        try {
+            generate(output);
+        } catch (IOException e) {
+            throw new RuntimeException("Could not generate data model.", e); //$NON-NLS-1$
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes a new data model to <code>output</code> (this method does not close <code>output</code>).
+     *
+     * @param output Stream where UTF-8 encoded XML schema is written.
+     * @throws IOException In case of write error.
+     */
+    public void generate(OutputStream output) throws IOException {
+        if (output == null) {
+            throw new IllegalArgumentException("Output can not be null.");
+        }
+        Writer writer = new OutputStreamWriter(output, ENCODING);
+        new Generation(new Random(seed), writer).run();
+        writer.flush();
+    }
+
+    // Holds the state of one generation (generator itself can be used several times).
+    private class Generation {
+
+        private final Random random;
+
+        private final Writer writer;
+
+        private final int families;
+
+        private Generation(Random random, Writer writer) {
+            this.random = random;
+            this.writer = writer;
+            this.families = reusableTypeCount > 0 ? reusableTypeCount : Math.max(1, entityCount / 20);
+        }
+
+        private void run() throws IOException {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+            writer.write("<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\">\n"); //$NON-NLS-1$
+            writer.write("  <xsd:import namespace=\"http://www.w3.org/2001/XMLSchema\"/>\n"); //$NON-NLS-1$
+            if (reuseDepth > 0) {
+                for (int family = 0; family < families; family++) {
+                    for (int depth = 0; depth < reuseDepth; depth++) {
+                        writeReusableType(family, depth);
+                    }
+                }
+            }
+            // Decide inheritance first: entity types extended by another entity type need a named type. Use another
+            // random sequence so a data model with more entities starts with the same entities.
+            Random inheritanceRandom = new Random(~seed);
+            int[] levels = new int[entityCount];
+            for (int i = 1; i < entityCount; i++) {
+                if (levels[i - 1] < inheritanceDepth && inheritanceRandom.nextInt(3) == 0) {
+                    levels[i] = levels[i - 1] + 1;
+                }
+            }
+            for (int i = 0; i < entityCount; i++) {
+                boolean isExtended = i + 1 < entityCount && levels[i + 1] > 0;
+                writeEntity(i, levels[i], isExtended);
+            }
+            writer.write("</xsd:schema>\n"); //$NON-NLS-1$
+        }
+
+        private void writeReusableType(int family, int depth) throws IOException {
+            String typeName = getReusableTypeName(family, depth);
+            writer.write("  <xsd:complexType name=\"" + typeName + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+            writer.write("    <xsd:sequence>\n"); //$NON-NLS-1$
+            int lineCount = 1 + random.nextInt(4);
+            for (int line = 0; line < lineCount; line++) {
+                writeSimpleField("      ", "Line" + line, line == 0 ? "xsd:string" : randomSimpleType(), line == 0, //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        false, false);
+            }
+            if (depth + 1 < reuseDepth) {
+                writer.write("      <xsd:element maxOccurs=\"1\" minOccurs=\"0\" name=\"" + NESTED_FIELD + "\" type=\"" //$NON-NLS-1$ //$NON-NLS-2$
+                        + getReusableTypeName(family, depth + 1) + "\">\n"); //$NON-NLS-1$
+                writeAnnotation("        ", labels(NESTED_FIELD), Collections.<String> emptyList()); //$NON-NLS-1$
+                writer.write("      </xsd:element>\n"); //$NON-NLS-1$
+            }
+            writer.write("    </xsd:sequence>\n"); //$NON-NLS-1$
+            writer.write("  </xsd:complexType>\n"); //$NON-NLS-1$
+            // Sub types (for xsi:type)
+            for (int subType = 0; subType < reusableSubTypeCount; subType++) {
+                String subTypeName = typeName.substring(0, typeName.length() - "Type".length()) + "Ext" + subType + "Type"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                writer.write("  <xsd:complexType name=\"" + subTypeName + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                writer.write("    <xsd:complexContent>\n"); //$NON-NLS-1$
+                writer.write("      <xsd:extension base=\"" + typeName + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                writer.write("        <xsd:sequence>\n"); //$NON-NLS-1$
+                writeSimpleField("          ", "Ext" + subType + "Line", randomSimpleType(), false, false, false); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                writer.write("        </xsd:sequence>\n"); //$NON-NLS-1$
+                writer.write("      </xsd:extension>\n"); //$NON-NLS-1$
+                writer.write("    </xsd:complexContent>\n"); //$NON-NLS-1$
+                writer.write("  </xsd:complexType>\n"); //$NON-NLS-1$
+            }
+        }
+
+        private void writeEntity(int index, int level, boolean isExtended) throws IOException {
+            String entityName = getEntityName(index);
+            boolean isNamedType = level > 0 || isExtended;
+            // Entity
+            writer.write("  <xsd:element name=\"" + entityName + "\"" //$NON-NLS-1$ //$NON-NLS-2$
+                    + (isNamedType ? " type=\"" + entityName + "Type\"" : "") + ">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            List<String> entityInfo = new ArrayList<String>();
+            entityInfo.add(appInfo("X_Write", ROLES[1])); //$NON-NLS-1$
+            if (random.nextInt(4) == 0) {
+                entityInfo.add(appInfo("X_Hide", ROLES[0])); //$NON-NLS-1$
+            }
+            entityInfo.add(appInfo("X_PrimaryKeyInfo", entityName + '/' + NAME_FIELD)); //$NON-NLS-1$
+            if (random.nextBoolean()) {
+                entityInfo.add(appInfo("X_Lookup_Field", entityName + '/' + NAME_FIELD)); //$NON-NLS-1$
+            }
+            writeAnnotation("    ", labels(entityName), entityInfo); //$NON-NLS-1$
+            if (!isNamedType) {
+                writer.write("    <xsd:complexType>\n"); //$NON-NLS-1$
+                writer.write("      <xsd:sequence>\n"); //$NON-NLS-1$
+                writeEntityFields("        ", index, level); //$NON-NLS-1$
+                writer.write("      </xsd:sequence>\n"); //$NON-NLS-1$
+                writer.write("    </xsd:complexType>\n"); //$NON-NLS-1$
+            }
+            writer.write("    <xsd:unique name=\"" + entityName + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+            writer.write("      <xsd:selector xpath=\".\"/>\n"); //$NON-NLS-1$
+            writer.write("      <xsd:field xpath=\"" + KEY_FIELD + "\"/>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+            writer.write("    </xsd:unique>\n"); //$NON-NLS-1$
+            writer.write("  </xsd:element>\n"); //$NON-NLS-1$
+            // Entity type (if named)
+            if (isNamedType) {
+                writer.write("  <xsd:complexType name=\"" + entityName + "Type\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                if (level > 0) {
+                    writer.write("    <xsd:complexContent>\n"); //$NON-NLS-1$
+                    writer.write("      <xsd:extension base=\"" + getEntityName(index - 1) + "Type\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                    writer.write("        <xsd:sequence>\n"); //$NON-NLS-1$
+                    writeEntityFields("          ", index, level); //$NON-NLS-1$
+                    writer.write("        </xsd:sequence>\n"); //$NON-NLS-1$
+                    writer.write("      </xsd:extension>\n"); //$NON-NLS-1$
+                    writer.write("    </xsd:complexContent>\n"); //$NON-NLS-1$
+                } else {
+                    writer.write("    <xsd:sequence>\n"); //$NON-NLS-1$
+                    writeEntityFields("      ", index, level); //$NON-NLS-1$
+                    writer.write("    </xsd:sequence>\n"); //$NON-NLS-1$
+                }
+                writer.write("  </xsd:complexType>\n"); //$NON-NLS-1$
+            }
+        }
+
+        private void writeEntityFields(String indent, int index, int level) throws IOException {
+            // Sub types inherit key, name and reusable field from their super type (and must use different names).
+            String prefix = level == 0 ? "" : getEntityName(index) + '_'; //$NON-NLS-1$
+            if (level == 0) {
+                writeSimpleField(indent, KEY_FIELD, "xsd:string", true, false, false); //$NON-NLS-1$
+                writeSimpleField(indent, NAME_FIELD, "xsd:string", true, false, true); //$NON-NLS-1$
+                if (reuseDepth > 0) {
+                    writer.write(indent + "<xsd:element maxOccurs=\"1\" minOccurs=\"0\" name=\"" + REUSABLE_FIELD //$NON-NLS-1$
+                            + "\" type=\"" + getReusableTypeName(index % families, 0) + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                    writeAnnotation(indent + "  ", labels(REUSABLE_FIELD), Collections.<String> emptyList()); //$NON-NLS-1$
+                    writer.write(indent + "</xsd:element>\n"); //$NON-NLS-1$
+                }
+            }
+            for (int i = 0; i < fieldCount; i++) {
+                boolean isMany = random.nextInt(10) == 0;
+                writeSimpleField(indent, prefix + "Field" + i, randomSimpleType(), false, isMany, true); //$NON-NLS-1$
+            }
+            // Foreign keys (only to entities declared before to prevent cycles).
+            int foreignKeyCount = Math.min(fanOut, index);
+            List<Integer> targets = new ArrayList<Integer>(foreignKeyCount);
+            while (targets.size() < foreignKeyCount) {
+                int target = random.nextInt(index);
+                if (!targets.contains(target)) {
+                    targets.add(target);
+                }
+            }
+            for (int i = 0; i < targets.size(); i++) {
+                String referencedEntity = getEntityName(targets.get(i));
+                String fieldName = prefix + "Fk" + i; //$NON-NLS-1$
+                boolean isMany = random.nextInt(5) == 0;
+                writer.write(indent + "<xsd:element maxOccurs=\"" + (isMany ? "unbounded" : "1") //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                        + "\" minOccurs=\"0\" name=\"" + fieldName + "\" type=\"xsd:string\">\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                List<String> foreignKeyInfo = new ArrayList<String>();
+                foreignKeyInfo.add(appInfo("X_ForeignKey", referencedEntity + '/' + KEY_FIELD)); //$NON-NLS-1$
+                foreignKeyInfo.add(appInfo("X_ForeignKey_NotSep", "true")); //$NON-NLS-1$ //$NON-NLS-2$
+                foreignKeyInfo.add(appInfo("X_ForeignKeyInfo", referencedEntity + '/' + NAME_FIELD)); //$NON-NLS-1$
+                foreignKeyInfo.add(appInfo("X_FKIntegrity", String.valueOf(random.nextInt(4) != 0))); //$NON-NLS-1$
+                foreignKeyInfo.add(appInfo("X_Write", ROLES[random.nextInt(ROLES.length)])); //$NON-NLS-1$
+                writeAnnotation(indent + "  ", labels(fieldName), foreignKeyInfo); //$NON-NLS-1$
+                writer.write(indent + "</xsd:element>\n"); //$NON-NLS-1$
+            }
+        }
+
+        private void writeSimpleField(String indent, String name, String type, boolean isMandatory, boolean isMany,
+                boolean hasAnnotations) throws IOException {
+            // Some optional string fields get a max length restriction (anonymous simple type): key and name fields
+            // are kept primitive since they are used as primary key and foreign key info.
+            boolean hasMaxLength = !isMandatory && "xsd:string".equals(type) && random.nextInt(3) == 0; //$NON-NLS-1$
+            writer.write(indent + "<xsd:element maxOccurs=\"" + (isMany ? "unbounded" : "1") + "\" minOccurs=\"" //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+                    + (isMandatory ? "1" : "0") + "\" name=\"" + name + '\"'); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            if (!hasAnnotations && !hasMaxLength) {
+                writer.write(" type=\"" + type + "\"/>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                return;
+            }
+            writer.write(hasMaxLength ? ">\n" : " type=\"" + type + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            if (hasAnnotations) {
+                List<String> accessRights = new ArrayList<String>();
+                if (random.nextInt(5) == 0) {
+                    accessRights.add(appInfo("X_Write", ROLES[random.nextInt(ROLES.length)])); //$NON-NLS-1$
+                }
+                if (random.nextInt(8) == 0) {
+                    accessRights.add(appInfo("X_Hide", ROLES[random.nextInt(ROLES.length)])); //$NON-NLS-1$
+                }
+                writeAnnotation(indent + "  ", labels(name), accessRights); //$NON-NLS-1$
+            }
+            if (hasMaxLength) {
+                writer.write(indent + "  <xsd:simpleType>\n"); //$NON-NLS-1$
+                writer.write(indent + "    <xsd:restriction base=\"xsd:string\">\n"); //$NON-NLS-1$
+                writer.write(indent + "      <xsd:maxLength value=\"" + (10 + random.nextInt(246)) + "\"/>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+                writer.write(indent + "    </xsd:restriction>\n"); //$NON-NLS-1$
+                writer.write(indent + "  </xsd:simpleType>\n"); //$NON-NLS-1$
+            }
+            writer.write(indent + "</xsd:element>\n"); //$NON-NLS-1$
+        }
+
+        private void writeAnnotation(String indent, List<String> labels, List<String> appInfos) throws IOException {
+            writer.write(indent + "<xsd:annotation>\n"); //$NON-NLS-1$
+            for (String label : labels) {
+                writer.write(indent + "  " + label + '\n'); //$NON-NLS-1$
+            }
+            for (String appInfo : appInfos) {
+                writer.write(indent + "  " + appInfo + '\n'); //$NON-NLS-1$
+            }
+            writer.write(indent + "</xsd:annotation>\n"); //$NON-NLS-1$
+        }
+
+        private List<String> labels(String name) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            List<String> labels = new ArrayList<String>(2);
+            labels.add(appInfo("X_Label_EN", word + ' ' + name)); //$NON-NLS-1$
+            labels.add(appInfo("X_Label_FR", name + ' ' + word)); //$NON-NLS-1$
+            return labels;
+        }
+
+        private String appInfo(String source, String value) {
+            return "<xsd:appinfo source=\"" + source + "\">" + value + "</xsd:appinfo>"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        }
+
+        private String randomSimpleType() {
+            return SIMPLE_TYPES[random.nextInt(SIMPLE_TYPES.length)];
+        }
+
+        private String getReusableTypeName(int family, int depth) {
+            return "Reusable" + family + '_' + depth + "Type"; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+    }
+}
@@ -18,21 +18,30 @@ import org.talend.mdm.commmon.metadata.*;
 
 public class ValidationFactory {
 
-    private static final String VALIDATION_MARKER = "validation.validated"; //$NON-NLS-1$
-
     private static boolean isValidated(MetadataExtensible metadataElement) {
-        return BooleanUtils.isTrue(metadataElement.<Boolean> getData(VALIDATION_MARKER));
+        return BooleanUtils.isTrue(metadataElement.<Boolean> getData(MetadataRepository.VALIDATION_MARKER));
+    }
+
+    // Returns true if element was already validated, otherwise marks it as validated (atomic check for parallel
+    // validation of types, see MetadataRepository#setParallelValidation(boolean)).
+    private static boolean markValidated(MetadataExtensible metadataElement) {
+        synchronized (metadataElement) {
+            if (isValidated(metadataElement)) {
+                return true;
+            }
+            metadataElement.setData(MetadataRepository.VALIDATION_MARKER, true);
+            return false;
+        }
     }
 
     public static ValidationRule getRule(FieldMetadata field) {
-        if (isValidated(field)) {
+        if (markValidated(field)) {
             if (field instanceof UnresolvedFieldMetadata) {
                 return NoOpValidationRule.FAIL;
             } else {
                 return NoOpValidationRule.SUCCESS;
             }
         }
-        field.setData(VALIDATION_MARKER, true);
         return field.createValidationRule();
     }
 
@@ -82,14 +91,13 @@ public class ValidationFactory {
     }
 
     public static ValidationRule getRule(TypeMetadata type) {
-        if (isValidated(type)) {
+        if (markValidated(type)) {
             if (type instanceof UnresolvedTypeMetadata) {
                 return NoOpValidationRule.FAIL;
             } else {
                 return NoOpValidationRule.SUCCESS;
             }
         }
-        type.setData(VALIDATION_MARKER, true);
         return type.createValidationRule();
     }
 
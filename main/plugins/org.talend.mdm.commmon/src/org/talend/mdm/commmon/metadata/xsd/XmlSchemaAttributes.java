@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.xsd;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.XMLConstants;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Index of the &lt;xsd:attribute&gt; declarations of a XML schema DOM: index is built with a single pass over the
+ * document and gives the attributes declared under any element of the document (e.g. the DOM element of a type)
+ * without evaluating a XPath expression for each element. Index is immutable once built: it can be read by several
+ * threads without locking.
+ */
+public final class XmlSchemaAttributes {
+
+    private static final String ATTRIBUTE = "attribute"; //$NON-NLS-1$
+
+    private final Map<Element, List<Element>> index = new IdentityHashMap<Element, List<Element>>();
+
+    private XmlSchemaAttributes() {
+    }
+
+    /**
+     * Indexes all &lt;xsd:attribute&gt; declarations of the document that contains <code>schemaElement</code>.
+     *
+     * @param schemaElement An element of a XML schema document (usually the &lt;xsd:schema&gt; element).
+     * @return The index of the attributes declared in the document.
+     */
+    public static XmlSchemaAttributes index(Element schemaElement) {
+        XmlSchemaAttributes schemaAttributes = new XmlSchemaAttributes();
+        Document document = schemaElement.getOwnerDocument();
+        NodeList attributes = document.getElementsByTagNameNS(XMLConstants.W3C_XML_SCHEMA_NS_URI, ATTRIBUTE);
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Element attribute = (Element) attributes.item(i);
+            // Attributes are rare: registering each attribute under all its ancestors keeps index small.
+            Node ancestor = attribute.getParentNode();
+            while (ancestor instanceof Element) {
+                List<Element> ancestorAttributes = schemaAttributes.index.get(ancestor);
+                if (ancestorAttributes == null) {
+                    ancestorAttributes = new ArrayList<Element>();
+                    schemaAttributes.index.put((Element) ancestor, ancestorAttributes);
+                }
+                ancestorAttributes.add(attribute);
+                ancestor = ancestor.getParentNode();
+            }
+        }
+        return schemaAttributes;
+    }
+
+    /**
+     * @param element An element of the indexed XML schema document.
+     * @return The &lt;xsd:attribute&gt; declarations under <code>element</code> (in document order).
+     */
+    public List<Element> getAttributes(Element element) {
+        List<Element> attributes = index.get(element);
+        if (attributes == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(attributes);
+    }
+}
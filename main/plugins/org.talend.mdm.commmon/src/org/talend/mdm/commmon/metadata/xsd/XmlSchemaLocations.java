@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2006-2014 Talend Inc. - www.talend.com
+ *
+ * This source code is available under agreement available at
+ * %InstallDIR%\features\org.talend.rcp.branding.%PRODUCTNAME%\%PRODUCTNAME%license.txt
+ *
+ * You should have received a copy of the agreement
+ * along with this program; if not, write to Talend SA
+ * 9 rue Pages 92150 Suresnes, France
+ */
+
+package org.talend.mdm.commmon.metadata.xsd;
+
+import org.eclipse.xsd.util.XSDParser;
+import org.w3c.dom.Node;
+
+/**
+ * Line and column numbers of XML schema DOM nodes. Nodes parsed by EMF get their location from {@link XSDParser}, other
+ * nodes (e.g. annotations read by the streaming front end of {@link org.talend.mdm.commmon.metadata.MetadataRepository})
+ * keep their location with {@link #setStartLocation(Node, int, int)}.
+ */
+public final class XmlSchemaLocations {
+
+    private static final String LOCATION = "metadata.xsd.location"; //$NON-NLS-1$
+
+    private XmlSchemaLocations() {
+    }
+
+    public static void setStartLocation(Node node, int line, int column) {
+        node.setUserData(LOCATION, new int[] { line, column }, null);
+    }
+
+    public static int getStartLine(Node node) {
+        int[] location = (int[]) node.getUserData(LOCATION);
+        return location != null ? location[0] : XSDParser.getStartLine(node);
+    }
+
+    public static int getStartColumn(Node node) {
+        int[] location = (int[]) node.getUserData(LOCATION);
+        return location != null ? location[1] : XSDParser.getStartColumn(node);
+    }
+}